@@ -0,0 +1,441 @@
+/*
+ * File: BinarySnapshot.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the binary snapshot file used by SocialNetwork.java to
+ * save and restore a network without replaying its commands.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * The state of a network written to one file, which is read back with a few
+ * bulk array reads. Users are numbered 0 to order - 1 in the order of
+ * getVertices(), and the file holds, in order:
+ * 
+ * <pre>
+ * header    magic "SNBS", version, order, edges (long), active user length
+ *           (-1 if none) and its UTF-8 bytes
+ * lengths   int per user, length of its UTF-8 name
+ * names     UTF-8 bytes of every name
+ * counts    int per user, number of friends numbered above it
+ * friends   int per edge, friends of each user numbered above it, in order
+ * checksum  CRC32C of all bytes before it, as a long
+ * </pre>
+ * 
+ * Each edge is stored once, at its lower numbered end. All numbers are big
+ * endian. A snapshot is written to a temporary file which then replaces the
+ * target, so a crash while saving leaves the previous snapshot whole, and a
+ * snapshot is fully read and its checksum checked before anything is
+ * restored from it.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class BinarySnapshot {
+
+	static final int MAGIC = 0x534E4253; // "SNBS"
+	static final int VERSION = 1;
+	private static final int BLOCK = 1 << 20; // bytes written or read at a time
+	private static final int HEADER = 24; // bytes of header before active user's name
+	private static final int TRAILER = 8; // bytes of checksum
+
+	final String[] names; // name of each user, by number
+	final int[] counts; // friends numbered above each user
+	final int[] friends; // friends numbered above each user, user by user
+	final String active; // name of active user, null if none
+
+	/**
+	 * Constructor used by read()
+	 */
+	private BinarySnapshot(String[] names, int[] counts, int[] friends, String active) {
+		this.names = names;
+		this.counts = counts;
+		this.friends = friends;
+		this.active = active;
+	}
+
+	/**
+	 * Writes snapshot of graph.
+	 * 
+	 * @param graph  to save, which must not change while being written
+	 * @param active active user, or null
+	 * @param file   to write, replaced once the snapshot is complete
+	 * @throws IOException if file cannot be written
+	 */
+	static void write(IndexedGraphADT graph, Person active, Path file) throws IOException {
+		List<Person> vertices = graph.getVertices();
+		int order = vertices.size();
+		int[] numbers = new int[graph.idBound()]; // number of each id
+		int[] ids = new int[order]; // id of each number
+		byte[][] names = new byte[order][];
+		for (int i = 0; i < order; i++) {
+			Person person = vertices.get(i);
+			ids[i] = person.getId();
+			numbers[ids[i]] = i;
+			names[i] = person.getName().getBytes(StandardCharsets.UTF_8);
+		}
+		// Count friends numbered above each user, keeping them for the second pass
+		int[] counts = new int[order];
+		NeighborCursor cursor = graph.newNeighborCursor();
+		long edges = 0;
+		for (int i = 0; i < order; i++) {
+			cursor.reset(ids[i]);
+			for (int friend = cursor.next(); friend >= 0; friend = cursor.next()) {
+				if (numbers[friend] > i) {
+					++counts[i];
+				}
+			}
+			edges += counts[i];
+		}
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (Output out = new Output(temporary)) {
+			byte[] activeName = active == null ? null : active.getName().getBytes(StandardCharsets.UTF_8);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(order);
+			out.putLong(edges);
+			out.putInt(activeName == null ? -1 : activeName.length);
+			if (activeName != null) {
+				out.putBytes(activeName);
+			}
+			for (int i = 0; i < order; i++) {
+				out.putInt(names[i].length);
+			}
+			for (int i = 0; i < order; i++) {
+				out.putBytes(names[i]);
+			}
+			out.putInts(counts, order);
+			int[] above = new int[16];
+			for (int i = 0; i < order; i++) {
+				if (counts[i] > above.length) {
+					above = new int[Math.max(counts[i], above.length * 2)];
+				}
+				int count = 0;
+				cursor.reset(ids[i]);
+				for (int friend = cursor.next(); friend >= 0; friend = cursor.next()) {
+					if (numbers[friend] > i) {
+						above[count++] = numbers[friend];
+					}
+				}
+				out.putInts(above, count);
+			}
+			out.finish();
+		}
+		try {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads whole snapshot, checking its checksum.
+	 * 
+	 * @param file to read
+	 * @return contents of snapshot
+	 * @throws IOException if file cannot be read, or is not an intact snapshot
+	 *                     of a supported version
+	 */
+	static BinarySnapshot read(Path file) throws IOException {
+		try (Input in = new Input(file)) {
+			if (in.getInt() != MAGIC) {
+				throw new IOException("File is not a network snapshot.");
+			}
+			int version = in.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported snapshot version " + version + ".");
+			}
+			int order = in.getInt();
+			long edges = in.getLong();
+			int activeLength = in.getInt();
+			// Sizes are checked against the file before arrays are made for them
+			if (order < 0 || edges < 0 || edges > Integer.MAX_VALUE - 8 || activeLength < -1
+					|| HEADER + 8L * order + 4 * edges + Math.max(0, activeLength) + TRAILER > in.size()) {
+				throw new IOException("Snapshot is corrupt.");
+			}
+			String active = activeLength < 0 ? null : in.getString(activeLength);
+			int[] lengths = new int[order];
+			in.getInts(lengths, order);
+			String[] names = new String[order];
+			for (int i = 0; i < order; i++) {
+				if (lengths[i] < 0) {
+					throw new IOException("Snapshot is corrupt.");
+				}
+				names[i] = in.getString(lengths[i]);
+			}
+			int[] counts = new int[order];
+			in.getInts(counts, order);
+			long total = 0;
+			for (int i = 0; i < order; i++) {
+				if (counts[i] < 0) {
+					throw new IOException("Snapshot is corrupt.");
+				}
+				total += counts[i];
+			}
+			if (total != edges) {
+				throw new IOException("Snapshot is corrupt.");
+			}
+			int[] friends = new int[(int) edges];
+			in.getInts(friends, friends.length);
+			in.finish();
+			// Friend lists are checked once the bytes are known intact
+			try {
+				check(names, counts, friends);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Snapshot is corrupt.", e);
+			}
+			return new BinarySnapshot(names, counts, friends, active);
+		}
+	}
+
+	/**
+	 * Checks that arrays describe a network the way a snapshot stores it, as
+	 * IndexedGraphADT.load() expects them: counts[i] friends of user i, each
+	 * numbered above i and below the number of users, listed user by user
+	 * with no friend listed twice for the same user. Names are not checked
+	 * for duplicates, which load() finds as it numbers the users.
+	 * 
+	 * @param names   name of each user, by number
+	 * @param counts  friends numbered above each user
+	 * @param friends friends numbered above each user, user by user
+	 * @throws IllegalArgumentException if the arrays do not describe a network
+	 */
+	static void check(String[] names, int[] counts, int[] friends) {
+		if (names == null || counts == null || friends == null || counts.length != names.length) {
+			throw new IllegalArgumentException("Network arrays are null or of unequal length. Please provide valid input.");
+		}
+		int order = names.length;
+		int[] listed = new int[order]; // 1 + last user each user was listed as friend of
+		int next = 0;
+		for (int i = 0; i < order; i++) {
+			if (names[i] == null || counts[i] < 0 || counts[i] > friends.length - next) {
+				throw new IllegalArgumentException("User " + i + " is not valid. Please provide valid input.");
+			}
+			for (int end = next + counts[i]; next < end; next++) {
+				int friend = friends[next];
+				if (friend <= i || friend >= order || listed[friend] == i + 1) {
+					throw new IllegalArgumentException(
+							"Friend " + friend + " of user " + i + " is not valid. Please provide valid input.");
+				}
+				listed[friend] = i + 1;
+			}
+		}
+		if (next != friends.length) {
+			throw new IllegalArgumentException("Friends do not match counts. Please provide valid input.");
+		}
+	}
+
+	/**
+	 * Buffered writing of a new file, keeping its checksum.
+	 */
+	private static class Output implements AutoCloseable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final CRC32C checksum;
+
+		Output(Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			buffer = ByteBuffer.allocateDirect(BLOCK);
+			checksum = new CRC32C();
+		}
+
+		void putInt(int value) throws IOException {
+			room(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			room(8);
+			buffer.putLong(value);
+		}
+
+		void putInts(int[] values, int length) throws IOException {
+			for (int done = 0; done < length;) {
+				room(4);
+				int count = Math.min(length - done, buffer.remaining() / 4);
+				buffer.asIntBuffer().put(values, done, count);
+				buffer.position(buffer.position() + 4 * count);
+				done += count;
+			}
+		}
+
+		void putBytes(byte[] bytes) throws IOException {
+			for (int done = 0; done < bytes.length;) {
+				room(1);
+				int count = Math.min(bytes.length - done, buffer.remaining());
+				buffer.put(bytes, done, count);
+				done += count;
+			}
+		}
+
+		/**
+		 * Writes buffered bytes and then their checksum, and forces file to disk.
+		 */
+		void finish() throws IOException {
+			drain();
+			buffer.putLong(checksum.getValue());
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+
+		/**
+		 * Makes room for given number of bytes, writing the buffer if needed.
+		 */
+		private void room(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				drain();
+			}
+		}
+
+		/**
+		 * Writes buffered bytes, adding them to the checksum.
+		 */
+		private void drain() throws IOException {
+			buffer.flip();
+			checksum.update(buffer.duplicate());
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Buffered reading of a file, keeping the checksum of the bytes read.
+	 */
+	private static class Input implements AutoCloseable {
+		private final FileChannel channel;
+		private final long size; // bytes in file
+		private long filled; // bytes of file read into buffer so far
+		private ByteBuffer buffer;
+		private final CRC32C checksum;
+
+		Input(Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+			size = channel.size();
+			buffer = ByteBuffer.allocate(BLOCK); // on heap, so names decode from its array
+			buffer.limit(0);
+			checksum = new CRC32C();
+		}
+
+		long size() {
+			return size;
+		}
+
+		int getInt() throws IOException {
+			need(4);
+			return buffer.getInt();
+		}
+
+		long getLong() throws IOException {
+			need(8);
+			return buffer.getLong();
+		}
+
+		void getInts(int[] values, int length) throws IOException {
+			for (int done = 0; done < length;) {
+				need(4);
+				int count = Math.min(length - done, buffer.remaining() / 4);
+				buffer.asIntBuffer().get(values, done, count);
+				buffer.position(buffer.position() + 4 * count);
+				done += count;
+			}
+		}
+
+		String getString(int length) throws IOException {
+			need(length);
+			String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+					StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+			return string;
+		}
+
+		/**
+		 * Reads stored checksum and checks it against the bytes read, which must
+		 * be all bytes before it.
+		 */
+		void finish() throws IOException {
+			if (filled - buffer.remaining() != size - TRAILER) {
+				throw new IOException("Snapshot is corrupt.");
+			}
+			// Checksum covers the bytes read before the trailer was buffered
+			need(TRAILER);
+			if (buffer.getLong() != checksum.getValue()) {
+				throw new IOException("Snapshot checksum does not match.");
+			}
+		}
+
+		/**
+		 * Ensures given number of bytes are buffered, reading more of the file.
+		 * Bytes are added to the checksum as they are read, except the trailer.
+		 */
+		private void need(int bytes) throws IOException {
+			if (buffer.remaining() >= bytes) {
+				return;
+			}
+			if (filled + bytes - buffer.remaining() > size) {
+				throw new IOException("Snapshot is truncated.");
+			}
+			if (bytes > buffer.capacity()) {
+				ByteBuffer larger = ByteBuffer.allocate(bytes);
+				larger.put(buffer);
+				buffer = larger;
+			} else {
+				buffer.compact();
+			}
+			while (buffer.remaining() > 0 && filled < size) {
+				int start = buffer.position();
+				int read = channel.read(buffer, filled);
+				if (read < 0) {
+					break;
+				}
+				// Leave the trailer out of the checksum
+				int counted = (int) Math.max(0, Math.min(read, size - TRAILER - filled));
+				ByteBuffer fresh = buffer.duplicate();
+				fresh.position(start);
+				fresh.limit(start + counted);
+				checksum.update(fresh);
+				filled += read;
+			}
+			buffer.flip();
+			if (buffer.remaining() < bytes) {
+				throw new IOException("Snapshot is truncated.");
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
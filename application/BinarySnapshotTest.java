@@ -0,0 +1,155 @@
+/*
+ * File: BinarySnapshotTest.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the tests of the binary snapshots written and checked by
+ * BinarySnapshot.java.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a snapshot restores the network it was saved from, and that a
+ * damaged one is refused with the network left as it was.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class BinarySnapshotTest {
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * Saving and loading gives back the same users, friendships and active
+	 * user.
+	 */
+	@Test
+	void restoresSavedNetwork() throws Exception {
+		SocialNetwork network = new SocialNetwork();
+		network.addFriends("a", "b");
+		network.addFriends("b", "c");
+		network.addUser("lonely");
+		network.runAction("s b");
+		Path file = directory.resolve("network.bin");
+		network.saveSnapshot(file);
+
+		SocialNetwork loaded = new SocialNetwork(new CompactGraph());
+		loaded.loadSnapshot(file);
+		assertEquals(TestNetworks.state(network), TestNetworks.state(loaded));
+	}
+
+	/**
+	 * A flipped bit anywhere in the file fails the checksum, and the network
+	 * is not touched.
+	 */
+	@Test
+	void rejectsCorruptedSnapshot() throws IOException {
+		SocialNetwork network = new SocialNetwork();
+		network.addFriends("a", "b");
+		network.addFriends("b", "c");
+		Path file = directory.resolve("network.bin");
+		network.saveSnapshot(file);
+		byte[] bytes = Files.readAllBytes(file);
+
+		SocialNetwork target = new SocialNetwork();
+		target.addFriends("x", "y");
+		String before = TestNetworks.state(target);
+		for (int position = 0; position < bytes.length; position++) {
+			byte[] damaged = bytes.clone();
+			damaged[position] ^= 1;
+			Files.write(file, damaged);
+			assertThrows(IOException.class, () -> target.loadSnapshot(file));
+			assertEquals(before, TestNetworks.state(target), "changed by damaged snapshot");
+		}
+	}
+
+	/**
+	 * Every graph rebuilds from a snapshot the same network as the one saved,
+	 * whether it builds its adjacency directly or through batches of edges, and
+	 * takes later changes as usual.
+	 */
+	@Test
+	void loadsIntoEveryGraph() throws Exception {
+		Random random = new Random(23);
+		SocialNetwork network = new SocialNetwork();
+		for (int i = 0; i < 2000; i++) {
+			network.addFriends("u" + random.nextInt(300), "u" + random.nextInt(300));
+		}
+		network.addUser("lonely");
+		network.removeUser("u7");
+		Path file = directory.resolve("network.bin");
+		network.saveSnapshot(file);
+
+		IndexedGraphADT[] graphs = { new Graph(), new CompactGraph(), new ConcurrentGraph() };
+		for (IndexedGraphADT graph : graphs) {
+			SocialNetwork loaded = new SocialNetwork(graph);
+			loaded.addFriends("x", "y");
+			loaded.loadSnapshot(file);
+			assertEquals(TestNetworks.state(network), TestNetworks.state(loaded), graph.getClass().getName());
+			network.addFriends("u1", "new");
+			loaded.addFriends("u1", "new");
+			assertEquals(TestNetworks.state(network), TestNetworks.state(loaded), graph.getClass().getName());
+			network.removeUser("new");
+		}
+	}
+
+	/**
+	 * Arrays listing a friendship twice, a friend numbered below its user or a
+	 * name twice are refused, and the graph is left as it was.
+	 */
+	@Test
+	void loadRejectsInvalidNetwork() {
+		String[] names = { "a", "b", "c" };
+		IndexedGraphADT[] graphs = { new Graph(), new CompactGraph(), new ConcurrentGraph() };
+		for (IndexedGraphADT graph : graphs) {
+			graph.addEdge(new Person("x"), new Person("y"));
+			assertThrows(IllegalArgumentException.class,
+					() -> graph.load(names, new int[] { 2, 0, 0 }, new int[] { 1, 1 }));
+			assertThrows(IllegalArgumentException.class,
+					() -> graph.load(names, new int[] { 0, 1, 0 }, new int[] { 0 }));
+			assertThrows(IllegalArgumentException.class,
+					() -> graph.load(new String[] { "a", "b", "a" }, new int[] { 1, 0, 0 }, new int[] { 1 }));
+			assertEquals(2, graph.order());
+			assertEquals(1, graph.size());
+
+			graph.load(names, new int[] { 2, 1, 0 }, new int[] { 1, 2, 2 });
+			assertEquals(3, graph.order());
+			assertEquals(3, graph.size());
+		}
+	}
+
+	/**
+	 * A file cut short, as by a crash while copying it, is refused.
+	 */
+	@Test
+	void rejectsTruncatedSnapshot() throws IOException {
+		SocialNetwork network = new SocialNetwork();
+		network.addFriends("a", "b");
+		Path file = directory.resolve("network.bin");
+		network.saveSnapshot(file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+		assertThrows(IOException.class, () -> new SocialNetwork().loadSnapshot(file));
+	}
+}
@@ -0,0 +1,445 @@
+/*
+ * File: Centrality.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the parallel PageRank and betweenness centrality used by
+ * SocialNetwork.java to rank users by influence.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Centrality measures over the ids of a graph, run on a ForkJoinPool, with
+ * every score kept in a double array indexed by id.
+ * 
+ * PageRank is computed by power iteration in pull form: each step first
+ * divides every node's rank by its degree, then sets each node's new rank from
+ * the shares of its neighbors, so every task writes only the nodes of its own
+ * range and no atomics are needed. Rank held by nodes without friends is spread
+ * evenly over all nodes. Iteration stops once the ranks move less than the
+ * tolerance in total, or after the maximum number of iterations.
+ * 
+ * Betweenness follows Brandes: a breadth first search from each source counts
+ * shortest paths to every node, and dependencies are summed back in reverse
+ * order of distance. Predecessors are found again by scanning for neighbors one
+ * step closer rather than stored in lists. Sources are a random sample of the
+ * nodes, split into a few batches per thread, and each thread sums the
+ * dependencies of all its batches in one workspace. Scores are scaled by nodes
+ * over sources, so sampling every node gives exact betweenness.
+ * 
+ * The graph must not change during either; a snapshot can be ranked instead.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class Centrality {
+
+	private static final int GRAIN = 1024; // nodes handled by one PageRank task
+
+	private final IndexedGraphADT graph;
+	private final int bound;
+
+	/**
+	 * Constructor for centrality of given graph.
+	 */
+	private Centrality(IndexedGraphADT graph) {
+		this.graph = graph;
+		this.bound = graph.idBound();
+	}
+
+	/**
+	 * Ranks nodes by PageRank.
+	 * 
+	 * @param graph         to rank, which must not change during ranking
+	 * @param damping       chance of following a friendship rather than jumping
+	 * @param tolerance     total change in rank below which iteration stops
+	 * @param maxIterations most iterations to run
+	 * @param pool          to run on
+	 * @return array indexed by id of each node's rank, summing to 1, 0 for ids
+	 *         not in use
+	 */
+	static double[] pageRank(IndexedGraphADT graph, double damping, double tolerance, int maxIterations,
+			ForkJoinPool pool) {
+		return new Centrality(graph).pageRank(damping, tolerance, maxIterations, pool);
+	}
+
+	/**
+	 * Estimates betweenness of nodes from a sample of sources.
+	 * 
+	 * @param graph   to rank, which must not change during ranking
+	 * @param samples number of sources, all nodes if at least the order
+	 * @param seed    for choosing sources
+	 * @param pool    to run on
+	 * @return array indexed by id of each node's betweenness, counting each
+	 *         unordered pair of other nodes once, 0 for ids not in use
+	 */
+	static double[] betweenness(IndexedGraphADT graph, int samples, long seed, ForkJoinPool pool) {
+		return new Centrality(graph).betweenness(samples, seed, pool);
+	}
+
+	/**
+	 * Finds ids of the k highest scores, ties going to the lower id.
+	 * 
+	 * @param scores indexed by id
+	 * @param k      most ids to return
+	 * @return ids, highest score first
+	 */
+	static int[] topK(double[] scores, int k) {
+		int size = 0;
+		int[] heap = new int[Math.min(k, scores.length)]; // best so far, worst on top
+		for (int id = 0; id < scores.length; id++) {
+			if (size < heap.length) {
+				heap[size] = id;
+				// Sift up while parent ranks above new entry
+				for (int i = size++; i > 0;) {
+					int parent = (i - 1) >>> 1;
+					if (!better(scores, heap[parent], heap[i])) {
+						break;
+					}
+					int swap = heap[i];
+					heap[i] = heap[parent];
+					heap[parent] = swap;
+					i = parent;
+				}
+			} else if (size > 0 && better(scores, id, heap[0])) {
+				heap[0] = id;
+				siftDown(scores, heap, size);
+			}
+		}
+		int[] top = new int[size];
+		for (int last = size - 1; last >= 0; last--) {
+			top[last] = heap[0];
+			heap[0] = heap[last];
+			siftDown(scores, heap, last);
+		}
+		return top;
+	}
+
+	/**
+	 * Moves top of heap down past entries worse than it.
+	 */
+	private static void siftDown(double[] scores, int[] heap, int size) {
+		int i = 0;
+		while (true) {
+			int worst = i;
+			for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+				if (better(scores, heap[worst], heap[child])) {
+					worst = child;
+				}
+			}
+			if (worst == i) {
+				return;
+			}
+			int swap = heap[i];
+			heap[i] = heap[worst];
+			heap[worst] = swap;
+			i = worst;
+		}
+	}
+
+	/**
+	 * Determines if first id ranks above second.
+	 */
+	private static boolean better(double[] scores, int id1, int id2) {
+		return scores[id1] > scores[id2] || (scores[id1] == scores[id2] && id1 < id2);
+	}
+
+	/**
+	 * Runs power iteration.
+	 */
+	private double[] pageRank(double damping, double tolerance, int maxIterations, ForkJoinPool pool) {
+		double[] ranks = new double[bound];
+		int order = graph.order();
+		if (order == 0) {
+			return ranks;
+		}
+		int[] degrees = new int[bound]; // -1 for ids not in use
+		for (int id = 0; id < bound; id++) {
+			if (graph.getNodeById(id) != null) {
+				degrees[id] = graph.degree(id);
+				ranks[id] = 1.0 / order;
+			} else {
+				degrees[id] = -1;
+			}
+		}
+		double[] shares = new double[bound];
+		double[] next = new double[bound];
+		for (int iteration = 0; iteration < maxIterations; iteration++) {
+			double stranded = pool.invoke(new Share(degrees, ranks, shares, 0, bound));
+			double base = (1 - damping + damping * stranded) / order;
+			double change = pool.invoke(new Gather(degrees, ranks, shares, next, base, damping, 0, bound));
+			double[] done = ranks;
+			ranks = next;
+			next = done;
+			if (change < tolerance) {
+				break;
+			}
+		}
+		return ranks;
+	}
+
+	/**
+	 * Divides rank of each node in a range by its degree.
+	 */
+	private class Share extends RecursiveTask<Double> {
+		private static final long serialVersionUID = 1L;
+		private final int[] degrees;
+		private final double[] ranks;
+		private final double[] shares;
+		private final int from;
+		private final int to;
+
+		Share(int[] degrees, double[] ranks, double[] shares, int from, int to) {
+			this.degrees = degrees;
+			this.ranks = ranks;
+			this.shares = shares;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * @return rank held by nodes without friends
+		 */
+		@Override
+		protected Double compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				Share left = new Share(degrees, ranks, shares, from, middle);
+				left.fork();
+				double right = new Share(degrees, ranks, shares, middle, to).compute();
+				return left.join() + right;
+			}
+			double stranded = 0;
+			for (int id = from; id < to; id++) {
+				int degree = degrees[id];
+				if (degree < 0) {
+					shares[id] = 0;
+				} else if (degree == 0) {
+					shares[id] = 0;
+					stranded += ranks[id];
+				} else {
+					shares[id] = ranks[id] / degree;
+				}
+			}
+			return stranded;
+		}
+	}
+
+	/**
+	 * Sets new rank of each node in a range from its neighbors' shares.
+	 */
+	private class Gather extends RecursiveTask<Double> {
+		private static final long serialVersionUID = 1L;
+		private final int[] degrees;
+		private final double[] ranks;
+		private final double[] shares;
+		private final double[] next;
+		private final double base;
+		private final double damping;
+		private final int from;
+		private final int to;
+
+		Gather(int[] degrees, double[] ranks, double[] shares, double[] next, double base, double damping, int from,
+				int to) {
+			this.degrees = degrees;
+			this.ranks = ranks;
+			this.shares = shares;
+			this.next = next;
+			this.base = base;
+			this.damping = damping;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * @return total change in rank over range
+		 */
+		@Override
+		protected Double compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				Gather left = new Gather(degrees, ranks, shares, next, base, damping, from, middle);
+				left.fork();
+				double right = new Gather(degrees, ranks, shares, next, base, damping, middle, to).compute();
+				return left.join() + right;
+			}
+			NeighborCursor friends = graph.newNeighborCursor();
+			double change = 0;
+			for (int id = from; id < to; id++) {
+				if (degrees[id] < 0) {
+					next[id] = 0;
+					continue;
+				}
+				double sum = 0;
+				friends.reset(id);
+				for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+					sum += shares[friend];
+				}
+				next[id] = base + damping * sum;
+				change += Math.abs(next[id] - ranks[id]);
+			}
+			return change;
+		}
+	}
+
+	/**
+	 * Runs Brandes from sampled sources, in batches split over the pool.
+	 */
+	private double[] betweenness(int samples, long seed, ForkJoinPool pool) {
+		int[] sources = new int[graph.order()];
+		int order = 0;
+		for (int id = 0; id < bound && order < sources.length; id++) {
+			if (graph.getNodeById(id) != null) {
+				sources[order++] = id;
+			}
+		}
+		if (samples < order) {
+			// Partial shuffle picks samples distinct sources
+			Random random = new Random(seed);
+			for (int i = 0; i < samples; i++) {
+				int j = i + random.nextInt(order - i);
+				int swap = sources[i];
+				sources[i] = sources[j];
+				sources[j] = swap;
+			}
+		} else {
+			samples = order;
+		}
+		double[] scores = new double[bound];
+		if (samples == 0) {
+			return scores;
+		}
+		// A few batches per thread balance the load, and each thread keeps one
+		// workspace for all of its batches
+		int grain = Math.max(1, samples / (4 * pool.getParallelism()));
+		List<Workspace> workspaces = new ArrayList<Workspace>();
+		ThreadLocal<Workspace> local = ThreadLocal.withInitial(() -> {
+			Workspace workspace = new Workspace();
+			synchronized (workspaces) {
+				workspaces.add(workspace);
+			}
+			return workspace;
+		});
+		pool.invoke(new Brandes(sources, 0, samples, grain, local));
+		// Each unordered pair was counted from both ends
+		double scale = (double) order / samples / 2;
+		synchronized (workspaces) {
+			for (Workspace workspace : workspaces) {
+				for (int id = 0; id < bound; id++) {
+					scores[id] += workspace.scores[id];
+				}
+			}
+		}
+		for (int id = 0; id < bound; id++) {
+			scores[id] *= scale;
+		}
+		return scores;
+	}
+
+	/**
+	 * Search state of one thread, with dependencies summed over its sources.
+	 */
+	private class Workspace {
+		final double[] scores = new double[bound];
+		final int[] distances = new int[bound];
+		final double[] paths = new double[bound]; // shortest paths from source
+		final double[] dependencies = new double[bound];
+		final int[] order = new int[bound]; // nodes in order of distance
+		final NeighborCursor friends = graph.newNeighborCursor();
+
+		Workspace() {
+			Arrays.fill(distances, -1);
+		}
+
+		/**
+		 * Adds dependencies of every node on source.
+		 */
+		void accumulate(int source) {
+			distances[source] = 0;
+			paths[source] = 1;
+			order[0] = source;
+			int tail = 1;
+			for (int head = 0; head < tail; head++) {
+				int current = order[head];
+				friends.reset(current);
+				for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+					if (distances[friend] < 0) {
+						distances[friend] = distances[current] + 1;
+						order[tail++] = friend;
+					}
+					if (distances[friend] == distances[current] + 1) {
+						paths[friend] += paths[current];
+					}
+				}
+			}
+			// Sum dependencies back from the farthest nodes
+			for (int i = tail - 1; i > 0; i--) {
+				int current = order[i];
+				double share = (1 + dependencies[current]) / paths[current];
+				friends.reset(current);
+				for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+					if (distances[friend] == distances[current] - 1) {
+						dependencies[friend] += paths[friend] * share;
+					}
+				}
+				scores[current] += dependencies[current];
+			}
+			// Reset only the nodes reached
+			for (int i = 0; i < tail; i++) {
+				int id = order[i];
+				distances[id] = -1;
+				paths[id] = 0;
+				dependencies[id] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Brandes accumulation from a range of sources.
+	 */
+	private class Brandes extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int[] sources;
+		private final int from;
+		private final int to;
+		private final int grain;
+		private final ThreadLocal<Workspace> local;
+
+		Brandes(int[] sources, int from, int to, int grain, ThreadLocal<Workspace> local) {
+			this.sources = sources;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.local = local;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Brandes(sources, from, middle, grain, local),
+						new Brandes(sources, middle, to, grain, local));
+				return;
+			}
+			Workspace workspace = local.get();
+			for (int s = from; s < to; s++) {
+				workspace.accumulate(sources[s]);
+			}
+		}
+	}
+}
@@ -0,0 +1,640 @@
+/*
+ * File: CommandCompactor.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the compaction of command files used by
+ * SocialNetwork.java, which rewrites a file as the fewest commands building
+ * the same network.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Rewrites a command file, in the format read by SocialNetwork.runAction(), as
+ * the fewest commands which build the same network: "a user1 user2" for each
+ * friendship of the final network, "a user" for each final user without
+ * friends, and "s user" if the last active user is still in the network.
+ * 
+ * Commands are numbered in file order, and the network at the end follows
+ * from the last numbers alone: a user is in it if the last command adding it,
+ * "a user" or a friendship naming it, comes after the last "r user", and a
+ * friendship is in it if its last add comes after its last removal and after
+ * the last removal of either user. The compactor therefore reduces the file to
+ * the last add and last removal of each user and each friendship, and then
+ * joins friendships with the removals of their users, in these passes:
+ * 
+ * <pre>
+ * 1. read file, gathering users and friendships, each by name
+ * 2. join friendships with the users they name first, keeping those added
+ *    since, now by the user they name second
+ * 3. join those with the users they name second, writing the friendships
+ *    added since and gathering both of their users
+ * 4. join users with the users of friendships written, writing the others
+ *    which are in the network
+ * </pre>
+ * 
+ * Each gathering is an external sort, in an order of names of its own: up to
+ * a given number of entries are combined in a hash table, which is sorted and
+ * spilled to a run file once full, and runs are merged, combining entries for
+ * the same key, FAN_IN at a time. Memory use is thus bounded by the table, not
+ * by the file, so files larger than memory can be compacted. A file the loader
+ * would reject is rejected with the same ParseException. As only the last "s"
+ * is kept, a file which would fail to load at an "s" naming a user not in the
+ * network at the time is not rejected.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class CommandCompactor {
+
+	static final int ENTRIES = 1 << 18; // entries each sort keeps in memory, by default
+	private static final int FAN_IN = 64; // runs merged at a time
+	private static final int BUFFER_SIZE = 1 << 16; // bytes buffered per run file
+
+	private final Path temporary; // directory of run files
+	private final int entries;
+	private long runs; // run files created, to name the next one
+
+	/**
+	 * Constructor for compactor spilling to given directory.
+	 */
+	private CommandCompactor(Path temporary, int entries) {
+		this.temporary = temporary;
+		this.entries = entries;
+	}
+
+	/**
+	 * Compacts a command file.
+	 * 
+	 * @param input   file of commands
+	 * @param output  file to write, which may be input itself, replaced only
+	 *                once compaction is complete
+	 * @param entries most users or friendships each sort holds in memory
+	 * @return number of commands written
+	 * @throws IOException    if a file cannot be read or written
+	 * @throws ParseException at first malformed line, writing nothing
+	 */
+	static long compact(Path input, Path output, int entries) throws IOException, ParseException {
+		Path parent = output.toAbsolutePath().getParent();
+		Path temporary = Files.createTempDirectory(parent, output.getFileName() + ".compact");
+		try {
+			return new CommandCompactor(temporary, entries).run(input, output);
+		} finally {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(temporary)) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(temporary);
+		}
+	}
+
+	/**
+	 * Compacts the command file named by the first argument into the file named
+	 * by the second.
+	 * 
+	 * @param args input and output file
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java application.CommandCompactor input output");
+			System.exit(2);
+		}
+		try {
+			long written = compact(Paths.get(args[0]), Paths.get(args[1]), ENTRIES);
+			System.out.println(written + " commands written.");
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs the passes.
+	 */
+	private long run(Path input, Path output) throws IOException, ParseException {
+		try (Sort users = new Sort(); Sort friendships = new Sort(); Sort bySecond = new Sort();
+				Sort linked = new Sort()) {
+			String active = read(input, users, friendships);
+
+			// Friendships added since their first user was last removed
+			try (Cursor user = users.sorted(); Cursor friendship = friendships.sorted()) {
+				Entry u = user.next();
+				for (Entry f = friendship.next(); f != null; f = friendship.next()) {
+					while (u != null && u.compareFirst(f) < 0) {
+						u = user.next();
+					}
+					long removed = u != null && u.first.equals(f.first) ? u.removed : -1;
+					if (f.added > f.removed && f.added > removed) {
+						bySecond.add(new Entry(f.second, f.first, f.added, -1));
+					}
+				}
+			}
+
+			long written = 0;
+			Path compacted = temporary.resolve("compacted");
+			try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+				// Of those, friendships added since their second user was last removed
+				try (Cursor user = users.sorted(); Cursor friendship = bySecond.sorted()) {
+					Entry u = user.next();
+					for (Entry f = friendship.next(); f != null; f = friendship.next()) {
+						while (u != null && u.compareFirst(f) < 0) {
+							u = user.next();
+						}
+						long removed = u != null && u.first.equals(f.first) ? u.removed : -1;
+						if (f.added > removed) {
+							write(out, f.second, f.first);
+							++written;
+							linked.add(new Entry(f.first, null, 0, -1));
+							linked.add(new Entry(f.second, null, 0, -1));
+						}
+					}
+				}
+
+				// Users in the network, but with no friendship to add them
+				boolean activeKept = false;
+				try (Cursor user = users.sorted(); Cursor friend = linked.sorted()) {
+					Entry l = friend.next();
+					for (Entry u = user.next(); u != null; u = user.next()) {
+						while (l != null && l.compareFirst(u) < 0) {
+							l = friend.next();
+						}
+						if (u.added > u.removed) {
+							if (l == null || !l.first.equals(u.first)) {
+								write(out, u.first, null);
+								++written;
+							}
+							activeKept |= u.first.equals(active);
+						}
+					}
+				}
+				if (activeKept) {
+					out.write("s ");
+					out.write(active);
+					out.write('\n');
+					++written;
+				}
+			}
+			try {
+				Files.move(compacted, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(compacted, output, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return written;
+		}
+	}
+
+	/**
+	 * Reads command file, gathering last add and removal of each user and
+	 * friendship.
+	 * 
+	 * @return user named by last "s", or null if none
+	 */
+	private String read(Path input, Sort users, Sort friendships) throws IOException, ParseException {
+		String active = null;
+		long number = 0; // number of next command
+		try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long start = 0;
+			long lines = 0;
+			while (start < size) {
+				long end = ParallelLoader.lineEnd(channel, Math.min(size, start + ParallelLoader.CHUNK_SIZE), size);
+				if (end - start > Integer.MAX_VALUE - 8) {
+					throw new IOException("Line too long to load.");
+				}
+				CommandLoader.Chunk chunk = ParallelLoader.parse(channel, start, (int) (end - start));
+				for (int i = 0; i < chunk.count(); i++, number++) {
+					String user1 = chunk.user1(i);
+					String user2 = chunk.user2(i);
+					if (chunk.action(i) == 's') {
+						active = user1;
+					} else if (chunk.action(i) == 'a') {
+						users.add(new Entry(user1, null, number, -1));
+						if (user2 != null && !user2.equals(user1)) {
+							users.add(new Entry(user2, null, number, -1));
+							friendships.add(friendship(user1, user2, number, -1));
+						}
+					} else if (user2 == null) {
+						users.add(new Entry(user1, null, -1, number));
+					} else if (!user2.equals(user1)) {
+						friendships.add(friendship(user1, user2, -1, number));
+					}
+				}
+				ParseException error = chunk.error(lines);
+				if (error != null) {
+					throw error;
+				}
+				lines += chunk.lines();
+				start = end;
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * Builds entry for friendship, naming its users in order.
+	 */
+	private static Entry friendship(String user1, String user2, long added, long removed) {
+		return user1.compareTo(user2) < 0 ? new Entry(user1, user2, added, removed)
+				: new Entry(user2, user1, added, removed);
+	}
+
+	/**
+	 * Writes "a user1 user2", or "a user1" if user2 is null.
+	 */
+	private static void write(BufferedWriter out, String user1, String user2) throws IOException {
+		out.write("a ");
+		out.write(user1);
+		if (user2 != null) {
+			out.write(' ');
+			out.write(user2);
+		}
+		out.write('\n');
+	}
+
+	/**
+	 * User, or friendship of two users, with the numbers of the last commands
+	 * adding and removing it, -1 if none. Entries are ordered by the hashes of
+	 * their names before the names themselves, which are only compared on equal
+	 * hashes, as a sort comparing names would spend most of its time fetching
+	 * them from memory. Any order serves for joining, as long as every sort uses
+	 * the same one.
+	 */
+	private static class Entry implements Comparable<Entry> {
+		final String first; // user, or user of friendship first in order
+		final String second; // other user of friendship, null for a user
+		private final int hash1; // hash of first
+		private final int hash2; // hash of second, 0 if null
+		long added;
+		long removed;
+
+		Entry(String first, String second, long added, long removed) {
+			this.first = first;
+			this.second = second;
+			this.hash1 = first.hashCode();
+			this.hash2 = second == null ? 0 : second.hashCode();
+			this.added = added;
+			this.removed = removed;
+		}
+
+		/**
+		 * Compares first users of entries.
+		 * 
+		 * @param other entry
+		 * @return negative, zero or positive as first user of this entry comes
+		 *         before, with or after that of other
+		 */
+		int compareFirst(Entry other) {
+			int order = Integer.compare(hash1, other.hash1);
+			return order != 0 ? order : first.compareTo(other.first);
+		}
+
+		/**
+		 * Combines entry for the same key, keeping the last of each command.
+		 */
+		void combine(Entry other) {
+			added = Math.max(added, other.added);
+			removed = Math.max(removed, other.removed);
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int order = compareFirst(other);
+			if (order != 0 || second == other.second) {
+				return order;
+			} else if (second == null || other.second == null) {
+				return second == null ? -1 : 1;
+			}
+			order = Integer.compare(hash2, other.hash2);
+			return order != 0 ? order : second.compareTo(other.second);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Entry && first.equals(((Entry) other).first)
+					&& Objects.equals(second, ((Entry) other).second);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * hash1 + hash2;
+		}
+	}
+
+	/**
+	 * Entries in order, each key once.
+	 */
+	private interface Cursor extends Closeable {
+
+		/**
+		 * Gets next entry.
+		 * 
+		 * @return entry, or null once all have been given
+		 */
+		Entry next() throws IOException;
+	}
+
+	/**
+	 * External sort of entries, combining entries for the same key.
+	 */
+	private class Sort implements Closeable {
+		private final HashMap<Entry, Entry> table = new HashMap<Entry, Entry>();
+		private final List<Path> files = new ArrayList<Path>(); // sorted runs
+		private Entry[] sorted; // entries of table in order, once sorted, if none were spilled
+
+		/**
+		 * Adds entry, spilling table to a run once it is full.
+		 */
+		void add(Entry entry) throws IOException {
+			sorted = null;
+			Entry old = table.putIfAbsent(entry, entry);
+			if (old != null) {
+				old.combine(entry);
+			} else if (table.size() >= entries) {
+				spill();
+			}
+		}
+
+		/**
+		 * Gets entries added so far in order. May be called more than once.
+		 * 
+		 * @return cursor over entries, to be closed
+		 */
+		Cursor sorted() throws IOException {
+			if (files.isEmpty()) {
+				if (sorted == null) {
+					sorted = table.keySet().toArray(new Entry[0]);
+					Arrays.sort(sorted);
+				}
+				return new ArrayCursor(sorted);
+			}
+			if (!table.isEmpty()) {
+				spill();
+			}
+			// Merge runs into longer ones until they can be merged at once
+			while (files.size() > FAN_IN) {
+				List<Path> group = new ArrayList<Path>(files.subList(0, FAN_IN));
+				files.subList(0, FAN_IN).clear();
+				Path merged = newRun();
+				try (Cursor cursor = merge(group); RunWriter out = new RunWriter(merged)) {
+					for (Entry entry = cursor.next(); entry != null; entry = cursor.next()) {
+						out.write(entry);
+					}
+				}
+				for (Path file : group) {
+					Files.delete(file);
+				}
+				files.add(merged);
+			}
+			return merge(files);
+		}
+
+		/**
+		 * Writes table to a run, in order.
+		 */
+		private void spill() throws IOException {
+			Entry[] run = table.keySet().toArray(new Entry[0]);
+			table.clear();
+			sorted = null;
+			Arrays.sort(run);
+			Path file = newRun();
+			try (RunWriter out = new RunWriter(file)) {
+				for (Entry entry : run) {
+					out.write(entry);
+				}
+			}
+			files.add(file);
+		}
+
+		/**
+		 * Opens cursor combining given runs.
+		 */
+		private Cursor merge(List<Path> group) throws IOException {
+			List<Cursor> cursors = new ArrayList<Cursor>(group.size());
+			try {
+				for (Path file : group) {
+					cursors.add(new RunCursor(file));
+				}
+			} catch (IOException e) {
+				for (Cursor cursor : cursors) {
+					cursor.close();
+				}
+				throw e;
+			}
+			return new MergeCursor(cursors);
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+			files.clear();
+			table.clear();
+			sorted = null;
+		}
+	}
+
+	/**
+	 * Names new run file.
+	 */
+	private Path newRun() {
+		return temporary.resolve("run-" + runs++);
+	}
+
+	/**
+	 * Cursor over a sorted array.
+	 */
+	private static class ArrayCursor implements Cursor {
+		private final Entry[] sorted;
+		private int next;
+
+		ArrayCursor(Entry[] sorted) {
+			this.sorted = sorted;
+		}
+
+		@Override
+		public Entry next() {
+			return next < sorted.length ? sorted[next++] : null;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * Cursor merging sorted cursors, combining entries for the same key.
+	 */
+	private static class MergeCursor implements Cursor {
+		private final List<Cursor> cursors;
+		private final PriorityQueue<Head> heads;
+
+		MergeCursor(List<Cursor> cursors) throws IOException {
+			this.cursors = cursors;
+			this.heads = new PriorityQueue<Head>(Math.max(1, cursors.size()));
+			for (Cursor cursor : cursors) {
+				Entry entry = cursor.next();
+				if (entry != null) {
+					heads.add(new Head(entry, cursor));
+				}
+			}
+		}
+
+		@Override
+		public Entry next() throws IOException {
+			Head head = heads.poll();
+			if (head == null) {
+				return null;
+			}
+			Entry entry = head.entry;
+			advance(head);
+			while (!heads.isEmpty() && heads.peek().entry.equals(entry)) {
+				Head same = heads.poll();
+				entry.combine(same.entry);
+				advance(same);
+			}
+			return entry;
+		}
+
+		/**
+		 * Moves head to the next entry of its cursor, if any.
+		 */
+		private void advance(Head head) throws IOException {
+			Entry next = head.cursor.next();
+			if (next != null) {
+				head.entry = next;
+				heads.add(head);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (Cursor cursor : cursors) {
+				cursor.close();
+			}
+		}
+
+		/**
+		 * Next entry of one cursor.
+		 */
+		private static class Head implements Comparable<Head> {
+			Entry entry;
+			final Cursor cursor;
+
+			Head(Entry entry, Cursor cursor) {
+				this.entry = entry;
+				this.cursor = cursor;
+			}
+
+			@Override
+			public int compareTo(Head other) {
+				return entry.compareTo(other.entry);
+			}
+		}
+	}
+
+	/**
+	 * Writing of a run file: for each entry, its names as a length and UTF-8
+	 * bytes, length -1 for no second name, and its command numbers.
+	 */
+	private static class RunWriter implements Closeable {
+		private final DataOutputStream out;
+
+		RunWriter(Path file) throws IOException {
+			this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+		}
+
+		void write(Entry entry) throws IOException {
+			writeName(entry.first);
+			writeName(entry.second);
+			out.writeLong(entry.added);
+			out.writeLong(entry.removed);
+		}
+
+		private void writeName(String name) throws IOException {
+			if (name == null) {
+				out.writeInt(-1);
+			} else {
+				byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	/**
+	 * Cursor reading a run file.
+	 */
+	private static class RunCursor implements Cursor {
+		private final DataInputStream in;
+
+		RunCursor(Path file) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+		}
+
+		@Override
+		public Entry next() throws IOException {
+			int length;
+			try {
+				length = in.readInt();
+			} catch (EOFException e) {
+				return null;
+			}
+			String first = readName(length);
+			String second = readName(in.readInt());
+			return new Entry(first, second, in.readLong(), in.readLong());
+		}
+
+		private String readName(int length) throws IOException {
+			if (length < 0) {
+				return null;
+			}
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * File: CommandCompactorTest.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the tests of the command file compaction done by
+ * CommandCompactor.java.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a compacted command file builds the same network as the whole
+ * file, whether or not its sorts spill runs to disk.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class CommandCompactorTest {
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * Compacting with room for only a few entries per sort, so that every sort
+	 * spills and merges runs, writes the same file as compacting in memory, and
+	 * loading it gives the network the full file builds.
+	 */
+	@Test
+	void spilledCompactionEqualsFullReplay() throws IOException, ParseException {
+		Random random = new Random(25);
+		for (int round = 0; round < 20; round++) {
+			Path input = directory.resolve("commands.txt");
+			SocialNetwork replayed = new SocialNetwork();
+			String commands = churn(random, replayed, 20 + random.nextInt(40), 2000);
+			Files.write(input, commands.getBytes(StandardCharsets.UTF_8));
+			Path spilled = directory.resolve("spilled.txt");
+			Path sorted = directory.resolve("sorted.txt");
+
+			long written = SocialNetwork.compactCommands(input, spilled, 2);
+			SocialNetwork.compactCommands(input, sorted);
+			assertArrayEquals(Files.readAllBytes(sorted), Files.readAllBytes(spilled), "round " + round);
+
+			SocialNetwork compacted = new SocialNetwork();
+			assertEquals(written, compacted.loadCommands(spilled));
+			assertEquals(TestNetworks.state(replayed), TestNetworks.state(compacted), "round " + round);
+		}
+	}
+
+	/**
+	 * Compacting a file in place replaces it only once compaction is done.
+	 */
+	@Test
+	void compactsInPlace() throws IOException, ParseException {
+		Path input = directory.resolve("commands.txt");
+		SocialNetwork replayed = new SocialNetwork();
+		Files.write(input, churn(new Random(7), replayed, 30, 1000).getBytes(StandardCharsets.UTF_8));
+
+		SocialNetwork.compactCommands(input, input, 3);
+		SocialNetwork compacted = new SocialNetwork();
+		compacted.loadCommands(input);
+		assertEquals(TestNetworks.state(replayed), TestNetworks.state(compacted));
+	}
+
+	/**
+	 * A malformed line is rejected as the loader would, and nothing is written.
+	 */
+	@Test
+	void rejectsMalformedFile() throws IOException {
+		Path input = directory.resolve("commands.txt");
+		Path output = directory.resolve("compacted.txt");
+		Files.write(input, "a x y\nq z\n".getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(ParseException.class, () -> SocialNetwork.compactCommands(input, output, 2));
+		assertFalse(Files.exists(output));
+	}
+
+	/**
+	 * Builds a file of random commands with users and friendships added and
+	 * removed again, running each on given network.
+	 * 
+	 * @param random   to draw commands from
+	 * @param network  to run commands on
+	 * @param users    number of distinct users
+	 * @param commands number of commands
+	 * @return text of file
+	 */
+	private static String churn(Random random, SocialNetwork network, int users, int commands)
+			throws ParseException {
+		StringBuilder file = new StringBuilder();
+		for (int i = 0; i < commands; i++) {
+			String user1 = (random.nextInt(8) == 0 ? "\u00fc" : "u") + random.nextInt(users);
+			String user2 = "u" + random.nextInt(users);
+			int kind = random.nextInt(10);
+			String command;
+			if (kind < 4) {
+				command = "a " + user1 + " " + user2;
+			} else if (kind < 5) {
+				command = "a " + user1;
+			} else if (kind < 7) {
+				command = "r " + user1 + " " + user2;
+			} else if (kind < 8) {
+				command = "r " + user1;
+			} else if (kind < 9 || !network.getGraph().contains(user1)) {
+				command = "";
+			} else {
+				command = "s " + user1;
+			}
+			network.runAction(command);
+			file.append(command).append('\n');
+		}
+		return file.toString();
+	}
+}
@@ -0,0 +1,498 @@
+/*
+ * File: CommandLoader.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the streaming parser used by SocialNetwork.java to run
+ * command files.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a file of commands against a SocialNetwork as it is read, one line per
+ * command:
+ * 
+ * <pre>
+ * a user          add user
+ * a user1 user2   add friendship, adding either user if absent
+ * r user          remove user
+ * r user1 user2   remove friendship
+ * s user          set active user
+ * </pre>
+ * 
+ * The file is read through a channel into one byte buffer, which is only grown
+ * for a line longer than it, and each line is split into tokens in place by
+ * hand, so memory use does not grow with the file. Names are decoded from UTF-8
+ * as they are met; an ASCII name is first looked up in a small table of names
+ * recently decoded, so the names of active users are not decoded over and
+ * over.
+ * 
+ * Runs of commands of one kind are gathered and applied through the batch
+ * methods of SocialNetwork, which have the same effect as applying them one at
+ * a time. A run of friendships is applied as a batch once it holds MIN_BATCH
+ * commands, as shorter runs do not pay for sorting, and one command at a time
+ * otherwise. A run ends at a command of another kind, once it holds BATCH
+ * commands, and before an error is reported, so every command before a bad
+ * line has been applied when it is.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class CommandLoader {
+
+	static final int BUFFER_SIZE = 1 << 16; // bytes read at a time
+	static final int BATCH = 4096; // most commands a run gathers
+	static final int MIN_BATCH = 64; // fewest friendships applied as a batch
+	private static final int CACHE_SIZE = 1 << 12; // names kept decoded, a power of two
+
+	private static final int NONE = 0; // kinds of gathered command
+	private static final int ADD_USER = 1;
+	private static final int ADD_FRIENDS = 2;
+	private static final int REMOVE_FRIENDS = 3;
+
+	private final SocialNetwork network; // network to change, null when only parsing
+	private final Chunk parsed; // commands parsed, when only parsing
+	private byte[] buffer;
+	private final int[] tokens; // start and end of each token of the current line
+	private final String[] cache; // names recently decoded, by hash of their bytes
+	private long line; // number of current line, from 1
+	private long commands; // commands run
+
+	private int kind; // kind of gathered commands
+	private final List<String> users; // gathered users to add
+	private String[] pairs; // gathered friendships to add or remove
+	private int pending; // names in pairs
+
+	/**
+	 * Constructor for loader running commands against given network.
+	 * 
+	 * @param network to change
+	 */
+	CommandLoader(SocialNetwork network) {
+		this(network, null);
+	}
+
+	/**
+	 * Constructor for loader which only parses commands, recording them in
+	 * given chunk to be applied later by apply(Chunk, long).
+	 * 
+	 * @param parsed to record commands in
+	 */
+	CommandLoader(Chunk parsed) {
+		this(null, parsed);
+	}
+
+	/**
+	 * Constructor used by the others
+	 */
+	private CommandLoader(SocialNetwork network, Chunk parsed) {
+		this.network = network;
+		this.parsed = parsed;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.tokens = new int[6];
+		this.cache = new String[CACHE_SIZE];
+		this.users = new ArrayList<String>();
+		this.pairs = new String[2 * BATCH];
+	}
+
+	/**
+	 * Runs every command read from channel.
+	 * 
+	 * @param channel to read, up to its end
+	 * @return number of commands run
+	 * @throws IOException    if channel cannot be read
+	 * @throws ParseException at first malformed line, once every earlier command
+	 *                        has been run
+	 */
+	long load(ReadableByteChannel channel) throws IOException, ParseException {
+		ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+		int length = 0; // bytes held, from start of buffer
+		boolean end = false;
+		while (!end) {
+			int read = channel.read(wrapper);
+			if (read < 0) {
+				end = true;
+			} else {
+				length += read;
+				if (length < buffer.length) {
+					continue; // fill buffer before scanning it
+				}
+			}
+			// Run each whole line, keeping a partial last line for the next read
+			int consumed = end ? run(buffer, 0, length, true) : run(buffer, 0, length, false);
+			length -= consumed;
+			System.arraycopy(buffer, consumed, buffer, 0, length);
+			if (length == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2); // line longer than buffer
+			}
+			wrapper = ByteBuffer.wrap(buffer);
+			wrapper.position(length);
+		}
+		flush();
+		return commands;
+	}
+
+	/**
+	 * Parses every line held in an array into the chunk given to the
+	 * constructor, stopping at the first malformed line, which is recorded in
+	 * the chunk rather than thrown.
+	 * 
+	 * @param bytes  of whole lines
+	 * @param length number of bytes held
+	 */
+	void parse(byte[] bytes, int length) {
+		try {
+			run(bytes, 0, length, true);
+		} catch (ParseException e) {
+			// Recorded by error(), to be reported once earlier chunks are applied
+		}
+		parsed.lines = line;
+	}
+
+	/**
+	 * Runs the commands of a parsed chunk, gathering them as if they had been
+	 * read here.
+	 * 
+	 * @param chunk       of commands, parsed in order
+	 * @param linesBefore number of lines in file before chunk
+	 * @throws ParseException if chunk ended at a malformed line, once every
+	 *                        earlier command has been run
+	 */
+	void apply(Chunk chunk, long linesBefore) throws ParseException {
+		for (int i = 0; i < chunk.count; i++) {
+			apply(chunk.actions[i], chunk.names[2 * i], chunk.names[2 * i + 1]);
+		}
+		if (chunk.message != null) {
+			flush();
+			throw chunk.error(linesBefore);
+		}
+	}
+
+	/**
+	 * Applies gathered commands, which must be done once the last command has
+	 * been given to apply(Chunk, long).
+	 * 
+	 * @return number of commands run
+	 */
+	long finish() {
+		flush();
+		return commands;
+	}
+
+	/**
+	 * Runs each whole line of given bytes.
+	 * 
+	 * @param last true if bytes end the file, so a final line without a line
+	 *             break is whole
+	 * @return number of bytes used, up to the start of a partial last line
+	 */
+	private int run(byte[] bytes, int from, int to, boolean last) throws ParseException {
+		int start = from;
+		for (int i = from; i < to; i++) {
+			byte b = bytes[i];
+			// A lone carriage return also ends a line, as with BufferedReader
+			if (b == '\n' || b == '\r') {
+				if (b == '\r' && i + 1 == to && !last) {
+					break; // keep line until it is known if a line feed follows
+				}
+				++line;
+				command(bytes, start, i);
+				if (b == '\r' && i + 1 < to && bytes[i + 1] == '\n') {
+					++i;
+				}
+				start = i + 1;
+			}
+		}
+		if (last && start < to) {
+			++line;
+			command(bytes, start, to);
+			start = to;
+		}
+		return start - from;
+	}
+
+	/**
+	 * Splits a line into tokens and runs it.
+	 */
+	private void command(byte[] bytes, int from, int to) throws ParseException {
+		int count = 0;
+		int i = from;
+		while (true) {
+			while (i < to && isWhitespace(bytes[i])) {
+				++i;
+			}
+			if (i == to) {
+				break;
+			}
+			if (count == 3) {
+				throw error("Too many arguments.");
+			}
+			tokens[2 * count] = i;
+			while (i < to && !isWhitespace(bytes[i])) {
+				++i;
+			}
+			tokens[2 * count + 1] = i;
+			++count;
+		}
+		if (count == 0) {
+			return; // blank line
+		}
+		int action = tokens[1] - tokens[0] == 1 ? bytes[tokens[0]] : 0;
+		if (action != 'a' && action != 'r' && action != 's') {
+			throw error("Unknown action.");
+		}
+		if (count == 1) {
+			throw error("No user given.");
+		}
+		if (action == 's' && count == 3) {
+			throw error("s action allows 1 user argument.");
+		}
+		String user1 = name(bytes, tokens[2], tokens[3]);
+		String user2 = count == 3 ? name(bytes, tokens[4], tokens[5]) : null;
+		if (parsed != null) {
+			parsed.add((byte) action, user1, user2);
+		} else {
+			apply(action, user1, user2);
+		}
+	}
+
+	/**
+	 * Runs one well formed command, gathering it with the commands before it if
+	 * they are of the same kind. Besides the actions of a file, replay of a
+	 * MutationLog may give 'c', which clears the network.
+	 * 
+	 * @param action 'a', 'r', 's' or 'c'
+	 * @param user1  first user, null only for 'c'
+	 * @param user2  second user, or null
+	 */
+	void apply(int action, String user1, String user2) {
+		if (action == 'a' && user2 == null) {
+			gather(ADD_USER);
+			users.add(user1);
+		} else if (action == 'a') {
+			gather(ADD_FRIENDS);
+			pairs[pending++] = user1;
+			pairs[pending++] = user2;
+		} else if (action == 'r' && user2 != null) {
+			gather(REMOVE_FRIENDS);
+			pairs[pending++] = user1;
+			pairs[pending++] = user2;
+		} else {
+			flush();
+			if (action == 'r') {
+				network.removeUser(user1);
+			} else if (action == 's') {
+				network.selectUser(user1);
+			} else {
+				network.clear();
+			}
+		}
+		++commands;
+	}
+
+	/**
+	 * Prepares to gather a command of given kind, applying those gathered first
+	 * if they are of another kind or fill a batch.
+	 */
+	private void gather(int next) {
+		if (kind != next || users.size() == BATCH || pending == pairs.length) {
+			flush();
+		}
+		kind = next;
+	}
+
+	/**
+	 * Applies gathered commands.
+	 */
+	private void flush() {
+		if (kind == ADD_USER) {
+			network.addUsers(users);
+			users.clear();
+		} else if (kind == ADD_FRIENDS || kind == REMOVE_FRIENDS) {
+			if (pending / 2 >= MIN_BATCH) {
+				String[] batch = pending == pairs.length ? pairs : Arrays.copyOf(pairs, pending);
+				if (kind == ADD_FRIENDS) {
+					network.addFriendships(batch);
+				} else {
+					network.removeFriendships(batch);
+				}
+			} else {
+				for (int i = 0; i < pending; i += 2) {
+					if (kind == ADD_FRIENDS) {
+						network.addFriends(pairs[i], pairs[i + 1]);
+					} else {
+						network.removeFriends(pairs[i], pairs[i + 1]);
+					}
+				}
+			}
+			Arrays.fill(pairs, 0, pending, null);
+			pending = 0;
+		}
+		kind = NONE;
+	}
+
+	/**
+	 * Decodes name, reusing a recently decoded copy of an ASCII name.
+	 */
+	private String name(byte[] bytes, int from, int to) {
+		int hash = 0;
+		for (int i = from; i < to; i++) {
+			if (bytes[i] < 0) {
+				return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+			}
+			hash = 31 * hash + bytes[i];
+		}
+		int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+		String cached = cache[slot];
+		if (cached != null && cached.length() == to - from) {
+			int i = 0;
+			while (i < to - from && cached.charAt(i) == bytes[from + i]) {
+				++i;
+			}
+			if (i == to - from) {
+				return cached;
+			}
+		}
+		String name = new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+		cache[slot] = name;
+		return name;
+	}
+
+	/**
+	 * Builds exception for current line, first applying the commands before it.
+	 */
+	private ParseException error(String message) {
+		if (parsed != null) {
+			parsed.errorLine = line;
+			parsed.message = message;
+		} else {
+			flush();
+		}
+		return new ParseException("Line " + line + ": " + message, -1);
+	}
+
+	/**
+	 * Determines if byte is an ASCII whitespace character, as defined by
+	 * Character.isWhitespace().
+	 */
+	static boolean isWhitespace(int b) {
+		return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+	}
+
+	/**
+	 * Commands parsed from a run of whole lines of a file, in order, for
+	 * ParallelLoader and CommandCompactor.
+	 */
+	static class Chunk {
+		private byte[] actions; // action of each command
+		private String[] names; // users of command i at 2 * i and 2 * i + 1, null if absent
+		private int count; // commands parsed
+		private long lines; // lines parsed, including a malformed last line
+		private long errorLine; // line of chunk which is malformed, from 1
+		private String message; // what is wrong with malformed line, null if none
+
+		/**
+		 * Constructor for chunk expecting given number of commands
+		 */
+		Chunk(int expected) {
+			actions = new byte[Math.max(16, expected)];
+			names = new String[2 * actions.length];
+		}
+
+		/**
+		 * Getter for number of lines parsed
+		 * 
+		 * @return lines, including blank lines and a malformed last line
+		 */
+		long lines() {
+			return lines;
+		}
+
+		/**
+		 * Getter for number of commands parsed
+		 * 
+		 * @return commands, not counting a malformed last line
+		 */
+		int count() {
+			return count;
+		}
+
+		/**
+		 * Getter for action of command
+		 * 
+		 * @param i number of command
+		 * @return 'a', 'r' or 's'
+		 */
+		byte action(int i) {
+			return actions[i];
+		}
+
+		/**
+		 * Getter for first user of command
+		 * 
+		 * @param i number of command
+		 * @return name of user
+		 */
+		String user1(int i) {
+			return names[2 * i];
+		}
+
+		/**
+		 * Getter for second user of command
+		 * 
+		 * @param i number of command
+		 * @return name of user, or null if none
+		 */
+		String user2(int i) {
+			return names[2 * i + 1];
+		}
+
+		/**
+		 * Builds exception for malformed last line, if any.
+		 * 
+		 * @param linesBefore number of lines in file before chunk
+		 * @return exception naming line of file, or null if none was malformed
+		 */
+		ParseException error(long linesBefore) {
+			if (message == null) {
+				return null;
+			}
+			return new ParseException("Line " + (linesBefore + errorLine) + ": " + message, -1);
+		}
+
+		/**
+		 * Records a command.
+		 */
+		private void add(byte action, String user1, String user2) {
+			if (count == actions.length) {
+				actions = Arrays.copyOf(actions, count * 2);
+				names = Arrays.copyOf(names, count * 4);
+			}
+			// Hash names now, on the parsing thread, as String caches its hash
+			user1.hashCode();
+			if (user2 != null) {
+				user2.hashCode();
+			}
+			actions[count] = action;
+			names[2 * count] = user1;
+			names[2 * count + 1] = user2;
+			++count;
+		}
+	}
+}
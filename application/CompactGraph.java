@@ -0,0 +1,700 @@
+/*
+ * File: CompactGraph.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides a compact, array based implementation of GraphADT
+ * for very large networks.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implementation of GraphADT which stores the graph in compressed sparse row
+ * (CSR) form. Every node is given an integer id, and the ids of its neighbors
+ * are kept in one contiguous segment of a single shared int array, so an edge
+ * costs two ints instead of two object references plus list and hash entries,
+ * and neighbor scans read consecutive memory.
+ * 
+ * Segments carry some slack so that edges can still be added. A segment which
+ * fills up is moved to the end of the shared array with double the room, and
+ * the array is compacted once the abandoned space outweighs the used space.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+public class CompactGraph implements IndexedGraphADT {
+
+	private static final int MIN_SEGMENT = 2; // room given to a node's first edge
+
+	private PersonTable ids; // name <-> id dictionary
+	private int[] offsets; // start of each node's segment in targets
+	private int[] degrees; // number of neighbors of each node
+	private int[] capacities; // room in each node's segment
+	private int[] targets; // neighbor ids of all nodes, segment by segment
+	private int tail; // end of used part of targets
+	private int garbage; // abandoned slots in targets
+
+	private ArrayList<Person> vertices; // all nodes, in insertion order
+	private int[] positions; // index of each node in vertices
+
+	private int size; // size of graph (number of edges)
+	private int order; // order of graph (number of nodes)
+
+	/*
+	 * Default no-argument constructor
+	 */
+	public CompactGraph() {
+		this(16, 16);
+	}
+
+	/**
+	 * Constructor which preallocates room for a graph of given size.
+	 * 
+	 * @param expectedNodes expected order of graph
+	 * @param expectedEdges expected size of graph
+	 */
+	public CompactGraph(int expectedNodes, int expectedEdges) {
+		if (expectedNodes < 0 || expectedEdges < 0) {
+			throw new IllegalArgumentException("Expected sizes must be non-negative.");
+		}
+		int nodes = Math.max(16, expectedNodes);
+		ids = new PersonTable(nodes);
+		offsets = new int[nodes];
+		degrees = new int[nodes];
+		capacities = new int[nodes];
+		positions = new int[nodes];
+		targets = new int[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16L, 2L * expectedEdges))];
+		vertices = new ArrayList<Person>(nodes);
+	}
+
+	/**
+	 * Adds node to graph
+	 * 
+	 * @param node to add
+	 */
+	public void addNode(Person node) {
+		// Prevents adding null Person
+		if (node == null || node.getName() == null) {
+			throw new IllegalArgumentException("Person is null. Please provide valid input.");
+		}
+		insertNode(node);
+	}
+
+	/**
+	 * Adds edge between people by adding each person to the other's segment.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 */
+	public void addEdge(Person node1, Person node2) {
+		// If either node is null, throw an exception
+		if (node1 == null || node1.getName() == null || node2 == null || node2.getName() == null) {
+			throw new IllegalArgumentException("One or both persons are null. Please provide valid input.");
+		}
+		int id1 = insertNode(node1);
+		int id2 = insertNode(node2);
+		// Checks that nodes are not equal and edge does not already exist
+		if (id1 != id2 && !hasEdge(id1, id2)) {
+			appendNeighbor(id1, id2);
+			appendNeighbor(id2, id1);
+			++this.size;
+		}
+	}
+
+	/**
+	 * Adds edges between pairs of nodes given by id. Batch edges are merged in
+	 * node by node: the segment of each lower end is scanned once to filter out
+	 * edges already present, and each segment is then grown once for all of
+	 * its new edges.
+	 * 
+	 * @param pairs ids, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if edge of pair i was added
+	 */
+	public BitSet addEdges(int[] pairs) {
+		EdgeBatch batch = new EdgeBatch(this, pairs);
+		BitSet added = new BitSet(pairs.length / 2);
+		BitSet fresh = new BitSet(batch.size()); // batch edges not in graph
+		for (int i = 0, end; i < batch.size(); i = end) {
+			// Edges are sorted by lower end, so one scan of its segment serves its run
+			end = batch.runEnd(i);
+			fresh.set(i, end);
+			int from = batch.from(i);
+			for (int j = offsets[from]; j < offsets[from] + degrees[from]; j++) {
+				int edge = batch.find(i, end, targets[j]);
+				if (edge >= 0) {
+					fresh.clear(edge);
+				}
+			}
+		}
+		// Compact first if most of the array is abandoned space, then grow targets
+		// once for every segment which must move
+		if (garbage > tail / 2 && garbage > 1024) {
+			compact(MIN_SEGMENT, false);
+		}
+		EdgeBatch.Degrees growth = batch.degrees(fresh);
+		long moved = 0;
+		for (int i = 0; i < growth.count(); i++) {
+			int node = growth.node(i);
+			if (degrees[node] + growth.added(i) > capacities[node]) {
+				moved += grownCapacity(node, degrees[node] + growth.added(i));
+			}
+		}
+		if (tail + moved > targets.length) {
+			growTargets((int) Math.min(Integer.MAX_VALUE, tail + moved));
+		}
+		for (int i = 0; i < growth.count(); i++) {
+			int node = growth.node(i);
+			if (degrees[node] + growth.added(i) > capacities[node]) {
+				relocate(node, grownCapacity(node, degrees[node] + growth.added(i)));
+			}
+		}
+		for (int i = fresh.nextSetBit(0); i >= 0; i = fresh.nextSetBit(i + 1)) {
+			int from = batch.from(i);
+			int to = batch.to(i);
+			targets[offsets[from] + degrees[from]++] = to;
+			targets[offsets[to] + degrees[to]++] = from;
+			++this.size;
+			added.set(batch.firstPair(i));
+		}
+		return added;
+	}
+
+	/**
+	 * Replaces the contents of the graph with a whole network. User i gets id
+	 * i, the segments are laid out back to back from the degrees, exactly as
+	 * trimToSize() leaves them, and each friendship is written straight into
+	 * both segments. The new graph is built aside and only then replaces the
+	 * old one.
+	 * 
+	 * @param names   distinct name of each user, by number
+	 * @param counts  friends numbered above each user
+	 * @param friends friends numbered above each user, user by user
+	 */
+	public void load(String[] names, int[] counts, int[] friends) {
+		BinarySnapshot.check(names, counts, friends);
+		if (2L * friends.length > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Graph has too many edges for a compact graph.");
+		}
+		int count = names.length;
+		PersonTable table = new PersonTable(count);
+		ArrayList<Person> people = new ArrayList<Person>(count);
+		int length = Math.max(16, count);
+		int[] places = new int[length];
+		for (int i = 0; i < count; i++) {
+			Person person = table.intern(names[i]);
+			if (person.getId() != i) {
+				throw new IllegalArgumentException("Names are not distinct. Please provide valid input.");
+			}
+			people.add(person);
+			places[i] = i;
+		}
+		// Degree of each user is its own count plus the times it is listed
+		int[] room = Arrays.copyOf(counts, length);
+		for (int friend : friends) {
+			++room[friend];
+		}
+		int[] starts = new int[length];
+		int next = 0;
+		for (int i = 0; i < count; i++) {
+			starts[i] = next;
+			next += room[i];
+		}
+		int[] filled = new int[length];
+		int[] segments = new int[Math.max(16, next)];
+		next = 0;
+		for (int i = 0; i < count; i++) {
+			for (int end = next + counts[i]; next < end; next++) {
+				int friend = friends[next];
+				segments[starts[i] + filled[i]++] = friend;
+				segments[starts[friend] + filled[friend]++] = i;
+			}
+		}
+		this.ids = table;
+		this.offsets = starts;
+		this.degrees = filled;
+		this.capacities = room;
+		this.targets = segments;
+		this.tail = 2 * friends.length;
+		this.garbage = 0;
+		this.vertices = people;
+		this.positions = places;
+		this.size = friends.length;
+		this.order = count;
+	}
+
+	/**
+	 * Removes edges between pairs of nodes given by id. The segment of each
+	 * lower end is scanned once for all of its batch edges, and the segment of
+	 * each higher end likewise, rather than once per edge.
+	 * 
+	 * @param pairs ids, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if edge of pair i was removed
+	 */
+	public BitSet removeEdges(int[] pairs) {
+		EdgeBatch batch = new EdgeBatch(this, pairs);
+		BitSet removed = new BitSet(pairs.length / 2);
+		long[] reversed = new long[batch.size()]; // higher id << 32 | lower id of each edge removed
+		int count = 0;
+		for (int i = 0, end; i < batch.size(); i = end) {
+			end = batch.runEnd(i);
+			int from = batch.from(i);
+			for (int j = offsets[from]; j < offsets[from] + degrees[from];) {
+				int edge = batch.find(i, end, targets[j]);
+				if (edge >= 0) {
+					reversed[count++] = (long) targets[j] << 32 | from;
+					removed.set(batch.firstPair(edge));
+					targets[j] = targets[offsets[from] + --degrees[from]]; // last neighbor fills slot
+				} else {
+					++j;
+				}
+			}
+		}
+		Arrays.sort(reversed, 0, count);
+		for (int i = 0, end; i < count; i = end) {
+			int to = (int) (reversed[i] >>> 32);
+			end = i + 1;
+			while (end < count && (int) (reversed[end] >>> 32) == to) {
+				++end;
+			}
+			for (int j = offsets[to]; j < offsets[to] + degrees[to];) {
+				if (Arrays.binarySearch(reversed, i, end, (long) to << 32 | targets[j]) >= 0) {
+					targets[j] = targets[offsets[to] + --degrees[to]];
+				} else {
+					++j;
+				}
+			}
+		}
+		this.size -= count;
+		return removed;
+	}
+
+	/**
+	 * Removes edge between two people by removing each person from the other's
+	 * segment.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 */
+	public void removeEdge(Person node1, Person node2) {
+		int id1 = idOf(node1);
+		int id2 = idOf(node2);
+		// Checks that both people are present
+		if (id1 < 0 || id2 < 0) {
+			throw new IllegalArgumentException(
+					"One or both persons are not in the network. Please provide valid input.");
+		}
+		// If edge is present, remove it
+		if (deleteNeighbor(id1, id2)) {
+			deleteNeighbor(id2, id1);
+			--this.size;
+		}
+	}
+
+	/**
+	 * Remove node from graph, along with all edges connecting to node.
+	 * 
+	 * @param node in question
+	 */
+	public void removeNode(Person node) {
+		int id = idOf(node);
+		if (id < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		// Remove node from segment of each of its neighbors
+		int start = offsets[id];
+		for (int i = start + degrees[id] - 1; i >= start; i--) {
+			deleteNeighbor(targets[i], id);
+		}
+		this.size -= degrees[id];
+		// Abandon node's own segment
+		garbage += capacities[id];
+		degrees[id] = 0;
+		capacities[id] = 0;
+		// Swap last vertex into node's position so removal is constant time
+		int position = positions[id];
+		Person last = vertices.remove(vertices.size() - 1);
+		if (position < vertices.size()) {
+			vertices.set(position, last);
+			positions[last.getId()] = position;
+		}
+		ids.remove(node.getName());
+		--this.order;
+	}
+
+	/**
+	 * Gets all neighbors of given person in graph
+	 * 
+	 * @param node in question
+	 * @return set of people adjacent to node
+	 */
+	public Set<Person> getNeighbors(Person node) {
+		int id = idOf(node);
+		if (id < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		HashSet<Person> neighbors = new HashSet<Person>(degrees[id] * 4 / 3 + 1);
+		int start = offsets[id];
+		for (int i = start; i < start + degrees[id]; i++) {
+			neighbors.add(ids.get(targets[i]));
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Gets person with given name
+	 * 
+	 * @param name, name of person
+	 */
+	public Person getNode(String name) {
+		Person person = ids.lookup(name);
+		if (person == null) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		return person;
+	}
+
+	/**
+	 * Gets all nodes in the graph.
+	 * 
+	 * @return Set of Persons in graph
+	 */
+	public Set<Person> getAllNodes() {
+		return new HashSet<Person>(vertices);
+	}
+
+	/**
+	 * Getter for order of graph.
+	 * 
+	 * @return order of graph
+	 */
+	public int order() {
+		return this.order;
+	}
+
+	/**
+	 * Getter for size of graph.
+	 * 
+	 * @return size of graph.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Determines if person with given name is present in graph.
+	 * 
+	 * @param name of person being searched for
+	 * @return true if person is present, false otherwise
+	 */
+	public boolean contains(String name) {
+		return ids.lookup(name) != null;
+	}
+
+	/**
+	 * Gets the interned instance of given person without allocating.
+	 * 
+	 * @param name of person
+	 * @return person in graph with given name, or null if not present
+	 */
+	public Person findNode(String name) {
+		return ids.lookup(name);
+	}
+
+	/**
+	 * Getter for list of all nodes in graph.
+	 * 
+	 * @return list of nodes
+	 */
+	public List<Person> getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Removes all nodes and edges from the graph.
+	 */
+	public void clear() {
+		ids.clear();
+		vertices.clear();
+		Arrays.fill(degrees, 0);
+		Arrays.fill(capacities, 0);
+		tail = 0;
+		garbage = 0;
+		this.size = 0;
+		this.order = 0;
+	}
+
+	/**
+	 * Gets id of person with given name.
+	 * 
+	 * @param name of person
+	 * @return id of person, or -1 if person is not in the graph
+	 */
+	public int idOf(String name) {
+		return ids.idOf(name);
+	}
+
+	/**
+	 * Gets person with given id.
+	 * 
+	 * @param id of person
+	 * @return person, or null if no person has the id
+	 */
+	public Person getNodeById(int id) {
+		return ids.get(id);
+	}
+
+	/**
+	 * Exclusive upper bound on the ids of nodes in the graph.
+	 * 
+	 * @return id bound
+	 */
+	public int idBound() {
+		return ids.bound();
+	}
+
+	/**
+	 * Gets number of neighbors of node with given id.
+	 * 
+	 * @param id of node
+	 * @return degree of node
+	 */
+	public int degree(int id) {
+		return degrees[id];
+	}
+
+	/**
+	 * Copies ids of all neighbors of node into buffer.
+	 * 
+	 * @param id     of node
+	 * @param buffer to copy into, must have room for degree(id) ids
+	 * @return number of ids copied
+	 */
+	public int getNeighborIds(int id, int[] buffer) {
+		System.arraycopy(targets, offsets[id], buffer, 0, degrees[id]);
+		return degrees[id];
+	}
+
+	/**
+	 * Creates a cursor for scanning neighbor ids without allocating.
+	 * 
+	 * @return new cursor
+	 */
+	public NeighborCursor newNeighborCursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Rewrites the adjacency array so that every segment is exactly as long as
+	 * its node's degree, releasing all slack. Useful once a graph is fully
+	 * loaded.
+	 */
+	public void trimToSize() {
+		compact(0, true);
+	}
+
+	/**
+	 * Adds node to graph if not present.
+	 * 
+	 * @param node to add
+	 * @return id of node
+	 */
+	private int insertNode(Person node) {
+		Person person = ids.lookup(node.getName());
+		if (person != null) {
+			return person.getId();
+		}
+		person = ids.intern(node.getName());
+		int id = person.getId();
+		// Grow per-node arrays if new id does not fit
+		if (id >= offsets.length) {
+			int length = Math.max(id + 1, offsets.length * 2);
+			offsets = Arrays.copyOf(offsets, length);
+			degrees = Arrays.copyOf(degrees, length);
+			capacities = Arrays.copyOf(capacities, length);
+			positions = Arrays.copyOf(positions, length);
+		}
+		offsets[id] = tail;
+		degrees[id] = 0;
+		capacities[id] = 0;
+		positions[id] = vertices.size();
+		vertices.add(person);
+		++this.order;
+		return id;
+	}
+
+	/**
+	 * Gets id of given person in this graph.
+	 * 
+	 * @param node in question
+	 * @return id of node, or -1 if node is null or not present
+	 */
+	private int idOf(Person node) {
+		Person person = node == null ? null : ids.resolve(node);
+		return person == null ? -1 : person.getId();
+	}
+
+	/**
+	 * Determines if there is an edge between two nodes, scanning the shorter of
+	 * the two segments.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 * @return true if nodes are adjacent
+	 */
+	public boolean hasEdge(int id1, int id2) {
+		if (degrees[id2] < degrees[id1]) {
+			int swap = id1;
+			id1 = id2;
+			id2 = swap;
+		}
+		int start = offsets[id1];
+		int end = start + degrees[id1];
+		for (int i = start; i < end; i++) {
+			if (targets[i] == id2) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds neighbor to end of node's segment, moving segment if it is full.
+	 */
+	private void appendNeighbor(int id, int neighbor) {
+		reserve(id, degrees[id] + 1);
+		targets[offsets[id] + degrees[id]++] = neighbor;
+	}
+
+	/**
+	 * Makes room in node's segment for given number of neighbors, moving the
+	 * segment to the tail if it is full.
+	 */
+	private void reserve(int id, int needed) {
+		if (needed > capacities[id]) {
+			int capacity = grownCapacity(id, needed);
+			// Compact first if most of the array is abandoned space
+			if (garbage > tail / 2 && garbage > 1024) {
+				compact(MIN_SEGMENT, false);
+			}
+			if (tail + capacity > targets.length) {
+				growTargets(tail + capacity);
+			}
+			relocate(id, capacity);
+		}
+	}
+
+	/**
+	 * Capacity to give node's segment when it must hold given number of
+	 * neighbors, at least double its current capacity.
+	 */
+	private int grownCapacity(int id, int needed) {
+		return Math.max(needed, Math.max(MIN_SEGMENT, capacities[id] * 2));
+	}
+
+	/**
+	 * Moves node's segment to the tail with given capacity. Caller makes sure
+	 * targets has room.
+	 */
+	private void relocate(int id, int capacity) {
+		System.arraycopy(targets, offsets[id], targets, tail, degrees[id]);
+		garbage += capacities[id];
+		offsets[id] = tail;
+		capacities[id] = capacity;
+		tail += capacity;
+	}
+
+	/**
+	 * Removes neighbor from node's segment by moving last neighbor into its slot.
+	 * 
+	 * @return true if neighbor was present
+	 */
+	private boolean deleteNeighbor(int id, int neighbor) {
+		int start = offsets[id];
+		int last = start + degrees[id] - 1;
+		for (int i = start; i <= last; i++) {
+			if (targets[i] == neighbor) {
+				targets[i] = targets[last];
+				--degrees[id];
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Enlarges adjacency array to hold at least given number of slots.
+	 */
+	private void growTargets(int needed) {
+		if (needed < 0 || needed > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Graph has too many edges for a compact graph.");
+		}
+		long length = Math.max((long) needed, targets.length + (targets.length >> 1));
+		targets = Arrays.copyOf(targets, (int) Math.min(Integer.MAX_VALUE - 8, length));
+	}
+
+	/**
+	 * Rewrites all segments contiguously in id order.
+	 * 
+	 * @param slack minimum room to keep in the segment of each node with edges
+	 * @param trim  whether to shrink the array to the packed length
+	 */
+	private void compact(int slack, boolean trim) {
+		int bound = ids.bound();
+		long needed = 0;
+		for (int id = 0; id < bound; id++) {
+			if (degrees[id] > 0) {
+				needed += Math.max(degrees[id], slack);
+			}
+		}
+		if (needed > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Graph has too many edges for a compact graph.");
+		}
+		int[] packed = new int[trim ? (int) Math.max(16, needed) : (int) Math.max(needed, targets.length)];
+		int next = 0;
+		for (int id = 0; id < bound; id++) {
+			int degree = degrees[id];
+			System.arraycopy(targets, offsets[id], packed, next, degree);
+			offsets[id] = next;
+			capacities[id] = degree > 0 ? Math.max(degree, slack) : 0;
+			next += capacities[id];
+		}
+		targets = packed;
+		tail = next;
+		garbage = 0;
+	}
+
+	/**
+	 * Cursor which reads a node's segment of the adjacency array.
+	 */
+	private class Cursor implements NeighborCursor {
+		private int[] segments; // adjacency array at time of reset
+		private int next; // index of next neighbor
+		private int end; // end of segment
+
+		@Override
+		public void reset(int id) {
+			this.segments = targets;
+			this.next = offsets[id];
+			this.end = this.next + degrees[id];
+		}
+
+		@Override
+		public int next() {
+			return this.next < this.end ? this.segments[this.next++] : -1;
+		}
+	}
+}
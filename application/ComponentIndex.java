@@ -0,0 +1,1168 @@
+/*
+ * File: ComponentIndex.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the connected component index kept by SocialNetwork.java
+ * as users and friendships are added and removed.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fully dynamic connectivity over the ids of a graph, after Holm, de
+ * Lichtenberg and Thorup. Every edge reported to the index has a level, at
+ * first 0, and the tree edges of level i or more form a spanning forest F_i of
+ * the edges of level i or more, with F_0 spanning the whole graph. A tree of
+ * F_i holds at most n / 2^i nodes, so there are at most log n levels. Each
+ * forest is stored as Euler tours in treaps, which link, cut and find the tree
+ * of a node in O(log n) expected time, and which know the size of each tree
+ * and whether it holds a node with non-tree edges, or a tree edge, of its own
+ * level.
+ * 
+ * Adding an edge links its ends in F_0 if they are in different trees, and
+ * otherwise records it as a non-tree edge of level 0. Removing a non-tree edge
+ * only drops it. Removing a tree edge of level l cuts it from F_0 to F_l, and
+ * then looks for a replacement from level l down to 0: the tree edges of level
+ * i in the smaller half are moved up to level i + 1, and the non-tree edges of
+ * level i at its nodes are tried in turn, each either reaching the other half
+ * and replacing the cut edge in F_0 to F_i, or moving up to level i + 1. As
+ * levels only rise, each edge is moved at most log n times, so an update takes
+ * O(log^2 n) amortized time, and the number of components, whether two nodes
+ * share one and a listing of all of them never traverse the graph.
+ * 
+ * Changes must be reported by whoever makes them, and changes to any one edge
+ * or node in the order they are made; reports of changes already recorded are
+ * ignored, so the index may lag the graph. Changes made to the graph directly
+ * are only picked up by invalidate(), after which refresh() rebuilds the index
+ * from a snapshot. The index never reads the graph other than to rebuild, so
+ * writers need not hold its lock while they change the graph. The id of a
+ * removed node must not be reused until its removal is reported.
+ * 
+ * Changes to a graph which is not safe for concurrent use are applied as they
+ * are reported, under the index's monitor. Writers to a graph which is safe
+ * for concurrent use instead queue their reports without locking, and the
+ * next query applies them under the monitor, so writers are never held up by
+ * each other's updates or by queries. Once more than BACKLOG reports are
+ * queued, the index is marked stale and rebuilt by the next query instead.
+ * Until first queried, the index is stale and costs writers nothing.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class ComponentIndex {
+
+	private static final int NIL = -1;
+	private static final byte NON_TREE = 1; // node with non-tree edges of its forest's level
+	private static final byte OWN_LEVEL = 2; // arc of tree edge in forest of the edge's own level
+	private static final int BACKLOG = 1 << 18; // queued reports past which the index is rebuilt
+
+	// Kinds of report, kept in the top two bits of a queued report
+	private static final int ADD_NODE = 0;
+	private static final int ADD_EDGE = 1;
+	private static final int REMOVE_EDGE = 2;
+	private static final int REMOVE_NODE = 3;
+
+	private final IndexedGraphADT graph;
+	private final boolean deferred; // true to queue reports, for graphs safe for concurrent use
+	private final ConcurrentLinkedQueue<Long> reports; // kind << 62 | id1 << 31 | id2 of each queued report
+	private final AtomicInteger backlog; // number of queued reports
+	private int count; // number of components
+	private volatile boolean stale; // true if graph changed without being reported
+
+	// Nodes of the graph, by level and id
+	private int[][] vertices; // treap node of each id in each forest, NIL if none
+	private int[][] nonTree; // first non-tree half edge of each level at each id, NIL if none
+	private int[] treeEdges; // first tree half edge at each id, NIL if none
+	private int capacity; // ids covered by arrays
+
+	// Edges, by slot; half edge 2 * e + i is edge e seen from its end ends[2 * e + i]
+	private int[] table; // open addressing table of slot + 1 of each edge, 0 if empty
+	private int[] ends; // lower and higher id of each edge
+	private byte[] levels; // level of each edge
+	private int[] arcs; // arc from lower id in F_0 of tree edges, NIL for non-tree edges
+	private int[] next; // next half edge in list of its end, NIL if last
+	private int[] prev; // previous half edge in list of its end, NIL if first
+	private int edgeCount;
+	private int edgeBound; // slots handed out so far
+	private int freeEdge; // first free slot, chained through next
+
+	// Treap nodes of the Euler tours, each a node of the graph or an arc of an edge
+	private int[] left;
+	private int[] right;
+	private int[] parent;
+	private int[] sizes; // nodes of the graph in subtree
+	private int[] owners; // id of node of the graph, or -h - 1 for arc leaving end of half edge h
+	private int[] mates; // arc of same edge in other direction
+	private int[] ups; // arc from lower id of same edge in next forest up, NIL if none
+	private byte[] flags;
+	private byte[] aggregates; // flags of subtree
+	private int nodeBound; // nodes handed out so far
+	private int freeNode; // first free node, chained through right
+
+	private int splitLeft; // results of split()
+	private int splitRight;
+
+	/**
+	 * Constructor for index of given graph, which is built on first refresh.
+	 * 
+	 * @param graph to index
+	 */
+	ComponentIndex(IndexedGraphADT graph) {
+		this.graph = graph;
+		this.deferred = graph.isConcurrent();
+		this.reports = new ConcurrentLinkedQueue<Long>();
+		this.backlog = new AtomicInteger();
+		reset(0, 0);
+		this.stale = true;
+	}
+
+	/**
+	 * Records that node was added to graph.
+	 * 
+	 * @param id of node
+	 */
+	void addNode(int id) {
+		if (id >= 0) {
+			report(ADD_NODE, id, 0);
+		}
+	}
+
+	/**
+	 * Records that edge was added to graph, adding either node if not yet
+	 * recorded.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 */
+	void addEdge(int id1, int id2) {
+		if (id1 >= 0 && id2 >= 0 && id1 != id2) {
+			report(ADD_EDGE, id1, id2);
+		}
+	}
+
+	/**
+	 * Records that edge was removed from graph.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 */
+	void removeEdge(int id1, int id2) {
+		if (id1 >= 0 && id2 >= 0) {
+			report(REMOVE_EDGE, id1, id2);
+		}
+	}
+
+	/**
+	 * Records that node was removed from graph, along with its edges.
+	 * 
+	 * @param id of node
+	 */
+	void removeNode(int id) {
+		if (id >= 0) {
+			report(REMOVE_NODE, id, 0);
+		}
+	}
+
+	/**
+	 * Applies report at once, or queues it for the next query if graph is safe
+	 * for concurrent use. Nothing is reported while the index is stale.
+	 */
+	private void report(int kind, int id1, int id2) {
+		if (stale) {
+			return; // rebuild will find change
+		}
+		if (!deferred) {
+			synchronized (this) {
+				apply(kind, id1, id2);
+			}
+			return;
+		}
+		reports.add((long) kind << 62 | (long) id1 << 31 | id2);
+		if (backlog.incrementAndGet() > BACKLOG) {
+			stale = true;
+		}
+	}
+
+	/**
+	 * Applies queued reports, in the order they were queued.
+	 */
+	private void drain() {
+		for (Long report = reports.poll(); report != null; report = reports.poll()) {
+			backlog.decrementAndGet();
+			long bits = report;
+			apply((int) (bits >>> 62), (int) (bits >>> 31) & Integer.MAX_VALUE, (int) bits & Integer.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Applies report of given kind.
+	 */
+	private void apply(int kind, int id1, int id2) {
+		if (stale) {
+			return;
+		}
+		if (kind == ADD_NODE) {
+			recordNode(id1);
+		} else if (kind == ADD_EDGE) {
+			recordEdge(id1, id2);
+		} else if (kind == REMOVE_EDGE) {
+			dropEdge(id1, id2);
+		} else {
+			dropNode(id1);
+		}
+	}
+
+	/**
+	 * Records added node.
+	 */
+	private void recordNode(int id) {
+		ensureCapacity(id + 1);
+		if (vertices[0][id] == NIL) {
+			vertices[0][id] = newNode(id);
+			++count;
+		}
+	}
+
+	/**
+	 * Records added edge, adding either node if not yet recorded.
+	 */
+	private void recordEdge(int id1, int id2) {
+		recordNode(id1);
+		recordNode(id2);
+		int low = Math.min(id1, id2);
+		int high = Math.max(id1, id2);
+		if (findEdge(low, high) != NIL) {
+			return;
+		}
+		int edge = newEdge(low, high);
+		if (root(vertices[0][low]) != root(vertices[0][high])) {
+			addTree(edge);
+			--count;
+		} else {
+			addNonTree(edge);
+		}
+	}
+
+	/**
+	 * Records removed edge.
+	 */
+	private void dropEdge(int id1, int id2) {
+		if (id1 >= capacity || id2 >= capacity) {
+			return;
+		}
+		int edge = findEdge(Math.min(id1, id2), Math.max(id1, id2));
+		if (edge != NIL) {
+			removeEdge(edge);
+		}
+	}
+
+	/**
+	 * Records removed node, along with its edges.
+	 */
+	private void dropNode(int id) {
+		if (id >= capacity || vertices[0][id] == NIL) {
+			return;
+		}
+		// Drop non-tree edges first, so that none replaces a tree edge of node
+		for (int level = 0; level < nonTree.length; level++) {
+			while (nonTree[level][id] != NIL) {
+				int edge = nonTree[level][id] >> 1;
+				removeNonTree(edge);
+				freeEdge(edge);
+			}
+		}
+		while (treeEdges[id] != NIL) {
+			removeEdge(treeEdges[id] >> 1);
+		}
+		// Node is now alone in every forest
+		for (int level = 0; level < vertices.length; level++) {
+			if (vertices[level][id] != NIL) {
+				freeNode(vertices[level][id]);
+				vertices[level][id] = NIL;
+			}
+		}
+		--count;
+	}
+
+	/**
+	 * Records that the graph was changed without being reported, dropping the
+	 * index until refresh().
+	 */
+	synchronized void invalidate() {
+		reset(0, 0);
+		stale = true;
+	}
+
+	/**
+	 * Determines if refresh() must rebuild the index before it is used.
+	 * 
+	 * @return true if graph changed without being reported
+	 */
+	boolean isStale() {
+		return stale;
+	}
+
+	/**
+	 * Records that graph was cleared.
+	 */
+	synchronized void clear() {
+		reset(0, 0);
+		reports.clear();
+		backlog.set(0);
+		stale = false;
+	}
+
+	/**
+	 * Gets number of connected components.
+	 * 
+	 * @return number of components
+	 */
+	synchronized int count() {
+		refresh();
+		return count;
+	}
+
+	/**
+	 * Determines if two nodes are in the same component.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 * @return true if both nodes are in graph and connected
+	 */
+	synchronized boolean connected(int id1, int id2) {
+		refresh();
+		if (id1 < 0 || id2 < 0 || id1 >= capacity || id2 >= capacity || vertices[0][id1] == NIL
+				|| vertices[0][id2] == NIL) {
+			return false;
+		}
+		return root(vertices[0][id1]) == root(vertices[0][id2]);
+	}
+
+	/**
+	 * Groups node ids by component, walking the tour of each tree of F_0 once.
+	 * Components are ordered by their lowest id, and the ids of each ascend.
+	 * 
+	 * @return ids of nodes in each component
+	 */
+	synchronized int[][] components() {
+		refresh();
+		int[][] components = new int[count][];
+		int[] slots = new int[capacity]; // component of each id, plus one
+		int[] stack = new int[64];
+		int next = 0;
+		for (int id = 0; id < capacity; id++) {
+			if (vertices[0][id] == NIL || slots[id] != 0) {
+				continue;
+			}
+			int root = root(vertices[0][id]);
+			components[next++] = new int[sizes[root]];
+			int depth = 0;
+			stack[depth++] = root;
+			while (depth > 0) {
+				int node = stack[--depth];
+				if (owners[node] >= 0) {
+					slots[owners[node]] = next;
+				}
+				if (depth + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				if (left[node] != NIL) {
+					stack[depth++] = left[node];
+				}
+				if (right[node] != NIL) {
+					stack[depth++] = right[node];
+				}
+			}
+		}
+		int[] filled = new int[count];
+		for (int id = 0; id < capacity; id++) {
+			if (slots[id] != 0) {
+				int component = slots[id] - 1;
+				components[component][filled[component]++] = id;
+			}
+		}
+		return components;
+	}
+
+	/**
+	 * Rebuilds index from a snapshot of the graph if it changed without being
+	 * reported. Breadth first search trees are taken as F_0, every other edge is
+	 * a non-tree edge of level 0, and each tour is laid out as a treap in one
+	 * pass, so rebuilding takes linear time. Otherwise applies queued reports.
+	 * 
+	 * Changes to a graph which is not safe for concurrent use must not be made
+	 * while the index is rebuilt. Writers to one which is may go on: reports
+	 * are queued again from before the snapshot is taken, and replaying those
+	 * of changes the snapshot already holds leaves the index as it is, as each
+	 * report sets a node or edge present or absent.
+	 */
+	synchronized void refresh() {
+		if (!stale) {
+			drain();
+			return;
+		}
+		reports.clear();
+		backlog.set(0);
+		stale = false;
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			int bound = view.idBound();
+			reset(bound, view.size());
+			// Search trees, with each root as its own parent
+			int[] parents = new int[bound];
+			Arrays.fill(parents, NIL);
+			int[] queue = new int[bound];
+			NeighborCursor friends = view.newNeighborCursor();
+			for (int root = 0; root < bound; root++) {
+				if (parents[root] != NIL || view.getNodeById(root) == null) {
+					continue;
+				}
+				parents[root] = root;
+				queue[0] = root;
+				int tail = 1;
+				for (int head = 0; head < tail; head++) {
+					int id = queue[head];
+					friends.reset(id);
+					for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+						if (parents[friend] == NIL) {
+							parents[friend] = id;
+							queue[tail++] = friend;
+						}
+					}
+				}
+				++count;
+			}
+			// Record edges from their lower end, keeping edge to each parent in queue
+			int[] parentEdges = queue;
+			for (int id = 0; id < bound; id++) {
+				if (parents[id] == NIL) {
+					continue;
+				}
+				if (vertices[0][id] == NIL) {
+					vertices[0][id] = newNode(id);
+				}
+				friends.reset(id);
+				for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+					if (friend < id) {
+						continue;
+					}
+					int edge = newEdge(id, friend);
+					if (parents[friend] == id || parents[id] == friend) {
+						parentEdges[parents[friend] == id ? friend : id] = edge;
+						push(treeEdges, 2 * edge);
+						push(treeEdges, 2 * edge + 1);
+					} else {
+						addNonTree(edge);
+					}
+				}
+			}
+			buildTours(parents, parentEdges);
+		} catch (RuntimeException | Error e) {
+			invalidate();
+			throw e;
+		} finally {
+			graph.release(view);
+		}
+	}
+
+
+	/**
+	 * Lays out the Euler tour of each search tree as a treap.
+	 * 
+	 * @param parents     parent of each node, with each root as its own parent
+	 * @param parentEdges edge to parent of each node other than roots
+	 */
+	private void buildTours(int[] parents, int[] parentEdges) {
+		int bound = parents.length;
+		// Children of each node, grouped by parent
+		int[] starts = new int[bound + 1];
+		for (int id = 0; id < bound; id++) {
+			if (parents[id] != NIL && parents[id] != id) {
+				++starts[parents[id] + 1];
+			}
+		}
+		for (int id = 0; id < bound; id++) {
+			starts[id + 1] += starts[id];
+		}
+		int[] children = new int[starts[bound]];
+		int[] nextChild = Arrays.copyOf(starts, bound);
+		for (int id = 0; id < bound; id++) {
+			if (parents[id] != NIL && parents[id] != id) {
+				children[nextChild[parents[id]]++] = id;
+			}
+		}
+		// Walk each tree depth first, entering and leaving each child by an arc
+		System.arraycopy(starts, 0, nextChild, 0, bound);
+		int[] tour = new int[3 * bound];
+		int[] spine = new int[3 * bound];
+		int[] path = new int[bound]; // nodes from root to the one being walked
+		for (int root = 0; root < bound; root++) {
+			if (parents[root] != root) {
+				continue;
+			}
+			int length = 0;
+			int depth = 0;
+			tour[length++] = vertices[0][root];
+			path[depth++] = root;
+			while (depth > 0) {
+				int id = path[depth - 1];
+				if (nextChild[id] < starts[id + 1]) {
+					int child = children[nextChild[id]++];
+					tour[length++] = arcFrom(parentEdges[child], id);
+					tour[length++] = vertices[0][child];
+					path[depth++] = child;
+				} else if (--depth > 0) {
+					tour[length++] = arcFrom(parentEdges[id], id);
+				}
+			}
+			layOut(tour, length, spine);
+		}
+	}
+
+	/**
+	 * Gets arc in F_0 leaving given end of a tree edge, creating both arcs of
+	 * the edge when first asked.
+	 */
+	private int arcFrom(int edge, int id) {
+		if (arcs[edge] == NIL) {
+			int forward = newNode(-2 * edge - 1);
+			int backward = newNode(-2 * edge - 2);
+			mates[forward] = backward;
+			mates[backward] = forward;
+			flags[forward] = OWN_LEVEL;
+			update(forward);
+			arcs[edge] = forward;
+		}
+		return ends[2 * edge] == id ? arcs[edge] : mates[arcs[edge]];
+	}
+
+	/**
+	 * Builds a treap holding a sequence of lone nodes in order, in linear time,
+	 * keeping the right spine of the treap built so far on a stack.
+	 */
+	private void layOut(int[] tour, int length, int[] spine) {
+		int depth = 0;
+		for (int i = 0; i < length; i++) {
+			int node = tour[i];
+			int last = NIL;
+			while (depth > 0 && above(node, spine[depth - 1])) {
+				last = spine[--depth];
+				update(last);
+			}
+			left[node] = last;
+			if (last != NIL) {
+				parent[last] = node;
+			}
+			if (depth > 0) {
+				right[spine[depth - 1]] = node;
+				parent[node] = spine[depth - 1];
+			}
+			spine[depth++] = node;
+		}
+		while (depth > 0) {
+			update(spine[--depth]);
+		}
+	}
+
+	/**
+	 * Removes an edge, looking for a replacement if it was a tree edge.
+	 */
+	private void removeEdge(int edge) {
+		if (arcs[edge] == NIL) {
+			removeNonTree(edge);
+			freeEdge(edge);
+			return;
+		}
+		int low = ends[2 * edge];
+		int high = ends[2 * edge + 1];
+		int level = levels[edge];
+		removeTree(edge);
+		freeEdge(edge);
+		for (int i = level; i >= 0; i--) {
+			if (replace(low, high, i)) {
+				return;
+			}
+		}
+		++count;
+	}
+
+	/**
+	 * Looks for an edge of given level joining the two trees of its forest that
+	 * hold given nodes, moving the edges of the smaller tree that do not up a
+	 * level.
+	 * 
+	 * @return true if a replacement was found and linked
+	 */
+	private boolean replace(int id1, int id2, int level) {
+		int root1 = root(vertices[level][id1]);
+		int root2 = root(vertices[level][id2]);
+		int small = sizes[root1] <= sizes[root2] ? root1 : root2;
+		// Tree edges move first, so that the non-tree edges moved after them
+		// join nodes connected in the next forest up
+		for (int arc = findFlag(small, OWN_LEVEL); arc != NIL; arc = findFlag(small, OWN_LEVEL)) {
+			int edge = (-owners[arc] - 1) >> 1;
+			setFlag(arc, OWN_LEVEL, false);
+			levels[edge] = (byte) (level + 1);
+			int up = linkTrees(edge, level + 1); // may grow ups
+			ups[arc] = up;
+			setFlag(up, OWN_LEVEL, true);
+		}
+		for (int node = findFlag(small, NON_TREE); node != NIL; node = findFlag(small, NON_TREE)) {
+			int half = nonTree[level][owners[node]];
+			int edge = half >> 1;
+			int other = ends[half ^ 1];
+			removeNonTree(edge);
+			if (root(vertices[level][other]) != small) {
+				addTree(edge);
+				return true;
+			}
+			levels[edge] = (byte) (level + 1);
+			addNonTree(edge);
+		}
+		return false;
+	}
+
+	/**
+	 * Makes edge a tree edge, linking its ends in every forest up to its level.
+	 */
+	private void addTree(int edge) {
+		push(treeEdges, 2 * edge);
+		push(treeEdges, 2 * edge + 1);
+		int below = NIL;
+		for (int level = 0; level <= levels[edge]; level++) {
+			int arc = linkTrees(edge, level);
+			if (below == NIL) {
+				arcs[edge] = arc;
+			} else {
+				ups[below] = arc;
+			}
+			below = arc;
+		}
+		setFlag(below, OWN_LEVEL, true);
+	}
+
+	/**
+	 * Cuts tree edge from every forest holding it.
+	 */
+	private void removeTree(int edge) {
+		unlink(treeEdges, 2 * edge);
+		unlink(treeEdges, 2 * edge + 1);
+		for (int arc = arcs[edge]; arc != NIL;) {
+			int up = ups[arc];
+			cut(arc);
+			arc = up;
+		}
+		arcs[edge] = NIL;
+	}
+
+	/**
+	 * Adds non-tree edge to the lists of its ends at its level.
+	 */
+	private void addNonTree(int edge) {
+		int level = levels[edge];
+		ensureLevel(level);
+		for (int half = 2 * edge; half <= 2 * edge + 1; half++) {
+			int id = ends[half];
+			if (vertices[level][id] == NIL) {
+				vertices[level][id] = newNode(id);
+			}
+			if (nonTree[level][id] == NIL) {
+				setFlag(vertices[level][id], NON_TREE, true);
+			}
+			push(nonTree[level], half);
+		}
+	}
+
+	/**
+	 * Removes non-tree edge from the lists of its ends.
+	 */
+	private void removeNonTree(int edge) {
+		int level = levels[edge];
+		for (int half = 2 * edge; half <= 2 * edge + 1; half++) {
+			unlink(nonTree[level], half);
+			int id = ends[half];
+			if (nonTree[level][id] == NIL) {
+				setFlag(vertices[level][id], NON_TREE, false);
+			}
+		}
+	}
+
+	/**
+	 * Pushes half edge onto list of its end.
+	 */
+	private void push(int[] heads, int half) {
+		int id = ends[half];
+		int first = heads[id];
+		next[half] = first;
+		prev[half] = NIL;
+		if (first != NIL) {
+			prev[first] = half;
+		}
+		heads[id] = half;
+	}
+
+	/**
+	 * Takes half edge out of list of its end.
+	 */
+	private void unlink(int[] heads, int half) {
+		if (prev[half] == NIL) {
+			heads[ends[half]] = next[half];
+		} else {
+			next[prev[half]] = next[half];
+		}
+		if (next[half] != NIL) {
+			prev[next[half]] = prev[half];
+		}
+	}
+
+	/**
+	 * Joins the tours of the trees holding the ends of an edge in the forest of
+	 * given level, by an arc each way between the ends.
+	 * 
+	 * @return arc from lower id
+	 */
+	private int linkTrees(int edge, int level) {
+		ensureLevel(level);
+		int low = ends[2 * edge];
+		int high = ends[2 * edge + 1];
+		if (vertices[level][low] == NIL) {
+			vertices[level][low] = newNode(low);
+		}
+		if (vertices[level][high] == NIL) {
+			vertices[level][high] = newNode(high);
+		}
+		int forward = newNode(-2 * edge - 1);
+		int backward = newNode(-2 * edge - 2);
+		mates[forward] = backward;
+		mates[backward] = forward;
+		// Each tour ends where it starts, at its end of the edge
+		int tour1 = reroot(vertices[level][low]);
+		int tour2 = reroot(vertices[level][high]);
+		merge(merge(tour1, forward), merge(tour2, backward));
+		return forward;
+	}
+
+	/**
+	 * Splits a tour at both arcs of an edge, leaving the part between the arcs
+	 * as one tour and the parts around them joined as the other, and frees the
+	 * arcs.
+	 */
+	private void cut(int arc) {
+		int mate = mates[arc];
+		split(arc, false);
+		int before = splitLeft;
+		split(arc, true);
+		int after = splitRight;
+		if (after != NIL && root(mate) == after) {
+			split(mate, true);
+			int rest = splitRight;
+			split(mate, false); // part between arcs is left as a tour
+			merge(rest, before);
+		} else {
+			split(mate, false);
+			int first = splitLeft;
+			split(mate, true); // part between arcs is left as a tour
+			merge(after, first);
+		}
+		freeNode(arc);
+		freeNode(mate);
+	}
+
+	/**
+	 * Rotates tour holding node so that it starts at node.
+	 * 
+	 * @return root of rotated tour
+	 */
+	private int reroot(int node) {
+		split(node, false);
+		return merge(splitRight, splitLeft);
+	}
+
+	/**
+	 * Splits treap holding node into the nodes before and after it, node going
+	 * to the left part if after is true. Sets splitLeft and splitRight.
+	 */
+	private void split(int node, boolean after) {
+		int lower;
+		int upper;
+		if (after) {
+			lower = node;
+			upper = right[node];
+			right[node] = NIL;
+			if (upper != NIL) {
+				parent[upper] = NIL;
+			}
+		} else {
+			lower = left[node];
+			upper = node;
+			left[node] = NIL;
+			if (lower != NIL) {
+				parent[lower] = NIL;
+			}
+		}
+		update(node);
+		// Climb to the root, handing each ancestor to the side it lies on
+		int child = node;
+		int above = parent[node];
+		parent[node] = NIL;
+		while (above != NIL) {
+			int grandparent = parent[above];
+			if (right[above] == child) {
+				right[above] = lower;
+				if (lower != NIL) {
+					parent[lower] = above;
+				}
+				lower = above;
+			} else {
+				left[above] = upper;
+				if (upper != NIL) {
+					parent[upper] = above;
+				}
+				upper = above;
+			}
+			update(above);
+			parent[above] = NIL;
+			child = above;
+			above = grandparent;
+		}
+		splitLeft = lower;
+		splitRight = upper;
+	}
+
+	/**
+	 * Concatenates two treaps.
+	 * 
+	 * @return root of joined treap
+	 */
+	private int merge(int first, int second) {
+		if (first == NIL) {
+			return second;
+		} else if (second == NIL) {
+			return first;
+		} else if (above(first, second)) {
+			int joined = merge(right[first], second);
+			right[first] = joined;
+			parent[joined] = first;
+			update(first);
+			return first;
+		} else {
+			int joined = merge(first, left[second]);
+			left[second] = joined;
+			parent[joined] = second;
+			update(second);
+			return second;
+		}
+	}
+
+	/**
+	 * Finds a node with given flag in treap, descending by the aggregates.
+	 * 
+	 * @return node, or NIL if none has the flag
+	 */
+	private int findFlag(int root, byte flag) {
+		if ((aggregates[root] & flag) == 0) {
+			return NIL;
+		}
+		int node = root;
+		while ((flags[node] & flag) == 0) {
+			node = left[node] != NIL && (aggregates[left[node]] & flag) != 0 ? left[node] : right[node];
+		}
+		return node;
+	}
+
+	/**
+	 * Sets or clears flag of node, updating aggregates up to the root.
+	 */
+	private void setFlag(int node, byte flag, boolean set) {
+		flags[node] = (byte) (set ? flags[node] | flag : flags[node] & ~flag);
+		for (int above = node; above != NIL; above = parent[above]) {
+			update(above);
+		}
+	}
+
+	/**
+	 * Gets root of treap holding node.
+	 */
+	private int root(int node) {
+		while (parent[node] != NIL) {
+			node = parent[node];
+		}
+		return node;
+	}
+
+	/**
+	 * Recomputes size and aggregate of node from its children.
+	 */
+	private void update(int node) {
+		int size = owners[node] >= 0 ? 1 : 0;
+		int aggregate = flags[node];
+		if (left[node] != NIL) {
+			size += sizes[left[node]];
+			aggregate |= aggregates[left[node]];
+		}
+		if (right[node] != NIL) {
+			size += sizes[right[node]];
+			aggregate |= aggregates[right[node]];
+		}
+		sizes[node] = size;
+		aggregates[node] = (byte) aggregate;
+	}
+
+	/**
+	 * Determines if first node goes above second in a treap, by a fixed
+	 * pseudo-random priority of each.
+	 */
+	private static boolean above(int node1, int node2) {
+		int priority1 = priority(node1);
+		int priority2 = priority(node2);
+		return priority1 > priority2 || priority1 == priority2 && node1 > node2;
+	}
+
+	/**
+	 * Scrambles node into its priority.
+	 */
+	private static int priority(int node) {
+		int h = node * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		return h ^ (h >>> 13);
+	}
+
+	/**
+	 * Hands out an unused treap node, alone in its treap.
+	 */
+	private int newNode(int owner) {
+		int node = freeNode;
+		if (node != NIL) {
+			freeNode = right[node];
+		} else {
+			if (nodeBound == left.length) {
+				int length = nodeBound * 2;
+				left = Arrays.copyOf(left, length);
+				right = Arrays.copyOf(right, length);
+				parent = Arrays.copyOf(parent, length);
+				sizes = Arrays.copyOf(sizes, length);
+				owners = Arrays.copyOf(owners, length);
+				mates = Arrays.copyOf(mates, length);
+				ups = Arrays.copyOf(ups, length);
+				flags = Arrays.copyOf(flags, length);
+				aggregates = Arrays.copyOf(aggregates, length);
+			}
+			node = nodeBound++;
+		}
+		left[node] = NIL;
+		right[node] = NIL;
+		parent[node] = NIL;
+		owners[node] = owner;
+		mates[node] = NIL;
+		ups[node] = NIL;
+		flags[node] = 0;
+		update(node);
+		return node;
+	}
+
+	/**
+	 * Returns treap node which is no longer in a treap.
+	 */
+	private void freeNode(int node) {
+		right[node] = freeNode;
+		freeNode = node;
+	}
+
+	/**
+	 * Finds edge between two ids.
+	 * 
+	 * @return slot of edge, or NIL if not recorded
+	 */
+	private int findEdge(int low, int high) {
+		int mask = table.length - 1;
+		for (int i = hash(low, high) & mask; table[i] != 0; i = (i + 1) & mask) {
+			int edge = table[i] - 1;
+			if (ends[2 * edge] == low && ends[2 * edge + 1] == high) {
+				return edge;
+			}
+		}
+		return NIL;
+	}
+
+	/**
+	 * Records a new edge of level 0, in no list or forest yet.
+	 * 
+	 * @return slot of edge
+	 */
+	private int newEdge(int low, int high) {
+		int edge = freeEdge;
+		if (edge != NIL) {
+			freeEdge = next[2 * edge];
+		} else {
+			if (edgeBound == levels.length) {
+				int length = edgeBound * 2;
+				ends = Arrays.copyOf(ends, 2 * length);
+				levels = Arrays.copyOf(levels, length);
+				arcs = Arrays.copyOf(arcs, length);
+				next = Arrays.copyOf(next, 2 * length);
+				prev = Arrays.copyOf(prev, 2 * length);
+			}
+			edge = edgeBound++;
+		}
+		ends[2 * edge] = low;
+		ends[2 * edge + 1] = high;
+		levels[edge] = 0;
+		arcs[edge] = NIL;
+		if (2 * (edgeCount + 1) > table.length) {
+			rehash(table.length * 2);
+		}
+		int mask = table.length - 1;
+		int i = hash(low, high) & mask;
+		while (table[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		table[i] = edge + 1;
+		++edgeCount;
+		return edge;
+	}
+
+	/**
+	 * Drops edge, already out of every list and forest, from the table.
+	 */
+	private void freeEdge(int edge) {
+		int mask = table.length - 1;
+		int hole = hash(ends[2 * edge], ends[2 * edge + 1]) & mask;
+		while (table[hole] != edge + 1) {
+			hole = (hole + 1) & mask;
+		}
+		// Shift back later edges of the probe run whose probe passed the hole
+		for (int i = (hole + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+			int other = table[i] - 1;
+			int home = hash(ends[2 * other], ends[2 * other + 1]) & mask;
+			if (((i - home) & mask) >= ((i - hole) & mask)) {
+				table[hole] = table[i];
+				hole = i;
+			}
+		}
+		table[hole] = 0;
+		--edgeCount;
+		next[2 * edge] = freeEdge;
+		freeEdge = edge;
+	}
+
+	/**
+	 * Moves edges to a table of given length.
+	 */
+	private void rehash(int length) {
+		int[] old = table;
+		table = new int[length];
+		int mask = length - 1;
+		for (int slot : old) {
+			if (slot != 0) {
+				int edge = slot - 1;
+				int i = hash(ends[2 * edge], ends[2 * edge + 1]) & mask;
+				while (table[i] != 0) {
+					i = (i + 1) & mask;
+				}
+				table[i] = slot;
+			}
+		}
+	}
+
+	/**
+	 * Hashes the ends of an edge.
+	 */
+	private static int hash(int low, int high) {
+		long h = (((long) low << 32) | high) * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) ^ (int) h;
+	}
+
+	/**
+	 * Empties index, sizing it for given numbers of ids and edges.
+	 */
+	private void reset(int bound, int edges) {
+		count = 0;
+		capacity = bound;
+		vertices = new int[][] { filled(bound) };
+		nonTree = new int[][] { filled(bound) };
+		treeEdges = filled(bound);
+		int slots = Math.max(16, edges);
+		table = new int[Integer.highestOneBit(slots * 2 - 1) * 2];
+		ends = new int[2 * slots];
+		levels = new byte[slots];
+		arcs = new int[slots];
+		next = new int[2 * slots];
+		prev = new int[2 * slots];
+		edgeCount = 0;
+		edgeBound = 0;
+		freeEdge = NIL;
+		int nodes = Math.max(16, bound + 2 * edges);
+		left = new int[nodes];
+		right = new int[nodes];
+		parent = new int[nodes];
+		sizes = new int[nodes];
+		owners = new int[nodes];
+		mates = new int[nodes];
+		ups = new int[nodes];
+		flags = new byte[nodes];
+		aggregates = new byte[nodes];
+		nodeBound = 0;
+		freeNode = NIL;
+	}
+
+	/**
+	 * Allocates forests up to given level.
+	 */
+	private void ensureLevel(int level) {
+		if (level >= vertices.length) {
+			int old = vertices.length;
+			vertices = Arrays.copyOf(vertices, level + 1);
+			nonTree = Arrays.copyOf(nonTree, level + 1);
+			for (int i = old; i <= level; i++) {
+				vertices[i] = filled(capacity);
+				nonTree[i] = filled(capacity);
+			}
+		}
+	}
+
+	/**
+	 * Grows arrays to cover given id bound.
+	 */
+	private void ensureCapacity(int bound) {
+		if (bound <= capacity) {
+			return;
+		}
+		int length = Math.max(bound, capacity * 2);
+		for (int level = 0; level < vertices.length; level++) {
+			vertices[level] = grown(vertices[level], length);
+			nonTree[level] = grown(nonTree[level], length);
+		}
+		treeEdges = grown(treeEdges, length);
+		capacity = length;
+	}
+
+	/**
+	 * Copies array indexed by id to given length, filling new slots with NIL.
+	 */
+	private static int[] grown(int[] array, int length) {
+		int[] grown = Arrays.copyOf(array, length);
+		Arrays.fill(grown, array.length, length, NIL);
+		return grown;
+	}
+
+	/**
+	 * Allocates array indexed by id filled with NIL.
+	 */
+	private static int[] filled(int length) {
+		int[] array = new int[length];
+		Arrays.fill(array, NIL);
+		return array;
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * File: ComponentLabels.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the compact result of labeling the connected components
+ * of a graph with SocialNetwork.labelComponents().
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+/**
+ * Connected components of a graph, as the number of each node's component
+ * and the size of each component. Components are numbered from 0 in order of
+ * their lowest id. Members of each component are grouped by a counting sort the
+ * first time they are asked for, and subgraphs are only built on request, so
+ * a labeling that is only counted or compared costs two int arrays.
+ * 
+ * Subgraphs are built from the graph that was labeled, so they need it to be
+ * unchanged since. Labels of a SocialNetwork whose graph takes snapshots, such
+ * as a ConcurrentGraph, keep the snapshot they were taken from, so that their
+ * subgraphs are the components as labeled whatever has changed since. The
+ * snapshot holds the versions it sees until the labels are closed, or garbage
+ * collected.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+public class ComponentLabels implements AutoCloseable {
+
+	private final IndexedGraphADT graph; // graph labeled
+	private final IndexedGraphADT source; // graph to release snapshot labeled to, null if none
+	private final int[] ids; // component of each node id, -1 for ids not in use
+	private final int[] sizes; // number of nodes in each component
+	private int[] starts; // start of each component's members, once grouped
+	private int[] members; // node ids grouped by component, once grouped
+	private boolean closed;
+
+	/**
+	 * Constructor used by ParallelComponents
+	 */
+	ComponentLabels(IndexedGraphADT graph, IndexedGraphADT source, int[] ids, int[] sizes) {
+		this.graph = graph;
+		this.source = source;
+		this.ids = ids;
+		this.sizes = sizes;
+	}
+
+	/**
+	 * Getter for number of components
+	 * 
+	 * @return number of components
+	 */
+	public int count() {
+		return sizes.length;
+	}
+
+	/**
+	 * Gets component of node.
+	 * 
+	 * @param id of node, as given by idOf()
+	 * @return number of node's component, or -1 if id was not in use
+	 */
+	public int componentOf(int id) {
+		return id < 0 || id >= ids.length ? -1 : ids[id];
+	}
+
+	/**
+	 * Gets number of nodes in component.
+	 * 
+	 * @param component number below count()
+	 * @return size of component
+	 */
+	public int size(int component) {
+		checkComponent(component);
+		return sizes[component];
+	}
+
+	/**
+	 * Gets component of every node.
+	 * 
+	 * @return copy of array indexed by id of each node's component, -1 for ids
+	 *         not in use
+	 */
+	public int[] componentIds() {
+		return ids.clone();
+	}
+
+	/**
+	 * Gets size of every component.
+	 * 
+	 * @return copy of array indexed by component of its size
+	 */
+	public int[] sizes() {
+		return sizes.clone();
+	}
+
+	/**
+	 * Gets ids of nodes in component.
+	 * 
+	 * @param component number below count()
+	 * @return ids in ascending order
+	 */
+	public int[] members(int component) {
+		checkComponent(component);
+		group();
+		int[] ids = new int[sizes[component]];
+		System.arraycopy(members, starts[component], ids, 0, ids.length);
+		return ids;
+	}
+
+	/**
+	 * Builds subgraph of component, with every edge between its nodes.
+	 * 
+	 * @param component number below count()
+	 * @return new graph holding component
+	 * @throws IllegalStateException if labels have been closed
+	 */
+	public Graph subgraph(int component) {
+		int[] nodes = members(component);
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("Labels have been closed.");
+			}
+		}
+		Graph subgraph = new Graph();
+		NeighborCursor friends = graph.newNeighborCursor();
+		for (int id : nodes) {
+			Person person = graph.getNodeById(id);
+			subgraph.addNode(person);
+			friends.reset(id);
+			for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+				if (id < friend && componentOf(friend) == component) {
+					subgraph.addEdge(person, graph.getNodeById(friend));
+				}
+			}
+		}
+		return subgraph;
+	}
+
+	/**
+	 * Releases snapshot labeled, if labels were taken from one. Counts, sizes
+	 * and members can still be read afterwards, but subgraphs cannot be built,
+	 * so labels must not be closed while one is being built.
+	 */
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			if (source != null) {
+				source.release(graph);
+			}
+		}
+	}
+
+	/**
+	 * Groups node ids by component, in one counting sort, if not yet grouped.
+	 */
+	private synchronized void group() {
+		if (members != null) {
+			return;
+		}
+		int[] starts = new int[sizes.length + 1];
+		for (int component = 0; component < sizes.length; component++) {
+			starts[component + 1] = starts[component] + sizes[component];
+		}
+		int[] filled = new int[sizes.length];
+		int[] members = new int[starts[sizes.length]];
+		for (int id = 0; id < ids.length; id++) {
+			int component = ids[id];
+			if (component >= 0) {
+				members[starts[component] + filled[component]++] = id;
+			}
+		}
+		this.starts = starts;
+		this.members = members;
+	}
+
+	/**
+	 * Checks component number is in range.
+	 */
+	private void checkComponent(int component) {
+		if (component < 0 || component >= sizes.length) {
+			throw new IllegalArgumentException("Component does not exist. Please provide valid input.");
+		}
+	}
+}
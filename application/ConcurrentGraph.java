@@ -0,0 +1,1328 @@
+/*
+ * File: ConcurrentGraph.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides a thread-safe implementation of GraphADT, so that
+ * queries can be served from worker threads while commands are applied.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe implementation of GraphADT for serving queries while the graph
+ * is being changed.
+ * 
+ * Reads never lock. Each node publishes its friends as an immutable Neighbors
+ * snapshot through a volatile field, so a reader scans a consistent list with
+ * a single volatile read, however many writers are active. Adding a friend
+ * appends to the spare room of the current array and publishes a new, longer
+ * snapshot of the same array, which earlier snapshots never look past.
+ * Removing a friend copies the array.
+ * 
+ * Writes lock stripes: each node id maps to one of a fixed set of locks, and
+ * an edge change holds the locks of both ends, taken in stripe order so that
+ * writers cannot deadlock. Writers on unrelated nodes rarely share a stripe,
+ * so they proceed in parallel. Node creation and removal go through a
+ * ConcurrentHashMap from name to node; a removed node is first marked, so that
+ * no new edges can reach it, and then unlinked from each friend in turn.
+ * 
+ * Every change is stamped with a version from a global clock, taken while the
+ * stripes it touches are locked, and each Neighbors links to the one it
+ * replaced. A writer announces on its lowest stripe the least version it can
+ * take before it moves the clock, so a snapshot() reads the clock without
+ * locking and only waits for changes at its version or earlier that are still
+ * being published. It then reads the newest Neighbors of each node no later
+ * than its version, skipping nodes created after it or removed before it.
+ * Snapshots register in one of several reader stripes, picked by thread, so
+ * readers do not contend on one monitor either. Old versions are only kept
+ * while an open snapshot can still read them: writers drop the rest of the
+ * chain as they replace it, nodes left with older versions are queued to be
+ * trimmed when the oldest snapshot closes, and removed nodes keep their id and
+ * name until every snapshot which could see them is closed, and until
+ * reclaim() if they were removed by retireNodeIfPresent().
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+public class ConcurrentGraph implements IndexedGraphADT {
+
+	private static final int PAGE_SHIFT = 12; // nodes are stored in pages of 4096 ids
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int INDEX_THRESHOLD = 64; // degree at which writers index a node's friends
+	private static final long LIVE = Long.MAX_VALUE; // removal version of nodes not removed
+	private static final Cleaner CLEANER = Cleaner.create(); // releases snapshots never closed
+
+	private final ConcurrentHashMap<String, Vertex> byName;
+	private volatile AtomicReferenceArray<Vertex>[] pages; // id -> node
+	private final AtomicInteger bound; // one past highest id handed out
+	private final ConcurrentLinkedQueue<Integer> freeIds; // ids of reclaimed nodes
+	private final ConcurrentLinkedQueue<Vertex> retired; // removed nodes not yet reclaimed
+	private final ConcurrentLinkedQueue<Vertex> versioned; // nodes keeping older versions for snapshots
+	private final ReentrantLock[] stripes;
+	private final int stripeMask;
+
+	private final AtomicInteger size; // size of graph (number of edges)
+	private final AtomicInteger order; // order of graph (number of nodes)
+
+	private final AtomicLong clock; // version of latest change
+	private final AtomicLongArray writing; // least version a change in progress under each stripe can take, LIVE if none
+	private final TreeMap<Long, Integer>[] readers; // open snapshot versions -> count, striped by thread
+	private final AtomicLongArray oldestReaders; // version of oldest open snapshot in each reader stripe
+
+	/*
+	 * Default no-argument constructor, with a number of stripes suited to the
+	 * number of processors
+	 */
+	public ConcurrentGraph() {
+		this(Runtime.getRuntime().availableProcessors() * 16);
+	}
+
+	/**
+	 * Constructor with number of lock stripes
+	 * 
+	 * @param concurrency expected number of concurrent writers, rounded up to a
+	 *                    power of two stripes
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public ConcurrentGraph(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be positive.");
+		}
+		int count = Integer.highestOneBit(Math.max(2, concurrency) * 2 - 1);
+		stripes = new ReentrantLock[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+		stripeMask = count - 1;
+		byName = new ConcurrentHashMap<String, Vertex>();
+		pages = new AtomicReferenceArray[16];
+		bound = new AtomicInteger();
+		freeIds = new ConcurrentLinkedQueue<Integer>();
+		retired = new ConcurrentLinkedQueue<Vertex>();
+		versioned = new ConcurrentLinkedQueue<Vertex>();
+		size = new AtomicInteger();
+		order = new AtomicInteger();
+		clock = new AtomicLong();
+		writing = new AtomicLongArray(count);
+		readers = new TreeMap[count];
+		oldestReaders = new AtomicLongArray(count);
+		for (int i = 0; i < count; i++) {
+			writing.set(i, LIVE);
+			readers[i] = new TreeMap<Long, Integer>();
+			oldestReaders.set(i, LIVE);
+		}
+	}
+
+	/**
+	 * Adds node to graph
+	 * 
+	 * @param node to add
+	 */
+	public void addNode(Person node) {
+		addNodeIfAbsent(node);
+	}
+
+	/**
+	 * Adds node to graph if not present.
+	 * 
+	 * @param node to add
+	 * @return true if node was added
+	 */
+	public boolean addNodeIfAbsent(Person node) {
+		// Prevents adding null Person
+		if (node == null || node.getName() == null) {
+			throw new IllegalArgumentException("Person is null. Please provide valid input.");
+		}
+		String name = node.getName();
+		while (true) {
+			Vertex vertex = byName.get(name);
+			if (vertex != null && !vertex.isRemoved()) {
+				return false;
+			} else if (tryCreate(name, vertex) != null) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Adds edge between people by adding each person to the other's list.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 */
+	public void addEdge(Person node1, Person node2) {
+		addEdgeIfAbsent(node1, node2);
+	}
+
+	/**
+	 * Adds edge between people, adding either person if not present, as one
+	 * atomic change.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 * @return true if edge was added
+	 */
+	public boolean addEdgeIfAbsent(Person node1, Person node2) {
+		// If either node is null, throw an exception
+		if (node1 == null || node1.getName() == null || node2 == null || node2.getName() == null) {
+			throw new IllegalArgumentException("One or both persons are null. Please provide valid input.");
+		}
+		while (true) {
+			Vertex vertex1 = insertVertex(node1.getName());
+			Vertex vertex2 = insertVertex(node2.getName());
+			if (vertex1 == vertex2) {
+				return false;
+			}
+			lock(vertex1.id, vertex2.id);
+			try {
+				// Retry if either node was removed before locks were taken
+				if (vertex1.isRemoved() || vertex2.isRemoved()) {
+					continue;
+				}
+				if (isFriend(vertex1, vertex2.id)) {
+					return false;
+				}
+				long version = stamp(vertex1.id, vertex2.id);
+				try {
+					append(vertex1, vertex2.id, version);
+					append(vertex2, vertex1.id, version);
+					size.incrementAndGet();
+				} finally {
+					published(vertex1.id, vertex2.id);
+				}
+				return true;
+			} finally {
+				unlock(vertex1.id, vertex2.id);
+			}
+		}
+	}
+
+	/**
+	 * Removes edge between two people by removing each person from the other's
+	 * list.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 */
+	public void removeEdge(Person node1, Person node2) {
+		if (findVertex(node1) == null || findVertex(node2) == null) {
+			throw new IllegalArgumentException(
+					"One or both persons are not in the network. Please provide valid input.");
+		}
+		removeEdgeIfPresent(node1, node2);
+	}
+
+	/**
+	 * Removes edge between people if present, as one atomic change.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 * @return true if edge was removed
+	 */
+	public boolean removeEdgeIfPresent(Person node1, Person node2) {
+		Vertex vertex1 = findVertex(node1);
+		Vertex vertex2 = findVertex(node2);
+		if (vertex1 == null || vertex2 == null || vertex1 == vertex2) {
+			return false;
+		}
+		lock(vertex1.id, vertex2.id);
+		try {
+			if (vertex1.isRemoved() || vertex2.isRemoved() || !isFriend(vertex1, vertex2.id)) {
+				return false;
+			}
+			long version = stamp(vertex1.id, vertex2.id);
+			try {
+				discard(vertex1, vertex2.id, version);
+				discard(vertex2, vertex1.id, version);
+				size.decrementAndGet();
+			} finally {
+				published(vertex1.id, vertex2.id);
+			}
+			return true;
+		} finally {
+			unlock(vertex1.id, vertex2.id);
+		}
+	}
+
+	/**
+	 * Remove node from graph, along with all edges connecting to node.
+	 * 
+	 * @param node in question
+	 */
+	public void removeNode(Person node) {
+		if (!removeNodeIfPresent(node)) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+	}
+
+	/**
+	 * Removes node, along with all edges connecting to it, if present. Once the
+	 * node is marked removed no edges can be added to it, and its edges are then
+	 * removed one at a time. Snapshots see the whole removal at the version the
+	 * node was marked, as they skip edges to nodes removed before them.
+	 * 
+	 * @param node to remove
+	 * @return true if node was removed
+	 */
+	public boolean removeNodeIfPresent(Person node) {
+		return remove(node, false);
+	}
+
+	/**
+	 * Removes node like removeNodeIfPresent(), keeping its id from reuse until
+	 * reclaim() is called with it.
+	 * 
+	 * @param node to remove
+	 * @return true if node was removed
+	 */
+	@Override
+	public boolean retireNodeIfPresent(Person node) {
+		return remove(node, true);
+	}
+
+	/**
+	 * Lets id of node removed by retireNodeIfPresent() be reused once no
+	 * snapshot can see the node.
+	 * 
+	 * @param id of removed node
+	 */
+	@Override
+	public void reclaim(int id) {
+		Vertex vertex = vertex(id);
+		if (vertex != null && vertex.isRemoved() && vertex.held) {
+			vertex.held = false;
+			reclaim();
+		}
+	}
+
+	/**
+	 * Removes node, along with all edges connecting to it, if present.
+	 * 
+	 * @param node to remove
+	 * @param held true to keep id from reuse until reclaim() is called with it
+	 * @return true if node was removed
+	 */
+	private boolean remove(Person node, boolean held) {
+		Vertex vertex = findVertex(node);
+		if (vertex == null) {
+			return false;
+		}
+		ReentrantLock stripe = stripes[vertex.id & stripeMask];
+		stripe.lock();
+		try {
+			if (vertex.isRemoved()) {
+				return false; // lost race with another removal
+			}
+			vertex.held = held;
+			vertex.removedAt = stamp(vertex.id, vertex.id);
+			published(vertex.id, vertex.id);
+			order.decrementAndGet();
+		} finally {
+			stripe.unlock();
+		}
+		// Remove node from list of each friend
+		Neighbors friends = vertex.friends;
+		for (int i = 0; i < friends.count; i++) {
+			int friend = friends.ids[i];
+			lock(vertex.id, friend);
+			try {
+				if (isFriend(vertex, friend)) {
+					long version = stamp(vertex.id, friend);
+					try {
+						discard(vertex, friend, version);
+						discard(vertex(friend), vertex.id, version);
+						size.decrementAndGet();
+					} finally {
+						published(vertex.id, friend);
+					}
+				}
+			} finally {
+				unlock(vertex.id, friend);
+			}
+		}
+		// Name and id are kept until no snapshot can see node
+		retired.add(vertex);
+		reclaim();
+		return true;
+	}
+
+	/**
+	 * Gets all neighbors of given person in graph
+	 * 
+	 * @param node in question
+	 * @return set of people adjacent to node
+	 */
+	public Set<Person> getNeighbors(Person node) {
+		Vertex vertex = findVertex(node);
+		if (vertex == null) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		Neighbors friends = vertex.friends;
+		HashSet<Person> neighbors = new HashSet<Person>(friends.count * 4 / 3 + 1);
+		for (int i = 0; i < friends.count; i++) {
+			Person friend = getNodeById(friends.ids[i]);
+			if (friend != null) {
+				neighbors.add(friend);
+			}
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Gets person with given name
+	 * 
+	 * @param name, name of person
+	 */
+	public Person getNode(String name) {
+		Person person = findNode(name);
+		if (person == null) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		return person;
+	}
+
+	/**
+	 * Gets all nodes in the graph.
+	 * 
+	 * @return Set of Persons in graph
+	 */
+	public Set<Person> getAllNodes() {
+		return new HashSet<Person>(getVertices());
+	}
+
+	/**
+	 * Getter for order of graph.
+	 * 
+	 * @return order of graph
+	 */
+	public int order() {
+		return order.get();
+	}
+
+	/**
+	 * Getter for size of graph.
+	 * 
+	 * @return size of graph.
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Determines if person with given name is present in graph.
+	 * 
+	 * @param name of person being searched for
+	 * @return true if person is present, false otherwise
+	 */
+	public boolean contains(String name) {
+		return findNode(name) != null;
+	}
+
+	/**
+	 * Gets the interned instance of given person without allocating.
+	 * 
+	 * @param name of person
+	 * @return person in graph with given name, or null if not present
+	 */
+	public Person findNode(String name) {
+		Vertex vertex = name == null ? null : byName.get(name);
+		return vertex == null || vertex.isRemoved() ? null : vertex.person;
+	}
+
+	/**
+	 * Gets list of all nodes in graph, in id order. As the graph may change
+	 * concurrently, the list is a copy.
+	 * 
+	 * @return list of nodes
+	 */
+	public List<Person> getVertices() {
+		ArrayList<Person> vertices = new ArrayList<Person>(order.get());
+		int limit = bound.get();
+		for (int id = 0; id < limit; id++) {
+			Person person = getNodeById(id);
+			if (person != null) {
+				vertices.add(person);
+			}
+		}
+		return vertices;
+	}
+
+	/**
+	 * Removes all nodes and edges from the graph. Runs as a series of node
+	 * removals, so concurrent changes may survive it.
+	 */
+	public void clear() {
+		for (Vertex vertex : byName.values()) {
+			removeNodeIfPresent(vertex.person);
+		}
+	}
+
+	/**
+	 * Gets id of person with given name.
+	 * 
+	 * @param name of person
+	 * @return id of person, or -1 if person is not in the graph
+	 */
+	public int idOf(String name) {
+		Person person = findNode(name);
+		return person == null ? -1 : person.getId();
+	}
+
+	/**
+	 * Gets person with given id.
+	 * 
+	 * @param id of person
+	 * @return person, or null if no person has the id
+	 */
+	public Person getNodeById(int id) {
+		Vertex vertex = vertex(id);
+		return vertex == null || vertex.isRemoved() ? null : vertex.person;
+	}
+
+	/**
+	 * Exclusive upper bound on the ids of nodes in the graph.
+	 * 
+	 * @return id bound
+	 */
+	public int idBound() {
+		return bound.get();
+	}
+
+	/**
+	 * Gets number of neighbors of node with given id.
+	 * 
+	 * @param id of node
+	 * @return degree of node
+	 */
+	public int degree(int id) {
+		Vertex vertex = vertex(id);
+		return vertex == null ? 0 : vertex.friends.count;
+	}
+
+	/**
+	 * Copies ids of all neighbors of node into buffer. The copy is a consistent
+	 * snapshot, but the degree may have changed since degree() was called, so at
+	 * most buffer.length ids are copied.
+	 * 
+	 * @param id     of node
+	 * @param buffer to copy into
+	 * @return number of ids copied
+	 */
+	public int getNeighborIds(int id, int[] buffer) {
+		Vertex vertex = vertex(id);
+		if (vertex == null) {
+			return 0;
+		}
+		Neighbors friends = vertex.friends;
+		int count = Math.min(friends.count, buffer.length);
+		System.arraycopy(friends.ids, 0, buffer, 0, count);
+		return count;
+	}
+
+	/**
+	 * Determines if there is an edge between two nodes, scanning the shorter of
+	 * the two lists without locking.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 * @return true if nodes are adjacent
+	 */
+	public boolean hasEdge(int id1, int id2) {
+		Vertex vertex1 = vertex(id1);
+		Vertex vertex2 = vertex(id2);
+		if (vertex1 == null || vertex2 == null) {
+			return false;
+		}
+		Neighbors friends1 = vertex1.friends;
+		Neighbors friends2 = vertex2.friends;
+		Neighbors shorter = friends1.count <= friends2.count ? friends1 : friends2;
+		int other = shorter == friends1 ? id2 : id1;
+		for (int i = 0; i < shorter.count; i++) {
+			if (shorter.ids[i] == other) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a cursor for scanning neighbor ids without allocating or locking.
+	 * Each reset takes a consistent snapshot of the node's friends.
+	 * 
+	 * @return new cursor
+	 */
+	public NeighborCursor newNeighborCursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Determines if the graph is safe for concurrent use, which it is.
+	 * 
+	 * @return true
+	 */
+	public boolean isConcurrent() {
+		return true;
+	}
+
+	/**
+	 * Takes snapshot of the graph as it is now. Writers are not held up, and the
+	 * snapshot only waits for changes already stamped to be published. The
+	 * snapshot should be closed once done with, so that the versions it holds
+	 * can be reclaimed; snapshots which are never closed are released when
+	 * garbage collected.
+	 * 
+	 * @return read-only view of the graph at the current version
+	 */
+	public Snapshot snapshot() {
+		int reader = (int) Thread.currentThread().getId() & stripeMask;
+		TreeMap<Long, Integer> registry = readers[reader];
+		long registered;
+		synchronized (registry) {
+			registered = clock.get();
+			registry.merge(registered, 1, Integer::sum);
+			oldestReaders.set(reader, registry.firstKey());
+		}
+		// Read after registering, so a writer which missed the registration
+		// takes a later version and keeps what the snapshot reads
+		long version = clock.get();
+		for (int stripe = 0; stripe < stripes.length; stripe++) {
+			while (writing.get(stripe) <= version) {
+				Thread.yield(); // change at version or earlier not yet published
+			}
+		}
+		return new Snapshot(reader, registered, version, bound.get());
+	}
+
+	/**
+	 * Closes snapshot taken with snapshot().
+	 * 
+	 * @param snapshot to release
+	 */
+	public void release(IndexedGraphADT snapshot) {
+		if (snapshot instanceof Snapshot) {
+			((Snapshot) snapshot).close();
+		}
+	}
+
+	/**
+	 * Unregisters snapshot with given version, then reclaims whatever only it
+	 * could see.
+	 */
+	private void closeSnapshot(int reader, long version) {
+		// Read before the reader stripes, as a snapshot registered after they
+		// are scanned takes this version or a later one
+		long now = clock.get();
+		TreeMap<Long, Integer> registry = readers[reader];
+		synchronized (registry) {
+			if (registry.merge(version, -1, Integer::sum) == 0) {
+				registry.remove(version);
+			}
+			oldestReaders.set(reader, registry.isEmpty() ? LIVE : registry.firstKey());
+		}
+		long oldest = oldestReader();
+		if (oldest > version) {
+			// Oldest snapshot closed, drop versions of nodes no writer has touched
+			// since, rather than wait for their next change
+			long floor = Math.min(oldest, now); // no snapshot open now or later reads versions before this
+			ArrayList<Vertex> kept = new ArrayList<Vertex>();
+			for (Vertex vertex = versioned.poll(); vertex != null; vertex = versioned.poll()) {
+				vertex.versioned = false;
+				Neighbors friends = vertex.friends;
+				trim(friends, floor);
+				if (friends.older != null) {
+					kept.add(vertex); // still read by an open snapshot
+				}
+			}
+			for (Vertex vertex : kept) {
+				if (!vertex.versioned) {
+					vertex.versioned = true;
+					versioned.add(vertex);
+				}
+			}
+		}
+		reclaim();
+	}
+
+	/**
+	 * Gets version of oldest open snapshot.
+	 * 
+	 * @return version, or LIVE if no snapshot is open
+	 */
+	private long oldestReader() {
+		long oldest = LIVE;
+		for (int reader = 0; reader < oldestReaders.length(); reader++) {
+			oldest = Math.min(oldest, oldestReaders.get(reader));
+		}
+		return oldest;
+	}
+
+	/**
+	 * Takes version for a change to nodes with given ids, announcing it on
+	 * their lowest stripe until published() is called. Caller holds the
+	 * stripes of both ids.
+	 * 
+	 * @return version of change
+	 */
+	private long stamp(int id1, int id2) {
+		// Announced before the clock moves, so a snapshot whose version is
+		// this change's or later sees it in progress
+		writing.set(Math.min(id1 & stripeMask, id2 & stripeMask), clock.get() + 1);
+		return clock.incrementAndGet();
+	}
+
+	/**
+	 * Marks change stamped by stamp() as published.
+	 */
+	private void published(int id1, int id2) {
+		writing.set(Math.min(id1 & stripeMask, id2 & stripeMask), LIVE);
+	}
+
+	/**
+	 * Frees name and id of removed nodes which no open snapshot can see, in
+	 * order of removal, stopping at a node whose id is held.
+	 */
+	private void reclaim() {
+		long oldest = oldestReader();
+		synchronized (retired) {
+			for (Vertex vertex = retired.peek(); vertex != null && vertex.removedAt <= oldest
+					&& !vertex.held; vertex = retired.peek()) {
+				retired.poll();
+				String name = vertex.person.getName();
+				if (!byName.remove(name, vertex)) {
+					// Name was reused, cut node from older incarnations of newer node
+					for (Vertex newer = byName.get(name); newer != null; newer = newer.prior) {
+						if (newer.prior == vertex) {
+							newer.prior = null;
+						}
+					}
+				}
+				freeIds.add(vertex.id);
+			}
+		}
+	}
+
+	/**
+	 * Gets node with given id.
+	 * 
+	 * @return node, which may be marked removed, or null if id was never used
+	 */
+	private Vertex vertex(int id) {
+		AtomicReferenceArray<Vertex>[] current = pages;
+		int page = id >>> PAGE_SHIFT;
+		if (id < 0 || page >= current.length || current[page] == null) {
+			return null;
+		}
+		return current[page].get(id & (PAGE_SIZE - 1));
+	}
+
+	/**
+	 * Resolves person to its node in this graph.
+	 * 
+	 * @return node, or null if person is null or not present
+	 */
+	private Vertex findVertex(Person node) {
+		if (node == null || node.getName() == null) {
+			return null;
+		}
+		Vertex vertex = byName.get(node.getName());
+		return vertex == null || vertex.isRemoved() ? null : vertex;
+	}
+
+	/**
+	 * Gets node with given name, creating it if not present.
+	 */
+	private Vertex insertVertex(String name) {
+		while (true) {
+			Vertex vertex = byName.get(name);
+			if (vertex != null && !vertex.isRemoved()) {
+				return vertex;
+			}
+			Vertex created = tryCreate(name, vertex);
+			if (created != null) {
+				return created;
+			}
+		}
+	}
+
+	/**
+	 * Creates node with given name, replacing removed node with same name if
+	 * any. The node is stored under its id before it is published by name, and
+	 * both happen under its stripe, so no snapshot sees one without the other.
+	 * 
+	 * @param name  of node
+	 * @param prior removed node mapped to name, or null if name is unmapped
+	 * @return new node, or null if another thread changed the mapping first
+	 */
+	private Vertex tryCreate(String name, Vertex prior) {
+		Integer recycled = freeIds.poll();
+		int id = recycled != null ? recycled : bound.getAndIncrement();
+		Vertex created = new Vertex(new Person(name, id), prior);
+		ReentrantLock stripe = stripes[id & stripeMask];
+		stripe.lock();
+		try {
+			page(id).set(id & (PAGE_SIZE - 1), created);
+			if (prior == null ? byName.putIfAbsent(name, created) == null : byName.replace(name, prior, created)) {
+				created.createdAt = stamp(id, id);
+				published(id, id);
+				order.incrementAndGet();
+				return created;
+			}
+			// Give back id
+			page(id).set(id & (PAGE_SIZE - 1), null);
+		} finally {
+			stripe.unlock();
+		}
+		freeIds.add(id);
+		return null;
+	}
+
+	/**
+	 * Gets page holding given id, allocating it if needed.
+	 */
+	@SuppressWarnings("unchecked")
+	private AtomicReferenceArray<Vertex> page(int id) {
+		int page = id >>> PAGE_SHIFT;
+		AtomicReferenceArray<Vertex>[] current = pages;
+		if (page < current.length && current[page] != null) {
+			return current[page];
+		}
+		synchronized (this) {
+			current = pages;
+			if (page >= current.length) {
+				current = Arrays.copyOf(current, Math.max(page + 1, current.length * 2));
+			}
+			if (current[page] == null) {
+				current[page] = new AtomicReferenceArray<Vertex>(PAGE_SIZE);
+			}
+			pages = current; // publish
+			return current[page];
+		}
+	}
+
+	/**
+	 * Locks stripes of both ids, lower stripe first.
+	 */
+	private void lock(int id1, int id2) {
+		int stripe1 = id1 & stripeMask;
+		int stripe2 = id2 & stripeMask;
+		stripes[Math.min(stripe1, stripe2)].lock();
+		if (stripe1 != stripe2) {
+			stripes[Math.max(stripe1, stripe2)].lock();
+		}
+	}
+
+	/**
+	 * Unlocks stripes taken by lock().
+	 */
+	private void unlock(int id1, int id2) {
+		int stripe1 = id1 & stripeMask;
+		int stripe2 = id2 & stripeMask;
+		if (stripe1 != stripe2) {
+			stripes[Math.max(stripe1, stripe2)].unlock();
+		}
+		stripes[Math.min(stripe1, stripe2)].unlock();
+	}
+
+	/**
+	 * Determines if id is a friend of node. Caller holds node's stripe.
+	 */
+	private static boolean isFriend(Vertex vertex, int id) {
+		if (vertex.index != null) {
+			return vertex.index.contains(id);
+		}
+		Neighbors friends = vertex.friends;
+		for (int i = 0; i < friends.count; i++) {
+			if (friends.ids[i] == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds id to node's friends. Caller holds node's stripe.
+	 */
+	private void append(Vertex vertex, int id, long version) {
+		Neighbors friends = vertex.friends;
+		int[] ids = friends.ids;
+		// Slots past count are unseen by every published snapshot, so they can be
+		// written in place
+		if (friends.count == ids.length) {
+			ids = Arrays.copyOf(ids, Math.max(4, ids.length * 2));
+		}
+		ids[friends.count] = id;
+		publish(vertex, new Neighbors(ids, friends.count + 1, version, retain(friends)));
+		if (vertex.index != null) {
+			vertex.index.add(id);
+		} else if (friends.count + 1 >= INDEX_THRESHOLD) {
+			vertex.index = new NeighborSet();
+			for (int i = 0; i <= friends.count; i++) {
+				vertex.index.add(ids[i]);
+			}
+		}
+	}
+
+	/**
+	 * Removes id from node's friends by publishing a copy without it. Caller
+	 * holds node's stripe and has checked that id is a friend.
+	 */
+	private void discard(Vertex vertex, int id, long version) {
+		Neighbors friends = vertex.friends;
+		for (int i = 0; i < friends.count; i++) {
+			if (friends.ids[i] == id) {
+				int[] ids = Arrays.copyOf(friends.ids, friends.count);
+				ids[i] = ids[friends.count - 1];
+				publish(vertex, new Neighbors(ids, friends.count - 1, version, retain(friends)));
+				if (vertex.index != null) {
+					vertex.index.remove(id);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Publishes node's new friends, queueing node for trimming once snapshots
+	 * close if older versions are kept behind them. Caller holds node's stripe.
+	 */
+	private void publish(Vertex vertex, Neighbors friends) {
+		vertex.friends = friends;
+		// Checked after publishing, as closeSnapshot() clears the mark before it
+		// reads the friends
+		if (friends.older != null && !vertex.versioned) {
+			vertex.versioned = true;
+			versioned.add(vertex);
+		}
+	}
+
+	/**
+	 * Gets chain of older versions to keep behind a node's new Neighbors, which
+	 * is the one replaced back to the first no later than the oldest open
+	 * snapshot. Caller holds node's stripe.
+	 * 
+	 * @param replaced Neighbors being replaced
+	 * @return older versions to link to, or null if no snapshot is open
+	 */
+	private Neighbors retain(Neighbors replaced) {
+		long oldest = oldestReader();
+		if (oldest == LIVE) {
+			return null;
+		}
+		// Snapshots open now wait for the new version or are older, and may
+		// read back to the newest version no later than the oldest of them
+		trim(replaced, oldest);
+		return replaced;
+	}
+
+	/**
+	 * Drops versions behind the newest one no later than given version. Safe
+	 * without locking as long as no snapshot, open or opened later, is older
+	 * than that version.
+	 */
+	private static void trim(Neighbors friends, long oldest) {
+		Neighbors last = friends;
+		while (last.version > oldest && last.older != null) {
+			last = last.older;
+		}
+		if (last.older != null) {
+			last.older = null;
+		}
+	}
+
+	/**
+	 * Node of the graph.
+	 */
+	private static final class Vertex {
+		final Person person;
+		final int id;
+		volatile Neighbors friends = Neighbors.EMPTY; // published list of friends
+		volatile long createdAt = LIVE; // version node was added, set under its stripe
+		volatile long removedAt = LIVE; // version node was removed, set under its stripe
+		volatile Vertex prior; // removed node with same name, kept for snapshots
+		volatile boolean held; // removed node whose id waits for reclaim(int)
+		volatile boolean versioned; // queued for trimming once snapshots close
+		NeighborSet index; // friends of high degree nodes, guarded by node's stripe
+
+		Vertex(Person person, Vertex prior) {
+			this.person = person;
+			this.id = person.getId();
+			this.prior = prior;
+		}
+
+		boolean isRemoved() {
+			return removedAt != LIVE;
+		}
+
+		/**
+		 * Determines if node is in the graph at given version.
+		 */
+		boolean visibleAt(long version) {
+			return createdAt <= version && version < removedAt;
+		}
+
+		/**
+		 * Gets friends as of given version.
+		 */
+		Neighbors friendsAt(long version) {
+			Neighbors friends = this.friends;
+			while (friends != null && friends.version > version) {
+				friends = friends.older;
+			}
+			return friends == null ? Neighbors.EMPTY : friends;
+		}
+	}
+
+	/**
+	 * Immutable snapshot of a node's friends: the first count ids of the array,
+	 * as of the change with given version.
+	 */
+	private static final class Neighbors {
+		static final Neighbors EMPTY = new Neighbors(new int[0], 0, 0, null);
+
+		final int[] ids;
+		final int count;
+		final long version;
+		volatile Neighbors older; // version replaced by this one, while snapshots need it
+
+		Neighbors(int[] ids, int count, long version, Neighbors older) {
+			this.ids = ids;
+			this.count = count;
+			this.version = version;
+			this.older = older;
+		}
+	}
+
+	/**
+	 * Read-only view of the graph at the version it was taken. Only nodes
+	 * present at that version are seen, with the friends they had then.
+	 */
+	public final class Snapshot implements IndexedGraphADT, AutoCloseable {
+
+		private final long version; // version of latest change seen
+		private final int bound; // id bound at version or later
+		private volatile int order = -1; // number of nodes at version, counted when first asked
+		private volatile int size = -1; // number of edges at version, counted when first asked
+		private final Cleaner.Cleanable cleanable;
+
+		/**
+		 * Constructor for snapshot already registered with graph.
+		 */
+		private Snapshot(int reader, long registered, long version, int bound) {
+			this.version = version;
+			this.bound = bound;
+			this.cleanable = CLEANER.register(this, new Release(reader, registered));
+		}
+
+		/**
+		 * Getter for version of latest change seen by snapshot.
+		 * 
+		 * @return version
+		 */
+		public long version() {
+			return version;
+		}
+
+		/**
+		 * Releases snapshot, so that the versions it holds can be reclaimed. The
+		 * snapshot must not be used afterwards.
+		 */
+		@Override
+		public void close() {
+			cleanable.clean();
+		}
+
+		/**
+		 * Not supported, snapshot is read-only.
+		 */
+		public void addEdge(Person node1, Person node2) {
+			throw new UnsupportedOperationException("Snapshot cannot be modified.");
+		}
+
+		/**
+		 * Not supported, snapshot is read-only.
+		 */
+		public void removeEdge(Person node1, Person node2) {
+			throw new UnsupportedOperationException("Snapshot cannot be modified.");
+		}
+
+		/**
+		 * Not supported, snapshot is read-only.
+		 */
+		public void addNode(Person node) {
+			throw new UnsupportedOperationException("Snapshot cannot be modified.");
+		}
+
+		/**
+		 * Not supported, snapshot is read-only.
+		 */
+		public void removeNode(Person node) {
+			throw new UnsupportedOperationException("Snapshot cannot be modified.");
+		}
+
+		/**
+		 * Not supported, snapshot is read-only.
+		 */
+		public void clear() {
+			throw new UnsupportedOperationException("Snapshot cannot be modified.");
+		}
+
+		@Override
+		public Set<Person> getNeighbors(Person node) {
+			Vertex vertex = node == null ? null : find(node.getName());
+			if (vertex == null) {
+				throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+			}
+			Neighbors friends = vertex.friendsAt(version);
+			HashSet<Person> neighbors = new HashSet<Person>(friends.count * 4 / 3 + 1);
+			for (int i = 0; i < friends.count; i++) {
+				Vertex friend = at(friends.ids[i]);
+				if (friend != null) {
+					neighbors.add(friend.person);
+				}
+			}
+			return neighbors;
+		}
+
+		@Override
+		public Person getNode(String name) {
+			Person person = findNode(name);
+			if (person == null) {
+				throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+			}
+			return person;
+		}
+
+		@Override
+		public Set<Person> getAllNodes() {
+			return new HashSet<Person>(getVertices());
+		}
+
+		@Override
+		public int order() {
+			if (order < 0) {
+				int nodes = 0;
+				for (int id = 0; id < bound; id++) {
+					if (at(id) != null) {
+						nodes++;
+					}
+				}
+				order = nodes;
+			}
+			return order;
+		}
+
+		@Override
+		public int size() {
+			if (size < 0) {
+				long degrees = 0;
+				for (int id = 0; id < bound; id++) {
+					degrees += degree(id);
+				}
+				size = (int) (degrees / 2);
+			}
+			return size;
+		}
+
+		@Override
+		public boolean contains(String name) {
+			return find(name) != null;
+		}
+
+		@Override
+		public Person findNode(String name) {
+			Vertex vertex = find(name);
+			return vertex == null ? null : vertex.person;
+		}
+
+		@Override
+		public List<Person> getVertices() {
+			ArrayList<Person> vertices = new ArrayList<Person>();
+			for (int id = 0; id < bound; id++) {
+				Vertex vertex = at(id);
+				if (vertex != null) {
+					vertices.add(vertex.person);
+				}
+			}
+			return vertices;
+		}
+
+		@Override
+		public int idOf(String name) {
+			Vertex vertex = find(name);
+			return vertex == null ? -1 : vertex.id;
+		}
+
+		@Override
+		public Person getNodeById(int id) {
+			Vertex vertex = at(id);
+			return vertex == null ? null : vertex.person;
+		}
+
+		@Override
+		public int idBound() {
+			return bound;
+		}
+
+		@Override
+		public int degree(int id) {
+			return getNeighborIds(id, null);
+		}
+
+		/**
+		 * Copies ids of all neighbors of node at snapshot's version into buffer.
+		 * 
+		 * @param id     of node
+		 * @param buffer to copy into, or null to only count neighbors
+		 * @return number of neighbors
+		 */
+		public int getNeighborIds(int id, int[] buffer) {
+			Vertex vertex = at(id);
+			if (vertex == null) {
+				return 0;
+			}
+			Neighbors friends = vertex.friendsAt(version);
+			int count = 0;
+			for (int i = 0; i < friends.count; i++) {
+				// Skip friends removed by then, whose edges may not be unlinked yet
+				if (at(friends.ids[i]) != null) {
+					if (buffer != null) {
+						buffer[count] = friends.ids[i];
+					}
+					count++;
+				}
+			}
+			return count;
+		}
+
+		@Override
+		public boolean hasEdge(int id1, int id2) {
+			Vertex vertex1 = at(id1);
+			Vertex vertex2 = at(id2);
+			if (vertex1 == null || vertex2 == null) {
+				return false;
+			}
+			Neighbors friends1 = vertex1.friendsAt(version);
+			Neighbors friends2 = vertex2.friendsAt(version);
+			Neighbors shorter = friends1.count <= friends2.count ? friends1 : friends2;
+			int other = shorter == friends1 ? id2 : id1;
+			for (int i = 0; i < shorter.count; i++) {
+				if (shorter.ids[i] == other) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public NeighborCursor newNeighborCursor() {
+			return new SnapshotCursor();
+		}
+
+		/**
+		 * Gets node with given id, if present at snapshot's version.
+		 */
+		private Vertex at(int id) {
+			Vertex vertex = vertex(id);
+			return vertex != null && vertex.visibleAt(version) ? vertex : null;
+		}
+
+		/**
+		 * Gets node with given name, if present at snapshot's version. Nodes
+		 * removed and re-added since are found among the prior incarnations.
+		 */
+		private Vertex find(String name) {
+			Vertex vertex = name == null ? null : byName.get(name);
+			while (vertex != null && !vertex.visibleAt(version)) {
+				vertex = vertex.prior;
+			}
+			return vertex;
+		}
+
+		/**
+		 * Cursor which scans friends of a node at snapshot's version.
+		 */
+		private class SnapshotCursor implements NeighborCursor {
+			private Neighbors friends = Neighbors.EMPTY;
+			private int next;
+
+			@Override
+			public void reset(int id) {
+				Vertex vertex = at(id);
+				this.friends = vertex == null ? Neighbors.EMPTY : vertex.friendsAt(version);
+				this.next = 0;
+			}
+
+			@Override
+			public int next() {
+				while (this.next < this.friends.count) {
+					int friend = this.friends.ids[this.next++];
+					if (at(friend) != null) {
+						return friend;
+					}
+				}
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Cleanup action of a snapshot. Holds only the graph, reader stripe and
+	 * version, so that it does not keep the snapshot reachable.
+	 */
+	private final class Release implements Runnable {
+		private final int reader; // reader stripe registered in
+		private final long version; // version registered
+
+		Release(int reader, long version) {
+			this.reader = reader;
+			this.version = version;
+		}
+
+		@Override
+		public void run() {
+			closeSnapshot(reader, version);
+		}
+	}
+
+	/**
+	 * Cursor which scans the snapshot of friends taken when it is reset.
+	 */
+	private class Cursor implements NeighborCursor {
+		private Neighbors friends = Neighbors.EMPTY;
+		private int next;
+
+		@Override
+		public void reset(int id) {
+			Vertex vertex = vertex(id);
+			this.friends = vertex == null ? Neighbors.EMPTY : vertex.friends;
+			this.next = 0;
+		}
+
+		@Override
+		public int next() {
+			return this.next < this.friends.count ? this.friends.ids[this.next++] : -1;
+		}
+	}
+}
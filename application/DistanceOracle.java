@@ -0,0 +1,377 @@
+/*
+ * File: DistanceOracle.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the landmark distance index which SocialNetwork.java can
+ * keep to bound degrees of separation without searching.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Distances from a few landmark nodes to every node, from which the distance
+ * between any two nodes is bounded without touching the graph. For each
+ * landmark l, the triangle inequality gives
+ * 
+ * <pre>
+ * |d(a, l) - d(b, l)| &lt;= d(a, b) &lt;= d(a, l) + d(l, b)
+ * </pre>
+ * 
+ * so a query takes the best bounds over all landmarks in O(k). Landmarks are
+ * the nodes of highest degree, which lie on many shortest paths, or a random
+ * sample. The k distances of each node are stored next to each other, so a
+ * query reads two short runs of one int array.
+ * 
+ * Added edges are applied at once: distances only shrink, and a breadth first
+ * relaxation from the nearer end updates just the nodes that get closer to a
+ * landmark. Removals can only lengthen distances. A removed edge leaves a
+ * landmark's distances unchanged unless its farther end has no other neighbor
+ * one step closer, and a removed node leaves them unchanged unless one of its
+ * farther friends has none; otherwise the landmark is marked stale, as is a
+ * removed landmark. Stale landmarks are left out of queries, so bounds are
+ * always correct, and are searched again by refresh(), which also replaces
+ * removed landmarks.
+ * 
+ * Changes to any one node or edge must be reported in the order they are
+ * made, and the id of a removed node must not be reused until its removal is
+ * reported. All methods are synchronized.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class DistanceOracle {
+
+	static final int UNREACHED = -1; // distance of nodes a landmark does not reach
+
+	private final IndexedGraphADT graph;
+	private final boolean byDegree; // true to pick landmarks by degree, false at random
+	private final Random random;
+	private final int[] landmarks; // id of each landmark
+	private final boolean[] stale; // landmarks to search again on refresh
+	private int[] distances; // distance of id from landmark l at id * k + l
+	private int bound; // ids covered by distances
+	private int[] queue; // relaxation queue
+
+	/**
+	 * Constructor for oracle of given graph, which picks landmarks and searches
+	 * from each.
+	 * 
+	 * @param graph     to index, which must not change during the searches
+	 * @param landmarks number of landmarks
+	 * @param byDegree  true to pick nodes of highest degree, false at random
+	 * @param seed      for random landmarks
+	 */
+	DistanceOracle(IndexedGraphADT graph, int landmarks, boolean byDegree, long seed) {
+		this.graph = graph;
+		this.byDegree = byDegree;
+		this.random = new Random(seed);
+		this.landmarks = new int[Math.min(landmarks, graph.order())];
+		this.stale = new boolean[this.landmarks.length];
+		this.bound = graph.idBound();
+		this.distances = new int[bound * this.landmarks.length];
+		this.queue = new int[0];
+		Arrays.fill(this.landmarks, -1);
+		Arrays.fill(stale, true);
+		if (byDegree) {
+			// One pass over the degrees rather than one per landmark
+			double[] degrees = new double[bound];
+			for (int id = 0; id < bound; id++) {
+				if (graph.getNodeById(id) != null) {
+					degrees[id] = graph.degree(id) + 1; // above ids not in use
+				}
+			}
+			int[] top = Centrality.topK(degrees, this.landmarks.length);
+			System.arraycopy(top, 0, this.landmarks, 0, top.length);
+		}
+		refresh();
+	}
+
+	/**
+	 * Getter for number of landmarks
+	 * 
+	 * @return number of landmarks
+	 */
+	synchronized int landmarks() {
+		return landmarks.length;
+	}
+
+	/**
+	 * Gets lower bound on distance between two nodes.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 * @return largest difference of their distances to a landmark, or
+	 *         Integer.MAX_VALUE if a landmark reaches one but not the other
+	 */
+	synchronized int lowerBound(int id1, int id2) {
+		if (id1 == id2) {
+			return 0;
+		}
+		int k = landmarks.length;
+		int lower = 0;
+		for (int l = 0; l < k; l++) {
+			if (stale[l]) {
+				continue;
+			}
+			int distance1 = distance(id1, l);
+			int distance2 = distance(id2, l);
+			if ((distance1 == UNREACHED) != (distance2 == UNREACHED)) {
+				return Integer.MAX_VALUE;
+			}
+			lower = Math.max(lower, Math.abs(distance1 - distance2));
+		}
+		return lower;
+	}
+
+	/**
+	 * Gets upper bound on distance between two nodes.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 * @return smallest sum of their distances to a landmark reaching both, or
+	 *         Integer.MAX_VALUE if no landmark does
+	 */
+	synchronized int upperBound(int id1, int id2) {
+		if (id1 == id2) {
+			return 0;
+		}
+		int k = landmarks.length;
+		int upper = Integer.MAX_VALUE;
+		for (int l = 0; l < k; l++) {
+			if (stale[l]) {
+				continue;
+			}
+			int distance1 = distance(id1, l);
+			int distance2 = distance(id2, l);
+			if (distance1 != UNREACHED && distance2 != UNREACHED) {
+				upper = Math.min(upper, distance1 + distance2);
+			}
+		}
+		return upper;
+	}
+
+	/**
+	 * Records that edge was added to graph, relaxing distances through it.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 */
+	synchronized void addEdge(int id1, int id2) {
+		ensureCapacity(graph.idBound());
+		for (int l = 0; l < landmarks.length; l++) {
+			if (stale[l]) {
+				continue;
+			}
+			int distance1 = distance(id1, l);
+			int distance2 = distance(id2, l);
+			if (distance1 != UNREACHED && (distance2 == UNREACHED || distance1 + 1 < distance2)) {
+				relax(id2, distance1 + 1, l);
+			} else if (distance2 != UNREACHED && (distance1 == UNREACHED || distance2 + 1 < distance1)) {
+				relax(id1, distance2 + 1, l);
+			}
+		}
+	}
+
+	/**
+	 * Records that edge was removed from graph, marking landmarks whose
+	 * distances it may lengthen stale.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 */
+	synchronized void removeEdge(int id1, int id2) {
+		NeighborCursor friends = graph.newNeighborCursor();
+		for (int l = 0; l < landmarks.length; l++) {
+			if (stale[l]) {
+				continue;
+			}
+			int distance1 = distance(id1, l);
+			int distance2 = distance(id2, l);
+			if (distance1 == UNREACHED || Math.abs(distance1 - distance2) != 1) {
+				continue; // edge was on no shortest path from landmark
+			}
+			int far = distance1 > distance2 ? id1 : id2;
+			int closer = Math.min(distance1, distance2);
+			// Farther end keeps its distance through any other closer neighbor
+			boolean kept = false;
+			friends.reset(far);
+			for (int friend = friends.next(); friend >= 0 && !kept; friend = friends.next()) {
+				kept = distance(friend, l) == closer;
+			}
+			stale[l] = !kept;
+		}
+	}
+
+	/**
+	 * Records that node was removed from graph, along with its edges, marking
+	 * landmarks whose distances it may lengthen stale. A friend one step
+	 * farther from a landmark keeps its distance through any other neighbor as
+	 * close as the node was, so a landmark stays fresh if every such friend has
+	 * one.
+	 * 
+	 * @param id      of node
+	 * @param friends ids of node's friends before it was removed
+	 */
+	synchronized void removeNode(int id, int[] friends) {
+		NeighborCursor cursor = graph.newNeighborCursor();
+		int k = landmarks.length;
+		for (int l = 0; l < k; l++) {
+			int distance = distance(id, l);
+			if (stale[l] || distance == UNREACHED) {
+				continue;
+			}
+			if (landmarks[l] == id) {
+				stale[l] = true;
+				continue;
+			}
+			for (int i = 0; i < friends.length && !stale[l]; i++) {
+				if (distance(friends[i], l) != distance + 1) {
+					continue; // node was not on friend's shortest paths
+				}
+				boolean kept = false;
+				cursor.reset(friends[i]);
+				for (int friend = cursor.next(); friend >= 0 && !kept; friend = cursor.next()) {
+					kept = friend != id && distance(friend, l) == distance;
+				}
+				stale[l] = !kept;
+			}
+		}
+		// Id may be reused, and must start out unreached
+		if (id >= 0 && id < bound) {
+			Arrays.fill(distances, id * k, id * k + k, UNREACHED);
+		}
+	}
+
+	/**
+	 * Records that graph was cleared or changed without being reported.
+	 */
+	synchronized void invalidate() {
+		Arrays.fill(stale, true);
+	}
+
+	/**
+	 * Searches again from stale landmarks, first replacing landmarks no longer
+	 * in the graph.
+	 */
+	synchronized void refresh() {
+		ensureCapacity(graph.idBound());
+		int k = landmarks.length;
+		for (int l = 0; l < k; l++) {
+			if (stale[l] && (landmarks[l] < 0 || graph.getNodeById(landmarks[l]) == null)) {
+				landmarks[l] = pick();
+			}
+		}
+		for (int l = 0; l < k; l++) {
+			if (!stale[l]) {
+				continue;
+			}
+			int[] fresh = landmarks[l] < 0 ? new int[0]
+					: ParallelBfs.distances(graph, landmarks[l], ForkJoinPool.commonPool());
+			for (int id = 0; id < bound; id++) {
+				distances[id * k + l] = id < fresh.length ? fresh[id] : UNREACHED;
+			}
+			stale[l] = landmarks[l] < 0;
+		}
+	}
+
+	/**
+	 * Picks a node not yet a landmark.
+	 * 
+	 * @return id of node, or -1 if every node is a landmark
+	 */
+	private int pick() {
+		int best = -1;
+		if (byDegree) {
+			for (int id = 0; id < graph.idBound(); id++) {
+				if (graph.getNodeById(id) != null && !isLandmark(id)
+						&& (best < 0 || graph.degree(id) > graph.degree(best))) {
+					best = id;
+				}
+			}
+			return best;
+		}
+		// Try random ids first, then fall back to a scan
+		for (int tries = 0; tries < 64 && graph.idBound() > 0; tries++) {
+			int id = random.nextInt(graph.idBound());
+			if (graph.getNodeById(id) != null && !isLandmark(id)) {
+				return id;
+			}
+		}
+		for (int id = 0; id < graph.idBound() && best < 0; id++) {
+			if (graph.getNodeById(id) != null && !isLandmark(id)) {
+				best = id;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Determines if node is a landmark.
+	 */
+	private boolean isLandmark(int id) {
+		for (int landmark : landmarks) {
+			if (landmark == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets distance of node from landmark.
+	 */
+	private int distance(int id, int landmark) {
+		return id < 0 || id >= bound ? UNREACHED : distances[id * landmarks.length + landmark];
+	}
+
+	/**
+	 * Lowers distance of node from landmark, and of every node it brings
+	 * closer, breadth first.
+	 */
+	private void relax(int id, int distance, int landmark) {
+		int k = landmarks.length;
+		distances[id * k + landmark] = distance;
+		queue[0] = id;
+		int tail = 1;
+		NeighborCursor friends = graph.newNeighborCursor();
+		for (int head = 0; head < tail; head++) {
+			int current = queue[head];
+			int next = distances[current * k + landmark] + 1;
+			friends.reset(current);
+			for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+				int old = distances[friend * k + landmark];
+				if (old == UNREACHED || next < old) {
+					distances[friend * k + landmark] = next;
+					queue[tail++] = friend;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Grows distances to cover given id bound, new ids being unreached.
+	 */
+	private void ensureCapacity(int ids) {
+		int k = landmarks.length;
+		if (ids > bound) {
+			int length = Math.max(ids, bound + (bound >> 1));
+			distances = Arrays.copyOf(distances, length * k);
+			Arrays.fill(distances, bound * k, length * k, UNREACHED);
+			bound = length;
+		}
+		if (queue.length < bound) {
+			queue = new int[bound];
+		}
+	}
+}
@@ -0,0 +1,357 @@
+/*
+ * File: EdgeBatch.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the sorted, deduplicated form of a batch of edges used
+ * by the bulk methods of IndexedGraphADT.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Batch of edges given as pairs of node ids, sorted by lower end and then by
+ * higher end, with duplicates removed. Each valid pair is packed into one long
+ * key holding its lower id above its higher id, in only as many bits as the
+ * id bound needs, and the keys are sorted by a stable radix sort which carries
+ * the index of each pair along. All scratch space is sized to the batch rather
+ * than to the id bound, keeping small batches cheap in large graphs. Pairs
+ * naming a missing node or the same node twice are dropped, as a single call
+ * would not change the graph for them either.
+ * 
+ * For each distinct edge the batch remembers the first pair naming it, which
+ * is the only pair a series of single calls would report as a change. As the
+ * sort is stable, that is the first pair of each run of equal keys.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class EdgeBatch {
+
+	private static final int RADIX = 12; // bits sorted by each pass of radix sort
+	private static final int SMALL_SORT = 64; // longest run sorted by insertion instead
+
+	private final long[] keys; // lower id << shift | higher id of each distinct edge, ascending
+	private final int[] first; // index of first pair naming each edge
+	private final int size; // number of distinct edges
+	private final int shift; // bits of an id
+	private final long mask; // higher id bits of a key
+
+	/**
+	 * Builds batch from pairs of ids.
+	 * 
+	 * @param graph containing the nodes
+	 * @param pairs ids, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 */
+	EdgeBatch(IndexedGraphADT graph, int[] pairs) {
+		if (pairs == null || pairs.length % 2 != 0) {
+			throw new IllegalArgumentException("Pairs must hold an even number of ids. Please provide valid input.");
+		}
+		int bound = graph.idBound();
+		shift = Math.max(1, 32 - Integer.numberOfLeadingZeros(bound - 1));
+		mask = (1L << shift) - 1;
+		int count = pairs.length / 2;
+		keys = new long[count];
+		first = new int[count];
+		int valid = 0;
+		for (int i = 0; i < count; i++) {
+			if (valid(pairs[2 * i], pairs[2 * i + 1], graph, bound)) {
+				keys[valid] = key(pairs[2 * i], pairs[2 * i + 1]);
+				first[valid++] = i;
+			}
+		}
+		sort(keys, first, valid, 2 * shift);
+		int distinct = 0;
+		for (int i = 0; i < valid; i++) {
+			if (distinct == 0 || keys[i] != keys[distinct - 1]) {
+				keys[distinct] = keys[i];
+				first[distinct++] = first[i];
+			}
+		}
+		size = distinct;
+	}
+
+	/**
+	 * Getter for number of distinct edges
+	 * 
+	 * @return number of edges
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets lower id of edge. Edges are ordered by lower id, and then by higher
+	 * id.
+	 * 
+	 * @param edge index below size()
+	 * @return lower id
+	 */
+	int from(int edge) {
+		return (int) (keys[edge] >>> shift);
+	}
+
+	/**
+	 * Gets higher id of edge.
+	 * 
+	 * @param edge index below size()
+	 * @return higher id
+	 */
+	int to(int edge) {
+		return (int) (keys[edge] & mask);
+	}
+
+	/**
+	 * Gets index of first pair naming edge.
+	 * 
+	 * @param edge index below size()
+	 * @return pair index
+	 */
+	int firstPair(int edge) {
+		return first[edge];
+	}
+
+	/**
+	 * Gets end of run of edges sharing lower id with given edge.
+	 * 
+	 * @param edge index below size()
+	 * @return index after last edge of run
+	 */
+	int runEnd(int edge) {
+		int from = from(edge);
+		int end = edge + 1;
+		while (end < size && from(end) == from) {
+			++end;
+		}
+		return end;
+	}
+
+	/**
+	 * Finds edge of a run by its higher id.
+	 * 
+	 * @param start first edge of run
+	 * @param end   index after last edge of run, as given by runEnd()
+	 * @param to    higher id sought
+	 * @return index of edge, or -1 if run has no edge to that id
+	 */
+	int find(int start, int end, int to) {
+		int low = start;
+		int high = end - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int id = to(middle);
+			if (id < to) {
+				low = middle + 1;
+			} else if (id > to) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Counts given edges of batch at each of their ends, so that the room each
+	 * node needs for its new neighbors can be made at once.
+	 * 
+	 * @param edges indices of edges
+	 * @return number of edges at each node at an end of one, nodes in ascending
+	 *         order
+	 */
+	Degrees degrees(BitSet edges) {
+		int count = edges.cardinality();
+		// Lower ends come in order already, higher ends once sorted
+		int[] higher = new int[count];
+		int j = 0;
+		for (int i = edges.nextSetBit(0); i >= 0; i = edges.nextSetBit(i + 1)) {
+			higher[j++] = to(i);
+		}
+		sort(higher, count, shift);
+		int[] nodes = new int[(int) Math.min(2L * count, 1L << shift)];
+		int[] added = new int[nodes.length];
+		int nodeCount = 0;
+		int i = edges.nextSetBit(0);
+		j = 0;
+		while (i >= 0 || j < count) {
+			int node = Math.min(i >= 0 ? from(i) : Integer.MAX_VALUE, j < count ? higher[j] : Integer.MAX_VALUE);
+			nodes[nodeCount] = node;
+			for (; i >= 0 && from(i) == node; i = edges.nextSetBit(i + 1)) {
+				++added[nodeCount];
+			}
+			for (; j < count && higher[j] == node; j++) {
+				++added[nodeCount];
+			}
+			++nodeCount;
+		}
+		return new Degrees(Arrays.copyOf(nodes, nodeCount), Arrays.copyOf(added, nodeCount));
+	}
+
+	/**
+	 * Packs pair into key ordered by lower id and then higher id.
+	 */
+	private long key(int id1, int id2) {
+		return (long) Math.min(id1, id2) << shift | Math.max(id1, id2);
+	}
+
+	/**
+	 * Sorts keys by their given number of low bits, moving values alongside.
+	 * The sort is stable, so values of equal keys keep their order.
+	 * 
+	 * @param keys   to sort
+	 * @param values moved with keys, or null
+	 * @param length number of keys to sort
+	 * @param bits   number of low bits keys differ in
+	 */
+	private static void sort(long[] keys, int[] values, int length, int bits) {
+		if (length <= SMALL_SORT) {
+			for (int i = 1; i < length; i++) {
+				long key = keys[i];
+				int value = values == null ? 0 : values[i];
+				int j = i;
+				for (; j > 0 && keys[j - 1] > key; j--) {
+					keys[j] = keys[j - 1];
+					if (values != null) {
+						values[j] = values[j - 1];
+					}
+				}
+				keys[j] = key;
+				if (values != null) {
+					values[j] = value;
+				}
+			}
+			return;
+		}
+		long[] fromKeys = keys;
+		int[] fromValues = values;
+		long[] toKeys = new long[length];
+		int[] toValues = values == null ? null : new int[length];
+		int[] starts = new int[1 << RADIX];
+		for (int shift = 0; shift < bits; shift += RADIX) {
+			Arrays.fill(starts, 0);
+			for (int i = 0; i < length; i++) {
+				++starts[(int) (fromKeys[i] >>> shift) & (1 << RADIX) - 1];
+			}
+			for (int digit = 0, start = 0; digit < starts.length; digit++) {
+				int count = starts[digit];
+				starts[digit] = start;
+				start += count;
+			}
+			for (int i = 0; i < length; i++) {
+				int to = starts[(int) (fromKeys[i] >>> shift) & (1 << RADIX) - 1]++;
+				toKeys[to] = fromKeys[i];
+				if (values != null) {
+					toValues[to] = fromValues[i];
+				}
+			}
+			long[] swapKeys = fromKeys;
+			fromKeys = toKeys;
+			toKeys = swapKeys;
+			int[] swapValues = fromValues;
+			fromValues = toValues;
+			toValues = swapValues;
+		}
+		if (fromKeys != keys) {
+			System.arraycopy(fromKeys, 0, keys, 0, length);
+			if (values != null) {
+				System.arraycopy(fromValues, 0, values, 0, length);
+			}
+		}
+	}
+
+	/**
+	 * Sorts ids by a stable radix sort, as sort() does keys.
+	 * 
+	 * @param ids    to sort
+	 * @param length number of ids to sort
+	 * @param bits   number of low bits ids differ in
+	 */
+	private static void sort(int[] ids, int length, int bits) {
+		if (length <= SMALL_SORT) {
+			Arrays.sort(ids, 0, length);
+			return;
+		}
+		int[] from = ids;
+		int[] to = new int[length];
+		int[] starts = new int[1 << RADIX];
+		for (int shift = 0; shift < bits; shift += RADIX) {
+			Arrays.fill(starts, 0);
+			for (int i = 0; i < length; i++) {
+				++starts[from[i] >>> shift & (1 << RADIX) - 1];
+			}
+			for (int digit = 0, start = 0; digit < starts.length; digit++) {
+				int count = starts[digit];
+				starts[digit] = start;
+				start += count;
+			}
+			for (int i = 0; i < length; i++) {
+				to[starts[from[i] >>> shift & (1 << RADIX) - 1]++] = from[i];
+			}
+			int[] swap = from;
+			from = to;
+			to = swap;
+		}
+		if (from != ids) {
+			System.arraycopy(from, 0, ids, 0, length);
+		}
+	}
+
+	/**
+	 * Determines if pair names two different nodes of graph.
+	 */
+	private static boolean valid(int id1, int id2, IndexedGraphADT graph, int bound) {
+		return id1 != id2 && id1 >= 0 && id2 >= 0 && id1 < bound && id2 < bound && graph.getNodeById(id1) != null
+				&& graph.getNodeById(id2) != null;
+	}
+
+	/**
+	 * Number of edges a batch adds at each node, for the nodes it adds any at.
+	 */
+	static class Degrees {
+		private final int[] nodes; // ids of nodes listed, ascending
+		private final int[] added; // edges added at each node
+
+		Degrees(int[] nodes, int[] added) {
+			this.nodes = nodes;
+			this.added = added;
+		}
+
+		/**
+		 * Getter for number of nodes listed
+		 * 
+		 * @return number of nodes
+		 */
+		int count() {
+			return nodes.length;
+		}
+
+		/**
+		 * Gets id of i-th node listed.
+		 * 
+		 * @param i index below count()
+		 * @return node id
+		 */
+		int node(int i) {
+			return nodes[i];
+		}
+
+		/**
+		 * Gets number of edges added at i-th node listed.
+		 * 
+		 * @param i index below count()
+		 * @return number of new neighbors
+		 */
+		int added(int i) {
+			return added[i];
+		}
+	}
+}
@@ -0,0 +1,292 @@
+/*
+ * File: FriendRecommender.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the friend suggestions made by SocialNetwork.java from
+ * mutual friends.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Ranks the people a node is not yet adjacent to by the friends they share.
+ * One scan over the friends of each friend adds a score to every node two
+ * steps away, in a double array indexed by id, and the best k are kept in a
+ * bounded heap as the touched ids are read back. A candidate scores one per
+ * mutual friend, or with Adamic-Adar weighting 1 / log(degree) of each mutual
+ * friend, so friends shared through someone with few friends count for more
+ * than those shared through a hub. Ties go to the lower id.
+ * 
+ * As with PathSearch, the arrays are kept per thread and reused: scores are
+ * cleared through the list of ids touched, and the node's own friends are
+ * excluded by stamping them with a fresh epoch, so a ranking costs only the
+ * nodes two steps away. A batch instead shares workspaces among the tasks of
+ * its own pass, which are dropped with it.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class FriendRecommender {
+
+	private static final Workspaces<FriendRecommender> WORKSPACES = new Workspaces<FriendRecommender>(
+			FriendRecommender::new);
+	private static final int GRAIN = 256; // nodes ranked by one task in a batch
+
+	private double[] scores; // score of each id, 0 for ids not touched
+	private int[] touched; // ids with a nonzero score
+	private int[] stamps; // epoch of ranking that excluded each id
+	private int epoch;
+	private int[] heapIds; // best candidates so far, worst on top
+	private double[] heapScores;
+
+	/*
+	 * Default no-argument constructor
+	 */
+	private FriendRecommender() {
+		scores = new double[0];
+		touched = new int[0];
+		stamps = new int[0];
+		heapIds = new int[0];
+		heapScores = new double[0];
+	}
+
+	/**
+	 * Gets the ranking state of the current thread, sized for given id bound.
+	 * 
+	 * @param bound id bound of graph to rank in
+	 * @return ranking state
+	 */
+	static FriendRecommender workspace(int bound) {
+		return WORKSPACES.get().grow(bound);
+	}
+
+	/**
+	 * Grows arrays to given id bound.
+	 * 
+	 * @return this ranking state
+	 */
+	private FriendRecommender grow(int bound) {
+		if (scores.length < bound) {
+			int length = Math.max(bound, scores.length + (scores.length >> 1));
+			scores = Arrays.copyOf(scores, length);
+			touched = new int[length];
+			stamps = Arrays.copyOf(stamps, length);
+		}
+		return this;
+	}
+
+	/**
+	 * Ranks suggestions for every node, splitting the ids over a pool.
+	 * 
+	 * @param graph    to rank in, which must not change during ranking
+	 * @param k        most suggestions per node
+	 * @param weighted true for Adamic-Adar weighting
+	 * @param pool     to run on
+	 * @return array indexed by id of each node's suggestions, best first, null
+	 *         for ids not in use
+	 */
+	static int[][] recommendAll(IndexedGraphADT graph, int k, boolean weighted, ForkJoinPool pool) {
+		int[][] suggestions = new int[graph.idBound()][];
+		ConcurrentLinkedQueue<FriendRecommender> idle = new ConcurrentLinkedQueue<FriendRecommender>();
+		pool.invoke(new Batch(graph, k, weighted, suggestions, idle, 0, suggestions.length));
+		return suggestions;
+	}
+
+	/**
+	 * Ranks suggestions for a node.
+	 * 
+	 * @param graph    to rank in, whose id bound the workspace was sized for
+	 * @param id       of node to suggest friends for
+	 * @param k        most suggestions to return
+	 * @param weighted true for Adamic-Adar weighting
+	 * @return ids of best k nodes not adjacent to node, best first
+	 */
+	int[] recommend(IndexedGraphADT graph, int id, int k, boolean weighted) {
+		if (k == 0) {
+			return new int[0];
+		}
+		nextEpoch();
+		stamps[id] = epoch;
+		NeighborCursor friends = graph.newNeighborCursor();
+		friends.reset(id);
+		for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+			stamps[friend] = epoch;
+		}
+		// Score every node two steps away through each friend
+		NeighborCursor friendsOfFriend = graph.newNeighborCursor();
+		int count = 0;
+		friends.reset(id);
+		for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+			int degree = graph.degree(friend);
+			if (degree < 2) {
+				continue; // only adjacent to node itself
+			}
+			double weight = weighted ? 1 / Math.log(degree) : 1;
+			friendsOfFriend.reset(friend);
+			for (int other = friendsOfFriend.next(); other >= 0; other = friendsOfFriend.next()) {
+				if (stamps[other] != epoch) {
+					if (scores[other] == 0) {
+						touched[count++] = other;
+					}
+					scores[other] += weight;
+				}
+			}
+		}
+		return best(count, k);
+	}
+
+	/**
+	 * Picks best k touched ids through a heap, clearing their scores.
+	 */
+	private int[] best(int count, int k) {
+		if (heapIds.length < Math.min(k, count)) {
+			heapIds = new int[Math.min(k, count)];
+			heapScores = new double[heapIds.length];
+		}
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			int id = touched[i];
+			double score = scores[id];
+			scores[id] = 0;
+			if (size < k) {
+				heapIds[size] = id;
+				heapScores[size] = score;
+				siftUp(size++);
+			} else if (better(id, score, heapIds[0], heapScores[0])) {
+				heapIds[0] = id;
+				heapScores[0] = score;
+				siftDown(0, size);
+			}
+		}
+		// Pop worst first, filling from the back
+		int[] best = new int[size];
+		for (int last = size - 1; last >= 0; last--) {
+			best[last] = heapIds[0];
+			heapIds[0] = heapIds[last];
+			heapScores[0] = heapScores[last];
+			siftDown(0, last);
+		}
+		return best;
+	}
+
+	/**
+	 * Moves heap entry up past entries it is worse than.
+	 */
+	private void siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!better(heapIds[parent], heapScores[parent], heapIds[index], heapScores[index])) {
+				return;
+			}
+			swap(index, parent);
+			index = parent;
+		}
+	}
+
+	/**
+	 * Moves heap entry down past entries worse than it.
+	 */
+	private void siftDown(int index, int size) {
+		while (true) {
+			int worst = index;
+			for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+				if (better(heapIds[worst], heapScores[worst], heapIds[child], heapScores[child])) {
+					worst = child;
+				}
+			}
+			if (worst == index) {
+				return;
+			}
+			swap(index, worst);
+			index = worst;
+		}
+	}
+
+	/**
+	 * Swaps two heap entries.
+	 */
+	private void swap(int i, int j) {
+		int id = heapIds[i];
+		heapIds[i] = heapIds[j];
+		heapIds[j] = id;
+		double score = heapScores[i];
+		heapScores[i] = heapScores[j];
+		heapScores[j] = score;
+	}
+
+	/**
+	 * Determines if first candidate ranks above second.
+	 */
+	private static boolean better(int id1, double score1, int id2, double score2) {
+		return score1 > score2 || (score1 == score2 && id1 < id2);
+	}
+
+	/**
+	 * Moves to fresh stamp, clearing stamps once epochs run out.
+	 */
+	private void nextEpoch() {
+		if (epoch == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			epoch = 0;
+		}
+		++epoch;
+	}
+
+	/**
+	 * Ranking of suggestions for a range of ids.
+	 */
+	private static class Batch extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final IndexedGraphADT graph;
+		private final int k;
+		private final boolean weighted;
+		private final int[][] suggestions;
+		private final ConcurrentLinkedQueue<FriendRecommender> idle; // workspaces of pass not in use
+		private final int from;
+		private final int to;
+
+		Batch(IndexedGraphADT graph, int k, boolean weighted, int[][] suggestions,
+				ConcurrentLinkedQueue<FriendRecommender> idle, int from, int to) {
+			this.graph = graph;
+			this.k = k;
+			this.weighted = weighted;
+			this.suggestions = suggestions;
+			this.idle = idle;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Batch(graph, k, weighted, suggestions, idle, from, middle),
+						new Batch(graph, k, weighted, suggestions, idle, middle, to));
+				return;
+			}
+			// At most one per worker is in use at a time, as tasks only fork above
+			FriendRecommender ranking = idle.poll();
+			if (ranking == null) {
+				ranking = new FriendRecommender().grow(suggestions.length);
+			}
+			for (int id = from; id < to; id++) {
+				if (graph.getNodeById(id) != null) {
+					suggestions[id] = ranking.recommend(graph, id, k, weighted);
+				}
+			}
+			idle.add(ranking);
+		}
+	}
+}
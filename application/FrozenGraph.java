@@ -0,0 +1,492 @@
+/*
+ * File: FrozenGraph.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides a read-only, compressed implementation of GraphADT
+ * for networks which are loaded once and then queried.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable implementation of GraphADT which stores adjacency compressed, in
+ * the style of WebGraph. Nodes are renumbered densely in vertex order, and the
+ * neighbor ids of each node are sorted and written to a byte array as
+ * variable-length integers (7 bits per byte):
+ * 
+ * <pre>
+ * degree, zigzag(first - node), gap, gap, ...
+ * </pre>
+ * 
+ * where each gap is the difference to the previous neighbor minus one. Most
+ * gaps fit in one or two bytes, so an edge costs a few bytes rather than the
+ * several object references of a mutable Graph. Decoding is a tight loop over
+ * one byte array, which keeps breadth first searches fast.
+ * 
+ * Mutating methods throw UnsupportedOperationException. Use thaw() to get a
+ * mutable copy.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+public class FrozenGraph implements IndexedGraphADT {
+
+	private final PersonTable ids; // name <-> id dictionary, ids are dense
+	private final List<Person> vertices; // all nodes, by id
+	private final int[] offsets; // start of each node's block in data
+	private final byte[] data; // encoded adjacency of all nodes
+	private final int size; // size of graph (number of edges)
+
+	/**
+	 * Constructor used by of()
+	 */
+	private FrozenGraph(PersonTable ids, Person[] people, int[] offsets, byte[] data, int size) {
+		this.ids = ids;
+		this.vertices = Collections.unmodifiableList(Arrays.asList(people));
+		this.offsets = offsets;
+		this.data = data;
+		this.size = size;
+	}
+
+	/**
+	 * Builds compressed copy of given graph. Nodes keep the order of
+	 * graph.getVertices() but are renumbered 0 to order - 1.
+	 * 
+	 * @param graph to copy
+	 * @return frozen copy of graph
+	 */
+	public static FrozenGraph of(IndexedGraphADT graph) {
+		if (graph == null) {
+			throw new IllegalArgumentException("Graph is null. Please provide valid input.");
+		}
+		if (graph instanceof FrozenGraph) {
+			return (FrozenGraph) graph;
+		}
+		// Encode a snapshot, so that concurrent changes cannot tear the copy
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return encode(view);
+		} finally {
+			graph.release(view);
+		}
+	}
+
+	/**
+	 * Encodes graph which does not change while being read.
+	 */
+	private static FrozenGraph encode(IndexedGraphADT graph) {
+		List<Person> source = graph.getVertices();
+		int order = source.size();
+		// Renumber nodes densely, in vertex order
+		PersonTable ids = new PersonTable(order);
+		Person[] people = new Person[order];
+		int[] originals = new int[order]; // id in graph of each new id
+		int[] renumbered = new int[graph.idBound()]; // new id of each id in graph
+		for (int i = 0; i < order; i++) {
+			Person original = source.get(i);
+			people[i] = ids.intern(original.getName());
+			originals[i] = original.getId();
+			renumbered[originals[i]] = i;
+		}
+		// Encode sorted neighbor list of each node
+		int[] offsets = new int[order + 1];
+		Encoder encoder = new Encoder(Math.max(16, order * 2));
+		int[] friends = new int[16];
+		NeighborCursor cursor = graph.newNeighborCursor();
+		long degrees = 0;
+		for (int i = 0; i < order; i++) {
+			int original = originals[i];
+			int degree = graph.degree(original);
+			if (degree > friends.length) {
+				friends = new int[Math.max(degree, friends.length * 2)];
+			}
+			cursor.reset(original);
+			int count = 0;
+			for (int friend = cursor.next(); friend >= 0; friend = cursor.next()) {
+				friends[count++] = renumbered[friend];
+			}
+			Arrays.sort(friends, 0, count);
+			offsets[i] = encoder.length();
+			encoder.write(count);
+			if (count > 0) {
+				encoder.write(zigzag(friends[0] - i));
+				for (int j = 1; j < count; j++) {
+					encoder.write(friends[j] - friends[j - 1] - 1);
+				}
+			}
+			degrees += count;
+		}
+		offsets[order] = encoder.length();
+		return new FrozenGraph(ids, people, offsets, encoder.toArray(), (int) (degrees / 2));
+	}
+
+	/**
+	 * Builds mutable copy of this graph.
+	 * 
+	 * @return new Graph with same nodes, in same order, and same edges
+	 */
+	public Graph thaw() {
+		Graph graph = new Graph();
+		for (Person person : vertices) {
+			graph.addNode(person);
+		}
+		Cursor cursor = new Cursor();
+		for (int id = 0; id < vertices.size(); id++) {
+			Person person = vertices.get(id);
+			cursor.reset(id);
+			for (int friend = cursor.next(); friend >= 0; friend = cursor.next()) {
+				// Add each edge once, from its lower end
+				if (id < friend) {
+					graph.addEdge(person, vertices.get(friend));
+				}
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Getter for number of bytes used by encoded adjacency.
+	 * 
+	 * @return encoded size in bytes
+	 */
+	public int encodedBytes() {
+		return data.length;
+	}
+
+	/**
+	 * Not supported, graph is read-only.
+	 */
+	public void addEdge(Person node1, Person node2) {
+		throw new UnsupportedOperationException("Frozen graph cannot be modified. Thaw it first.");
+	}
+
+	/**
+	 * Not supported, graph is read-only.
+	 */
+	public void removeEdge(Person node1, Person node2) {
+		throw new UnsupportedOperationException("Frozen graph cannot be modified. Thaw it first.");
+	}
+
+	/**
+	 * Not supported, graph is read-only.
+	 */
+	public void addNode(Person node) {
+		throw new UnsupportedOperationException("Frozen graph cannot be modified. Thaw it first.");
+	}
+
+	/**
+	 * Not supported, graph is read-only.
+	 */
+	public void removeNode(Person node) {
+		throw new UnsupportedOperationException("Frozen graph cannot be modified. Thaw it first.");
+	}
+
+	/**
+	 * Not supported, graph is read-only.
+	 */
+	public void clear() {
+		throw new UnsupportedOperationException("Frozen graph cannot be modified. Thaw it first.");
+	}
+
+	/**
+	 * Gets all neighbors of given person in graph
+	 * 
+	 * @param node in question
+	 * @return set of people adjacent to node
+	 */
+	public Set<Person> getNeighbors(Person node) {
+		Person person = node == null ? null : ids.resolve(node);
+		if (person == null) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		HashSet<Person> neighbors = new HashSet<Person>(degree(person.getId()) * 4 / 3 + 1);
+		Cursor cursor = new Cursor();
+		cursor.reset(person.getId());
+		for (int friend = cursor.next(); friend >= 0; friend = cursor.next()) {
+			neighbors.add(vertices.get(friend));
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Gets person with given name
+	 * 
+	 * @param name, name of person
+	 */
+	public Person getNode(String name) {
+		Person person = ids.lookup(name);
+		if (person == null) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		return person;
+	}
+
+	/**
+	 * Gets all nodes in the graph.
+	 * 
+	 * @return Set of Persons in graph
+	 */
+	public Set<Person> getAllNodes() {
+		return new HashSet<Person>(vertices);
+	}
+
+	/**
+	 * Getter for order of graph.
+	 * 
+	 * @return order of graph
+	 */
+	public int order() {
+		return vertices.size();
+	}
+
+	/**
+	 * Getter for size of graph.
+	 * 
+	 * @return size of graph.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Determines if person with given name is present in graph.
+	 * 
+	 * @param name of person being searched for
+	 * @return true if person is present, false otherwise
+	 */
+	public boolean contains(String name) {
+		return ids.lookup(name) != null;
+	}
+
+	/**
+	 * Gets the interned instance of given person without allocating.
+	 * 
+	 * @param name of person
+	 * @return person in graph with given name, or null if not present
+	 */
+	public Person findNode(String name) {
+		return ids.lookup(name);
+	}
+
+	/**
+	 * Getter for read-only list of all nodes in graph, indexed by id.
+	 * 
+	 * @return list of nodes
+	 */
+	public List<Person> getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Gets id of person with given name.
+	 * 
+	 * @param name of person
+	 * @return id of person, or -1 if person is not in the graph
+	 */
+	public int idOf(String name) {
+		return ids.idOf(name);
+	}
+
+	/**
+	 * Gets person with given id.
+	 * 
+	 * @param id of person
+	 * @return person, or null if no person has the id
+	 */
+	public Person getNodeById(int id) {
+		return ids.get(id);
+	}
+
+	/**
+	 * Exclusive upper bound on the ids of nodes in the graph, equal to the order
+	 * as ids are dense.
+	 * 
+	 * @return id bound
+	 */
+	public int idBound() {
+		return vertices.size();
+	}
+
+	/**
+	 * Gets number of neighbors of node with given id.
+	 * 
+	 * @param id of node
+	 * @return degree of node
+	 */
+	public int degree(int id) {
+		// Degree is the first varint of the node's block
+		int position = offsets[id];
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = data[position++];
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * Copies ids of all neighbors of node into buffer, in increasing order.
+	 * 
+	 * @param id     of node
+	 * @param buffer to copy into, must have room for degree(id) ids
+	 * @return number of ids copied
+	 */
+	public int getNeighborIds(int id, int[] buffer) {
+		Cursor cursor = new Cursor();
+		cursor.reset(id);
+		int count = 0;
+		for (int friend = cursor.next(); friend >= 0; friend = cursor.next()) {
+			buffer[count++] = friend;
+		}
+		return count;
+	}
+
+	/**
+	 * Determines if there is an edge between two nodes. Neighbors are sorted, so
+	 * decoding stops as soon as it passes id2.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 * @return true if nodes are adjacent
+	 */
+	public boolean hasEdge(int id1, int id2) {
+		if (degree(id2) < degree(id1)) {
+			int swap = id1;
+			id1 = id2;
+			id2 = swap;
+		}
+		Cursor cursor = new Cursor();
+		cursor.reset(id1);
+		for (int friend = cursor.next(); friend >= 0 && friend <= id2; friend = cursor.next()) {
+			if (friend == id2) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a cursor which decodes neighbor ids, in increasing order, without
+	 * allocating.
+	 * 
+	 * @return new cursor
+	 */
+	public NeighborCursor newNeighborCursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Maps signed value to unsigned so small negative values encode short.
+	 */
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * Inverse of zigzag().
+	 */
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Cursor which decodes a node's block of varints.
+	 */
+	private class Cursor implements NeighborCursor {
+		private int position; // next byte to decode
+		private int remaining; // neighbors left to decode
+		private int previous; // last neighbor returned, or node id before first
+		private boolean first; // true until first neighbor is decoded
+
+		@Override
+		public void reset(int id) {
+			this.position = offsets[id];
+			this.remaining = readVarint();
+			this.previous = id;
+			this.first = true;
+		}
+
+		@Override
+		public int next() {
+			if (this.remaining == 0) {
+				return -1;
+			}
+			--this.remaining;
+			if (this.first) {
+				// First neighbor is relative to node itself, later ones to previous
+				this.first = false;
+				this.previous += unzigzag(readVarint());
+			} else {
+				this.previous += readVarint() + 1;
+			}
+			return this.previous;
+		}
+
+		/**
+		 * Decodes varint at current position.
+		 */
+		private int readVarint() {
+			int value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = data[this.position++];
+				value |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Growable byte buffer which writes varints.
+	 */
+	private static class Encoder {
+		private byte[] bytes;
+		private int length;
+
+		Encoder(int capacity) {
+			bytes = new byte[capacity];
+		}
+
+		int length() {
+			return length;
+		}
+
+		/**
+		 * Appends non-negative value, 7 bits per byte, low bits first.
+		 */
+		void write(int value) {
+			if (length + 5 > bytes.length) {
+				long grown = Math.max(length + 5L, (long) bytes.length * 3 / 2);
+				if (grown > Integer.MAX_VALUE - 8) {
+					throw new IllegalStateException("Graph is too large to freeze.");
+				}
+				bytes = Arrays.copyOf(bytes, (int) grown);
+			}
+			while ((value & ~0x7F) != 0) {
+				bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte) value;
+		}
+
+		byte[] toArray() {
+			return Arrays.copyOf(bytes, length);
+		}
+	}
+}
@@ -17,6 +17,8 @@ package application;
 import java.util.List;
 import java.util.Set;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.HashMap;
 
@@ -24,14 +26,21 @@ import java.util.HashMap;
  * Implementation of GraphADT, an unweighted, undirected graph, implementing
  * GraphADT.
  * 
+ * Each node's friends are kept as a NeighborSet of ids, indexed by the node's
+ * id, so edge membership checks are constant time even for users with very
+ * many friends. Each node also records its position in the vertex list, so a
+ * node is removed by moving the last vertex into its place.
+ * 
  * @author Matthew Karrmann
- *
+ * 
  */
-public class Graph implements GraphADT {
+public class Graph implements IndexedGraphADT {
 
-	// Adjacency list which stores nodes of edges (persons and friendships_
-	private HashMap<Person, List<Person>> adjacencyList;
+	// Adjacency list which stores neighbor ids of each node, indexed by id
+	private NeighborSet[] adjacencyList;
 	private ArrayList<Person> vertices;
+	private int[] positions; // index of each node in vertices, indexed by id
+	private PersonTable ids; // assigns each node its id
 	public ArrayList<Person> getVertices() {
 		return vertices;
 	}
@@ -44,8 +53,10 @@ public class Graph implements GraphADT {
 	 */
 	public Graph() {
 		// Initialize instance variables to reflect empty graph
-		adjacencyList = new HashMap<Person, List<Person>>();
+		adjacencyList = new NeighborSet[16];
 		vertices = new ArrayList<Person>();
+		positions = new int[16];
+		ids = new PersonTable();
 		this.size = 0;
 		this.order = 0;
 	}
@@ -59,10 +70,8 @@ public class Graph implements GraphADT {
 		// Prevents adding null Person
 		if (node == null || node.getName() == null) {
 			throw new IllegalArgumentException("Person is null. Please provide valid input.");
-		} else if (!this.adjacencyList.containsKey(node)) {
-			this.adjacencyList.put(node, new ArrayList<Person>()); // add to graph
-			vertices.add(node);
-			++this.order; // Increment order of graph
+		} else {
+			insertNode(node);
 		}
 	}
 
@@ -77,28 +86,121 @@ public class Graph implements GraphADT {
 		if (node1 == null || node1.getName() == null || node2 == null || node2.getName() == null) {
 			throw new IllegalArgumentException("One or both persons are null. Please provide valid input.");
 		} else {
-			// If first node is not present, add it and increment order
-			if (!this.adjacencyList.containsKey(node1)) {
-				this.adjacencyList.put(node1, new ArrayList<Person>());
-				vertices.add(node1);
-				++this.order;
-			}
-			// If second node is not present, add it and increment order
-			if (!this.adjacencyList.containsKey(node2)) {
-				this.adjacencyList.put(node2, new ArrayList<Person>());
-				vertices.add(node2);
-				++this.order;
-			}
-			// Checks that edge does not already exist and that nodes are not equal
-			if (!this.adjacencyList.get(node1).contains(node2) && !node1.equals(node2)) {
+			// Add either node if not present, incrementing order
+			Person person1 = insertNode(node1);
+			Person person2 = insertNode(node2);
+			int id1 = person1.getId();
+			int id2 = person2.getId();
+			// Checks that nodes are not equal and that edge does not already exist
+			if (id1 != id2 && this.adjacencyList[id1].add(id2)) {
 				// Add each node to the other's list
-				this.adjacencyList.get(node1).add(node2);
-				this.adjacencyList.get(node2).add(node1);
+				this.adjacencyList[id2].add(id1);
 				++this.size; // Increment size of graph
 			}
 		}
 	}
 
+	/**
+	 * Adds edges between pairs of nodes given by id. The new edges at each node
+	 * are counted first, so that each neighbor set is grown once, and the sets
+	 * are then filled without looking for each edge again.
+	 * 
+	 * @param pairs ids, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if edge of pair i was added
+	 */
+	public BitSet addEdges(int[] pairs) {
+		EdgeBatch batch = new EdgeBatch(this, pairs);
+		BitSet added = new BitSet(pairs.length / 2);
+		BitSet fresh = new BitSet(batch.size()); // batch edges not in graph
+		for (int i = 0; i < batch.size(); i++) {
+			if (!this.adjacencyList[batch.from(i)].contains(batch.to(i))) {
+				fresh.set(i);
+				added.set(batch.firstPair(i));
+			}
+		}
+		EdgeBatch.Degrees degrees = batch.degrees(fresh);
+		for (int i = 0; i < degrees.count(); i++) {
+			NeighborSet friends = this.adjacencyList[degrees.node(i)];
+			friends.ensureCapacity(friends.size() + degrees.added(i));
+		}
+		for (int i = fresh.nextSetBit(0); i >= 0; i = fresh.nextSetBit(i + 1)) {
+			this.adjacencyList[batch.from(i)].addAbsent(batch.to(i));
+			this.adjacencyList[batch.to(i)].addAbsent(batch.from(i));
+			++this.size;
+		}
+		return added;
+	}
+
+	/**
+	 * Replaces the contents of the graph with a whole network. User i gets id
+	 * i, each neighbor set is sized once to the user's degree, and friendships
+	 * are filled in without looking for them first, as each is listed once. The
+	 * new graph is built aside and only then replaces the old one.
+	 * 
+	 * @param names   distinct name of each user, by number
+	 * @param counts  friends numbered above each user
+	 * @param friends friends numbered above each user, user by user
+	 */
+	public void load(String[] names, int[] counts, int[] friends) {
+		BinarySnapshot.check(names, counts, friends);
+		int count = names.length;
+		PersonTable table = new PersonTable(count);
+		ArrayList<Person> people = new ArrayList<Person>(count);
+		int length = Math.max(16, count);
+		int[] places = new int[length];
+		for (int i = 0; i < count; i++) {
+			Person person = table.intern(names[i]);
+			if (person.getId() != i) {
+				throw new IllegalArgumentException("Names are not distinct. Please provide valid input.");
+			}
+			people.add(person);
+			places[i] = i;
+		}
+		// Degree of each user is its own count plus the times it is listed
+		int[] degrees = Arrays.copyOf(counts, count);
+		for (int friend : friends) {
+			++degrees[friend];
+		}
+		NeighborSet[] sets = new NeighborSet[length];
+		for (int i = 0; i < count; i++) {
+			sets[i] = new NeighborSet();
+			sets[i].ensureCapacity(degrees[i]);
+		}
+		int next = 0;
+		for (int i = 0; i < count; i++) {
+			for (int end = next + counts[i]; next < end; next++) {
+				sets[i].addAbsent(friends[next]);
+				sets[friends[next]].addAbsent(i);
+			}
+		}
+		this.adjacencyList = sets;
+		this.vertices = people;
+		this.positions = places;
+		this.ids = table;
+		this.size = friends.length;
+		this.order = count;
+	}
+
+	/**
+	 * Removes edges between pairs of nodes given by id, straight from the
+	 * neighbor sets rather than looking each person up by name.
+	 * 
+	 * @param pairs ids, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if edge of pair i was removed
+	 */
+	public BitSet removeEdges(int[] pairs) {
+		EdgeBatch batch = new EdgeBatch(this, pairs);
+		BitSet removed = new BitSet(pairs.length / 2);
+		for (int i = 0; i < batch.size(); i++) {
+			if (this.adjacencyList[batch.from(i)].remove(batch.to(i))) {
+				this.adjacencyList[batch.to(i)].remove(batch.from(i));
+				--this.size;
+				removed.set(batch.firstPair(i));
+			}
+		}
+		return removed;
+	}
+
 	/**
 	 * Removes edge between two people by removing each person from the other's
 	 * list.
@@ -107,12 +209,13 @@ public class Graph implements GraphADT {
 	 * @param node2, second node
 	 */
 	public void removeEdge(Person node1, Person node2) {
+		Person person1 = findNode(node1);
+		Person person2 = findNode(node2);
 		// Checks that both people are present
-		if (this.adjacencyList.containsKey(node1) && this.adjacencyList.containsKey(node2)) {
+		if (person1 != null && person2 != null) {
 			// If edge is present, remove it
-			if (this.adjacencyList.get(node1).contains(node2)) {
-				this.adjacencyList.get(node1).remove(node2);
-				this.adjacencyList.get(node2).remove(node1);
+			if (this.adjacencyList[person1.getId()].remove(person2.getId())) {
+				this.adjacencyList[person2.getId()].remove(person1.getId());
 				--this.size; // Decrement size of graph
 			}
 		} else {
@@ -128,18 +231,28 @@ public class Graph implements GraphADT {
 	 * @param node in question
 	 */
 	public void removeNode(Person node) {
+		Person person = findNode(node);
 		// If person is present in graph
-		if (this.adjacencyList.containsKey(node)) {
-			// Get list of all adjacent nodes
-			ArrayList<Person> friendList = (ArrayList<Person>) this.adjacencyList.get(node);
-			// Removes person from list of each from
-			for (Person friend : friendList) {
-				--this.size; // Decrement size for each edge removed
-				this.adjacencyList.get(friend).remove(node);
+		if (person != null) {
+			int id = person.getId();
+			// Get set of all adjacent nodes
+			NeighborSet friendList = this.adjacencyList[id];
+			// Removes person from list of each friend
+			for (int slot = 0; slot < friendList.slotCount(); slot++) {
+				int friend = friendList.slotAt(slot);
+				if (friend != NeighborSet.EMPTY) {
+					--this.size; // Decrement size for each edge removed
+					this.adjacencyList[friend].remove(id);
+				}
+			}
+			// Remove person from graph itself, moving last vertex into its position
+			this.adjacencyList[id] = null;
+			Person last = this.vertices.remove(this.vertices.size() - 1);
+			if (last != person) {
+				this.vertices.set(this.positions[id], last);
+				this.positions[last.getId()] = this.positions[id];
 			}
-			// Remove person from graph itself
-			this.adjacencyList.remove(node);
-			this.vertices.remove(node);
+			this.ids.remove(person.getName());
 			--this.order; // Decrement order of graph
 		} else {
 			// If person is not present, throw exception.
@@ -154,8 +267,17 @@ public class Graph implements GraphADT {
 	 * @return set of people adjacent to node
 	 */
 	public Set<Person> getNeighbors(Person node) {
-		if (this.adjacencyList.containsKey(node)) {
-			return new HashSet<Person>(this.adjacencyList.get(node));
+		Person person = findNode(node);
+		if (person != null) {
+			NeighborSet friendList = this.adjacencyList[person.getId()];
+			HashSet<Person> friends = new HashSet<Person>(friendList.size() * 4 / 3 + 1);
+			for (int slot = 0; slot < friendList.slotCount(); slot++) {
+				int friend = friendList.slotAt(slot);
+				if (friend != NeighborSet.EMPTY) {
+					friends.add(this.ids.get(friend));
+				}
+			}
+			return friends;
 		} else {
 			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
 		}
@@ -167,13 +289,11 @@ public class Graph implements GraphADT {
 	 * @param name, name of person
 	 */
 	public Person getNode(String name) {
-		// If name is present (note that hashcode and equals of Person class are
-		// overriden to allow for
-		// this lookup), then return new Person with given name (identical to instance
-		// of Person being
-		// looked for)
-		if (this.adjacencyList.containsKey(new Person(name))) {
-			return new Person(name);
+		// If name is present, return the interned instance (looked up by name, so no
+		// Person needs to be allocated)
+		Person person = ids.lookup(name);
+		if (person != null) {
+			return person;
 		} else {
 			// If person is not present, throw exception
 			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
@@ -186,8 +306,8 @@ public class Graph implements GraphADT {
 	 * @return Set of Persons in graph
 	 */
 	public Set<Person> getAllNodes() {
-		// Returns keyset of adjacency list as a HashSet
-		return new HashSet<Person>(this.adjacencyList.keySet());
+		// Returns vertices as a HashSet
+		return new HashSet<Person>(this.vertices);
 	}
 
 	/**
@@ -215,19 +335,184 @@ public class Graph implements GraphADT {
 	 * @return true if person is present, false otherwise
 	 */
 	public boolean contains(String name) {
-		if (this.adjacencyList.containsKey(new Person(name))) {
-			return true;
-		} else {
-			return false;
+		return ids.lookup(name) != null;
+	}
+
+	/**
+	 * Removes all nodes and edges from the graph.
+	 */
+	public void clear() {
+		Arrays.fill(adjacencyList, null);
+		vertices.clear();
+		ids.clear();
+		this.size = 0;
+		this.order = 0;
+	}
+
+	/**
+	 * Gets id of person with given name.
+	 * 
+	 * @param name of person
+	 * @return id of person, or -1 if person is not in the graph
+	 */
+	public int idOf(String name) {
+		return ids.idOf(name);
+	}
+
+	/**
+	 * Gets person with given id.
+	 * 
+	 * @param id of person
+	 * @return person, or null if no person has the id
+	 */
+	public Person getNodeById(int id) {
+		return ids.get(id);
+	}
+
+	/**
+	 * Exclusive upper bound on the ids of nodes in the graph.
+	 * 
+	 * @return id bound
+	 */
+	public int idBound() {
+		return ids.bound();
+	}
+
+	/**
+	 * Gets number of neighbors of node with given id.
+	 * 
+	 * @param id of node
+	 * @return degree of node
+	 */
+	public int degree(int id) {
+		return this.adjacencyList[id].size();
+	}
+
+	/**
+	 * Copies ids of all neighbors of node into buffer.
+	 * 
+	 * @param id     of node
+	 * @param buffer to copy into, must have room for degree(id) ids
+	 * @return number of ids copied
+	 */
+	public int getNeighborIds(int id, int[] buffer) {
+		return this.adjacencyList[id].copyTo(buffer);
+	}
+
+	/**
+	 * Determines if there is an edge between two nodes.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 * @return true if nodes are adjacent
+	 */
+	public boolean hasEdge(int id1, int id2) {
+		return this.adjacencyList[id1].contains(id2);
+	}
+
+	/**
+	 * Creates a cursor for scanning neighbor ids without allocating.
+	 * 
+	 * @return new cursor
+	 */
+	public NeighborCursor newNeighborCursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Gets the interned instance of given person without allocating.
+	 * 
+	 * @param name of person
+	 * @return person in graph with given name, or null if not present
+	 */
+	public Person findNode(String name) {
+		return ids.lookup(name);
+	}
+
+	/**
+	 * Adds node to graph if not present.
+	 * 
+	 * @param node to add
+	 * @return interned instance of node
+	 */
+	private Person insertNode(Person node) {
+		Person person = ids.lookup(node.getName());
+		if (person == null) {
+			person = ids.intern(node.getName());
+			int id = person.getId();
+			// Grow id-indexed arrays if new id does not fit
+			if (id >= this.adjacencyList.length) {
+				int length = Math.max(id + 1, this.adjacencyList.length * 2);
+				this.adjacencyList = Arrays.copyOf(this.adjacencyList, length);
+				this.positions = Arrays.copyOf(this.positions, length);
+			}
+			this.adjacencyList[id] = new NeighborSet(); // add to graph
+			this.positions[id] = vertices.size();
+			vertices.add(person);
+			++this.order; // Increment order of graph
 		}
+		return person;
+	}
+
+	/**
+	 * Resolves given person to its interned instance in this graph.
+	 * 
+	 * @param node in question
+	 * @return interned instance, or null if node is null or not present
+	 */
+	private Person findNode(Person node) {
+		return node == null ? null : ids.resolve(node);
 	}
 
 	/**
-	 * Getter for adjacency list
+	 * Builds compressed, read-only copy of the graph for networks which are
+	 * queried far more than they are changed. FrozenGraph.thaw() turns it back
+	 * into a Graph.
 	 * 
-	 * @return current adjacency list
+	 * @return frozen copy of graph
+	 */
+	public FrozenGraph freeze() {
+		return FrozenGraph.of(this);
+	}
+
+	/**
+	 * Builds adjacency list of the graph. The graph no longer stores its edges in
+	 * this form, so the map is a copy and changes to it do not affect the graph.
+	 * 
+	 * @return copy of current adjacency list
 	 */
 	public HashMap<Person, List<Person>> getAdjacencyList() {
-		return this.adjacencyList;
+		HashMap<Person, List<Person>> copy = new HashMap<Person, List<Person>>(this.order * 4 / 3 + 1);
+		for (Person person : this.vertices) {
+			copy.put(person, new ArrayList<Person>(getNeighbors(person)));
+		}
+		return copy;
+	}
+
+	/**
+	 * Cursor which walks the slots of a node's NeighborSet.
+	 */
+	private class Cursor implements NeighborCursor {
+		private NeighborSet friends; // set being scanned
+		private int slot; // next slot to read
+		private int slotCount; // number of slots in set
+
+		@Override
+		public void reset(int id) {
+			this.friends = adjacencyList[id];
+			this.slot = 0;
+			this.slotCount = this.friends.slotCount();
+		}
+
+		@Override
+		public int next() {
+			while (this.slot < this.slotCount) {
+				int friend = this.friends.slotAt(this.slot++);
+				if (friend != NeighborSet.EMPTY) {
+					return friend;
+				}
+			}
+			return -1;
+		}
 	}
-}
\ No newline at end of file
+}
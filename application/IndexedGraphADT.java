@@ -0,0 +1,426 @@
+/*
+ * File: IndexedGraphADT.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file extends the GraphADT interface with the lookups used by
+ * SocialNetwork and with an integer id view of the graph.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Graph whose nodes are numbered with dense integer ids. Ids lie in [0,
+ * idBound()) and stay fixed for as long as the node is in the graph, which lets
+ * traversals keep their bookkeeping in primitive arrays instead of hash maps.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+public interface IndexedGraphADT extends GraphADT {
+
+	/**
+	 * Determines if person with given name is present in graph.
+	 * 
+	 * @param name of person being searched for
+	 * @return true if person is present, false otherwise
+	 */
+	public boolean contains(String name);
+
+	/**
+	 * Gets the interned instance of person with given name. Unlike getNode, does
+	 * not allocate and does not throw when the person is absent.
+	 * 
+	 * @param name of person
+	 * @return person in graph with given name, or null if not present
+	 */
+	public Person findNode(String name);
+
+	/**
+	 * Gets list of all nodes in the graph, in insertion order for graphs with no
+	 * removals.
+	 * 
+	 * @return list of Persons in graph
+	 */
+	public List<Person> getVertices();
+
+	/**
+	 * Removes all nodes and edges from the graph.
+	 */
+	public void clear();
+
+	/**
+	 * Gets id of person with given name.
+	 * 
+	 * @param name of person
+	 * @return id of person, or -1 if person is not in the graph
+	 */
+	public int idOf(String name);
+
+	/**
+	 * Gets person with given id.
+	 * 
+	 * @param id of person
+	 * @return person, or null if no person has the id
+	 */
+	public Person getNodeById(int id);
+
+	/**
+	 * Exclusive upper bound on the ids of nodes in the graph. Arrays of this
+	 * length can be indexed by any id.
+	 * 
+	 * @return id bound
+	 */
+	public int idBound();
+
+	/**
+	 * Gets number of neighbors of node with given id.
+	 * 
+	 * @param id of node
+	 * @return degree of node
+	 */
+	public int degree(int id);
+
+	/**
+	 * Copies ids of all neighbors of node into buffer.
+	 * 
+	 * @param id     of node
+	 * @param buffer to copy into, must have room for degree(id) ids
+	 * @return number of ids copied
+	 */
+	public int getNeighborIds(int id, int[] buffer);
+
+	/**
+	 * Determines if there is an edge between two nodes.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 * @return true if nodes are adjacent
+	 */
+	public boolean hasEdge(int id1, int id2);
+
+	/**
+	 * Creates a cursor for scanning neighbor ids without allocating. One cursor
+	 * can be reused for every node of a traversal.
+	 * 
+	 * @return new cursor
+	 */
+	public NeighborCursor newNeighborCursor();
+
+	/**
+	 * Adds edge between people, adding either person if not present.
+	 * Implementations which allow concurrent changes do so atomically.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 * @return true if edge was added, false if it was already present or the
+	 *         nodes are equal
+	 */
+	public default boolean addEdgeIfAbsent(Person node1, Person node2) {
+		int origSize = size();
+		addEdge(node1, node2);
+		return size() > origSize;
+	}
+
+	/**
+	 * Removes edge between people if present.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 * @return true if edge was removed, false if it or either person was not
+	 *         present
+	 */
+	public default boolean removeEdgeIfPresent(Person node1, Person node2) {
+		Person person1 = node1 == null ? null : findNode(node1.getName());
+		Person person2 = node2 == null ? null : findNode(node2.getName());
+		if (person1 == null || person2 == null || !hasEdge(person1.getId(), person2.getId())) {
+			return false;
+		}
+		removeEdge(person1, person2);
+		return true;
+	}
+
+	/**
+	 * Adds node to graph if not present.
+	 * 
+	 * @param node to add
+	 * @return true if node was added
+	 */
+	public default boolean addNodeIfAbsent(Person node) {
+		if (node != null && contains(node.getName())) {
+			return false;
+		}
+		addNode(node);
+		return true;
+	}
+
+	/**
+	 * Removes node, along with all edges connecting to it, if present.
+	 * 
+	 * @param node to remove
+	 * @return true if node was removed
+	 */
+	public default boolean removeNodeIfPresent(Person node) {
+		Person person = node == null ? null : findNode(node.getName());
+		if (person == null) {
+			return false;
+		}
+		removeNode(person);
+		return true;
+	}
+
+	/**
+	 * Removes node like removeNodeIfPresent(), but keeps its id from being given
+	 * to another node until reclaim() is called with it, so that whoever removed
+	 * it can report the removal by id to an index of the graph without holding a
+	 * lock other writers need. Graphs which are not safe for concurrent use free
+	 * the id at once, as their writers take turns anyway.
+	 * 
+	 * @param node to remove
+	 * @return true if node was removed, in which case reclaim() must follow
+	 */
+	public default boolean retireNodeIfPresent(Person node) {
+		return removeNodeIfPresent(node);
+	}
+
+	/**
+	 * Frees id of node removed by retireNodeIfPresent() for reuse.
+	 * 
+	 * @param id of removed node
+	 */
+	public default void reclaim(int id) {
+	}
+
+	/**
+	 * Adds people with given names, in order, skipping names already present.
+	 * 
+	 * @param names of people to add
+	 * @return set with bit i set if i-th name was added
+	 */
+	public default BitSet addNodes(Collection<String> names) {
+		if (names == null) {
+			throw new IllegalArgumentException("Names are null. Please provide valid input.");
+		}
+		BitSet added = new BitSet(names.size());
+		int i = 0;
+		for (String name : names) {
+			// Only allocate for people new to the graph
+			if (name != null && findNode(name) == null && addNodeIfAbsent(new Person(name))) {
+				added.set(i);
+			}
+			++i;
+		}
+		return added;
+	}
+
+	/**
+	 * Adds edges between pairs of people, adding people not present. Has the
+	 * same effect as calling addEdgeIfAbsent() on each pair in turn, but people
+	 * are added first, in the order they first appear, and the edges are then
+	 * sorted and deduplicated and added by addEdges(int[]). Pairs with a null
+	 * name are skipped.
+	 * 
+	 * @param pairs names, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if edge of pair i was added
+	 */
+	public default BitSet addEdges(String[] pairs) {
+		if (pairs == null || pairs.length % 2 != 0) {
+			throw new IllegalArgumentException("Pairs must hold an even number of names. Please provide valid input.");
+		}
+		int[] ids = new int[pairs.length];
+		for (int i = 0; i < pairs.length; i += 2) {
+			if (pairs[i] == null || pairs[i + 1] == null) {
+				ids[i] = -1;
+				ids[i + 1] = -1;
+				continue;
+			}
+			for (int j = i; j < i + 2; j++) {
+				Person person = findNode(pairs[j]);
+				if (person == null) {
+					addNodeIfAbsent(new Person(pairs[j]));
+					person = findNode(pairs[j]);
+				}
+				ids[j] = person == null ? -1 : person.getId();
+			}
+		}
+		return addEdges(ids);
+	}
+
+	/**
+	 * Adds edges between pairs of nodes given by id. Has the same effect as
+	 * calling addEdgeIfAbsent() on each pair in turn. Pairs naming a missing node
+	 * are skipped.
+	 * 
+	 * @param pairs ids, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if edge of pair i was added
+	 */
+	public default BitSet addEdges(int[] pairs) {
+		EdgeBatch batch = new EdgeBatch(this, pairs);
+		BitSet added = new BitSet(pairs.length / 2);
+		for (int i = 0; i < batch.size(); i++) {
+			Person person1 = getNodeById(batch.from(i));
+			Person person2 = getNodeById(batch.to(i));
+			if (person1 != null && person2 != null && addEdgeIfAbsent(person1, person2)) {
+				added.set(batch.firstPair(i));
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Removes edges between pairs of people. Has the same effect as calling
+	 * removeEdgeIfPresent() on each pair in turn.
+	 * 
+	 * @param pairs names, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if edge of pair i was removed
+	 */
+	public default BitSet removeEdges(String[] pairs) {
+		if (pairs == null || pairs.length % 2 != 0) {
+			throw new IllegalArgumentException("Pairs must hold an even number of names. Please provide valid input.");
+		}
+		int[] ids = new int[pairs.length];
+		for (int i = 0; i < pairs.length; i++) {
+			ids[i] = pairs[i] == null ? -1 : idOf(pairs[i]);
+		}
+		return removeEdges(ids);
+	}
+
+	/**
+	 * Removes edges between pairs of nodes given by id. Has the same effect as
+	 * calling removeEdgeIfPresent() on each pair in turn.
+	 * 
+	 * @param pairs ids, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if edge of pair i was removed
+	 */
+	public default BitSet removeEdges(int[] pairs) {
+		EdgeBatch batch = new EdgeBatch(this, pairs);
+		BitSet removed = new BitSet(pairs.length / 2);
+		for (int i = 0; i < batch.size(); i++) {
+			Person person1 = getNodeById(batch.from(i));
+			Person person2 = getNodeById(batch.to(i));
+			if (person1 != null && person2 != null && removeEdgeIfPresent(person1, person2)) {
+				removed.set(batch.firstPair(i));
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Replaces the contents of the graph with a whole network, as read from a
+	 * binary snapshot. User i is named names[i], and the friends of user i
+	 * numbered above it are the next counts[i] entries of friends, so each
+	 * friendship is listed once, at its lower numbered end. The arrays are
+	 * checked before the graph is changed, so the graph is left as it was if
+	 * they do not describe a network.
+	 * 
+	 * Graphs which can size their adjacency from the counts build it directly.
+	 * This default clears the graph and adds the friendships in large batches
+	 * with addEdges(int[]).
+	 * 
+	 * @param names   distinct name of each user, by number
+	 * @param counts  friends numbered above each user
+	 * @param friends friends numbered above each user, user by user
+	 * @throws IllegalArgumentException if the arrays do not describe a network
+	 */
+	public default void load(String[] names, int[] counts, int[] friends) {
+		BinarySnapshot.check(names, counts, friends);
+		if (new HashSet<String>(Arrays.asList(names)).size() != names.length) {
+			throw new IllegalArgumentException("Names are not distinct. Please provide valid input.");
+		}
+		clear();
+		addNodes(Arrays.asList(names));
+		int[] ids = new int[names.length];
+		for (int i = 0; i < names.length; i++) {
+			ids[i] = idOf(names[i]);
+		}
+		// Each batch is sorted in bulk, so batches are large, but bounded to
+		// keep the scratch space of a batch well below that of the graph
+		int[] pairs = new int[2 * Math.min(1 << 22, friends.length)];
+		int pending = 0;
+		int next = 0;
+		for (int i = 0; i < names.length; i++) {
+			for (int end = next + counts[i]; next < end; next++) {
+				pairs[pending++] = ids[i];
+				pairs[pending++] = ids[friends[next]];
+				if (pending == pairs.length) {
+					addEdges(pairs);
+					pending = 0;
+				}
+			}
+		}
+		if (pending > 0) {
+			addEdges(Arrays.copyOf(pairs, pending));
+		}
+	}
+
+	/**
+	 * Gets read-only view of the neighbors of given person. Unlike
+	 * getNeighbors(), nothing is copied, and the view reflects later changes to
+	 * the graph.
+	 * 
+	 * @param node in question
+	 * @return unmodifiable collection of people adjacent to node
+	 */
+	public default Collection<Person> neighbors(Person node) {
+		Person person = node == null ? null : findNode(node.getName());
+		if (person == null) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		return new NeighborView(this, person);
+	}
+
+	/**
+	 * Gets read-only view of all nodes in the graph. Unlike getAllNodes(),
+	 * nothing is copied, and the view reflects later changes to the graph.
+	 * 
+	 * @return unmodifiable set of Persons in graph
+	 */
+	public default Set<Person> nodes() {
+		return new NodeView(this);
+	}
+
+	/**
+	 * Determines if the graph is safe for concurrent use, so that readers and
+	 * writers of different users need not take turns.
+	 * 
+	 * @return true if graph may be read and changed by many threads at once
+	 */
+	public default boolean isConcurrent() {
+		return false;
+	}
+
+	/**
+	 * Gets read-only view of the graph as it is now, which later changes do not
+	 * affect. Long queries run against a snapshot so that they neither see
+	 * changes half-applied by concurrent writers nor block them. Graphs which are
+	 * not safe for concurrent use return themselves. Each snapshot must be passed
+	 * to release() once the query is done.
+	 * 
+	 * @return consistent read-only view of graph
+	 */
+	public default IndexedGraphADT snapshot() {
+		return this;
+	}
+
+	/**
+	 * Releases snapshot taken with snapshot(), so that the old versions it holds
+	 * can be reclaimed.
+	 * 
+	 * @param snapshot to release
+	 */
+	public default void release(IndexedGraphADT snapshot) {
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * File: Intersection.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the neighbor set intersection used by SocialNetwork.java
+ * to find mutual friends.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Intersection of the neighbor ids of two nodes. Both neighbor lists are
+ * copied into arrays kept per thread, and sorted unless the graph already
+ * hands them out in order, as FrozenGraph does. Lists of similar length are
+ * then merged. When one is more than SKEW times longer, each id of the shorter
+ * is found in the longer by galloping: doubling steps from the last match,
+ * then a binary search, so the cost grows with the shorter list and only the
+ * logarithm of the longer.
+ * 
+ * When the longer list has at least HUB_DEGREE ids and is not already sorted,
+ * neither list is sorted. The longer list's ids are set in a bitset over the
+ * id range, each id of the shorter is tested against it, and the words set are
+ * cleared again, which is linear in both lists where sorting a hub would not
+ * be. Only the common ids are sorted, if they are listed.
+ * 
+ * The arrays grow to the largest degree and id bound seen and are reused, so
+ * counting allocates nothing once a thread has warmed up. They are held
+ * through Workspaces, so those of an idle thread, grown by some giant hub, can
+ * still be reclaimed.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class Intersection {
+
+	private static final Workspaces<Intersection> WORKSPACES = new Workspaces<Intersection>(Intersection::new);
+	private static final int SKEW = 32; // gallop once one list is this many times longer
+	private static final int HUB_DEGREE = 1 << 12; // use bitset for unsorted lists this long
+
+	private int[] first; // neighbors of node with fewer neighbors
+	private int[] second; // neighbors of node with more neighbors
+	private int[] common; // ids found in both, when listed
+	private long[] bits; // neighbors of a hub, one bit per id, clear between uses
+
+	/*
+	 * Default no-argument constructor
+	 */
+	private Intersection() {
+		first = new int[0];
+		second = new int[0];
+		common = new int[0];
+		bits = new long[0];
+	}
+
+	/**
+	 * Gets the intersection state of the current thread.
+	 * 
+	 * @return intersection state
+	 */
+	static Intersection workspace() {
+		return WORKSPACES.get();
+	}
+
+	/**
+	 * Counts neighbors shared by two nodes.
+	 * 
+	 * @param graph to search, which must not change during the count
+	 * @param id1   id of first node
+	 * @param id2   id of second node
+	 * @return number of common neighbors
+	 */
+	int count(IndexedGraphADT graph, int id1, int id2) {
+		return intersect(graph, id1, id2, false);
+	}
+
+	/**
+	 * Lists neighbors shared by two nodes.
+	 * 
+	 * @param graph to search, which must not change during the search
+	 * @param id1   id of first node
+	 * @param id2   id of second node
+	 * @return ids of common neighbors, in ascending order
+	 */
+	int[] list(IndexedGraphADT graph, int id1, int id2) {
+		int count = intersect(graph, id1, id2, true);
+		return Arrays.copyOf(common, count);
+	}
+
+	/**
+	 * Intersects neighbors of two nodes, choosing method by their degrees.
+	 * 
+	 * @param keep true to store common ids in common
+	 * @return number of common neighbors
+	 */
+	private int intersect(IndexedGraphADT graph, int id1, int id2, boolean keep) {
+		if (graph.degree(id1) > graph.degree(id2)) {
+			int swap = id1;
+			id1 = id2;
+			id2 = swap;
+		}
+		int shorter = load(graph, id1, true);
+		if (shorter == 0) {
+			return 0;
+		}
+		int longer = load(graph, id2, false);
+		if (keep && common.length < shorter) {
+			common = new int[Math.max(shorter, common.length * 2)];
+		}
+		boolean sorted = ascending(second, longer);
+		if (!sorted && longer >= HUB_DEGREE) {
+			int count = probe(shorter, longer, graph.idBound(), keep);
+			if (keep) {
+				Arrays.sort(common, 0, count);
+			}
+			return count;
+		}
+		if (!sorted) {
+			Arrays.sort(second, 0, longer);
+		}
+		if (!ascending(first, shorter)) {
+			Arrays.sort(first, 0, shorter);
+		}
+		return longer > SKEW * shorter ? gallop(shorter, longer, keep) : merge(shorter, longer, keep);
+	}
+
+	/**
+	 * Copies neighbors of node into first or second array.
+	 * 
+	 * @return number of neighbors
+	 */
+	private int load(IndexedGraphADT graph, int id, boolean intoFirst) {
+		int degree = graph.degree(id);
+		int[] buffer = intoFirst ? first : second;
+		if (buffer.length < degree) {
+			buffer = new int[Math.max(degree, buffer.length * 2)];
+			if (intoFirst) {
+				first = buffer;
+			} else {
+				second = buffer;
+			}
+		}
+		return graph.getNeighborIds(id, buffer);
+	}
+
+	/**
+	 * Intersects two sorted lists of similar length in one merge.
+	 */
+	private int merge(int shorter, int longer, boolean keep) {
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < shorter && j < longer) {
+			int a = first[i];
+			int b = second[j];
+			if (a < b) {
+				++i;
+			} else if (a > b) {
+				++j;
+			} else {
+				if (keep) {
+					common[count] = a;
+				}
+				++count;
+				++i;
+				++j;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Intersects a short sorted list with a much longer one, galloping through
+	 * the longer from each match.
+	 */
+	private int gallop(int shorter, int longer, boolean keep) {
+		int count = 0;
+		int low = 0; // ids of longer before low are below every id still to find
+		for (int i = 0; i < shorter && low < longer; i++) {
+			int id = first[i];
+			// Double step until passing id, then search the last step
+			int step = 1;
+			int high = low;
+			while (high < longer && second[high] < id) {
+				low = high + 1;
+				high += step;
+				step <<= 1;
+			}
+			int found = Arrays.binarySearch(second, low, Math.min(high + 1, longer), id);
+			if (found >= 0) {
+				if (keep) {
+					common[count] = id;
+				}
+				++count;
+				low = found + 1;
+			} else {
+				low = -found - 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Intersects an unsorted hub list with the shorter list, by setting the
+	 * hub's ids in a bitset and testing the shorter list against it.
+	 */
+	private int probe(int shorter, int longer, int bound, boolean keep) {
+		int words = (bound + 63) >>> 6;
+		if (bits.length < words) {
+			bits = new long[Math.max(words, bits.length + (bits.length >> 1))];
+		}
+		for (int i = 0; i < longer; i++) {
+			int id = second[i];
+			bits[id >>> 6] |= 1L << id;
+		}
+		int count = 0;
+		for (int i = 0; i < shorter; i++) {
+			int id = first[i];
+			if ((bits[id >>> 6] & (1L << id)) != 0) {
+				if (keep) {
+					common[count] = id;
+				}
+				++count;
+			}
+		}
+		for (int i = 0; i < longer; i++) {
+			bits[second[i] >>> 6] = 0;
+		}
+		return count;
+	}
+
+	/**
+	 * Determines if list is in ascending order.
+	 */
+	private static boolean ascending(int[] ids, int count) {
+		for (int i = 1; i < count; i++) {
+			if (ids[i - 1] > ids[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -11,6 +11,9 @@ package application;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.List;
 import javafx.application.Application;
@@ -45,13 +48,15 @@ public class Main extends Application {
   private TableView<Person> userFriendsTable = new TableView<Person>();
 
   SocialNetwork sn = new SocialNetwork();
-  String storedCommands = "";
 
   // window specs
   private static final int WINDOW_WIDTH = 900;
   private static final int WINDOW_HEIGHT = 700;
   private static final String APP_TITLE = "Social Media";
 
+  // directory the network is logged to as it changes, and recovered from
+  private static final Path LOG_DIRECTORY = Paths.get("network-log");
+
   // observable array list for displaying all users in network
   private ObservableList<Person> data = FXCollections.observableArrayList();
 
@@ -125,7 +130,6 @@ public class Main extends Application {
         commands.setText("");
         if (recentCommand.equals(""))
           return;
-        storedCommands = storedCommands + recentCommand + "\n";
 
         try {
           List<Person> vertices = sn.runAction(recentCommand);
@@ -133,6 +137,8 @@ public class Main extends Application {
           populateUserFriendsList(sn.getFriends(sn.activeUser.getName()));
         } catch (ParseException err) {
           makePopup("Failed to process your request. Check syntax.");
+        } catch (UncheckedIOException err) {
+          makePopup("Failed to save your change. So sorry\n" + err.getMessage());
         }
 
       }
@@ -153,16 +159,18 @@ public class Main extends Application {
           importFile = result.get();
         }
         File toImport = new File(importFile);
-        String saveCommands = "";
         try {
-          saveCommands = sn.loadFromFile(toImport);
+          sn.loadCommands(toImport.toPath());
+        } catch (IOException e1) {
+          makePopup("Failed to read your file. Check that it exists\n" + e1.getMessage());
         } catch (ParseException e1) {
           makePopup("Failed to read some or all of your file. Check for proper format\n"
               + e1.getMessage());
+        } catch (UncheckedIOException e1) {
+          makePopup("Failed to save your changes. So sorry\n" + e1.getMessage());
         }
         populateObservableList(sn.getGraph().getVertices());
         populateUserFriendsList(sn.getFriends(sn.activeUser.getName()));
-        storedCommands = storedCommands + saveCommands;
       }
     });
 
@@ -293,11 +301,11 @@ public class Main extends Application {
         Alert alert = new Alert(AlertType.CONFIRMATION);
         alert.setTitle("Exit confirmation");
         alert.setHeaderText(
-            "You are about to exit, would you like to save your current social network?");
+            "You are about to exit. Your network is kept for next time, would you like to also save it to a file?");
         alert.setContentText("Choose your option.");
 
-        ButtonType exitWithoutSaving = new ButtonType("Exit without saving");
-        ButtonType saveAndExit = new ButtonType("Save and Exit");
+        ButtonType exitWithoutSaving = new ButtonType("Exit");
+        ButtonType saveAndExit = new ButtonType("Save to File and Exit");
         ButtonType cancelButton = new ButtonType("Cancel", ButtonData.CANCEL_CLOSE);
 
         alert.getButtonTypes().setAll(exitWithoutSaving, saveAndExit, cancelButton);
@@ -319,8 +327,8 @@ public class Main extends Application {
           }
 
           try {
-            sn.saveToFile(storedCommands, saveName);
-          } catch (IOException e1) {
+            sn.saveCommands(Paths.get(saveName));
+          } catch (IOException | RuntimeException e1) {
             makePopup("Failed to save your file. So sorry");
           }
           primaryStage.close();
@@ -384,9 +392,31 @@ public class Main extends Application {
     primaryStage.setScene(mainScene);
     primaryStage.show();
 
+    // Recover the network left by earlier runs, every change being logged as it is made
+    try {
+      sn.openLog(LOG_DIRECTORY, 1, 0);
+      populateObservableList(sn.getGraph().getVertices());
+      if (sn.activeUser != null) {
+        populateUserFriendsList(sn.getFriends(sn.activeUser.getName()));
+      }
+    } catch (IOException | UncheckedIOException err) {
+      makePopup("Failed to open the log of your changes, which will not be saved.\n"
+          + err.getMessage());
+    }
+
     System.out.println(System.getProperty("user.dir"));
   }
 
+  // close the log of changes, each of which is already on disk
+  @Override
+  public void stop() throws Exception {
+    try {
+      sn.closeLog();
+    } catch (IllegalStateException e) {
+      // log failed to open
+    }
+  }
+
   /**
    * @param args
    */
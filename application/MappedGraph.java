@@ -0,0 +1,849 @@
+/*
+ * File: MappedGraph.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides an implementation of GraphADT which keeps the whole
+ * graph in memory-mapped files, for networks larger than the heap.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implementation of GraphADT whose node table, name index and adjacency live
+ * off-heap in memory-mapped files inside a store directory:
+ * 
+ * <ul>
+ * <li>nodes.bin: header followed by one fixed size record per node id</li>
+ * <li>vertices.bin: ids of all nodes, in the order of getVertices()</li>
+ * <li>index.bin: open addressing hash table from name to node id</li>
+ * <li>edges.bin: adjacency segments of neighbor ids, laid out like
+ * CompactGraph</li>
+ * <li>names.bin: UTF-8 names of the nodes</li>
+ * </ul>
+ * 
+ * Opening a store only maps the files and reads the header, so it takes the
+ * same time for any size of graph, and pages are read from disk as queries
+ * first touch them. Person objects are created on demand and are not kept for
+ * every node. Changes are written to the mapped pages directly; force() or
+ * close() flushes them to disk.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+public class MappedGraph implements IndexedGraphADT, Closeable {
+
+	private static final int MAGIC = 0x534E4D47; // "SNMG"
+	private static final int VERSION = 1;
+
+	// Offsets of header fields in nodes.bin
+	private static final long H_MAGIC = 0;
+	private static final long H_VERSION = 4;
+	private static final long H_BOUND = 8;
+	private static final long H_ORDER = 12;
+	private static final long H_SIZE = 16;
+	private static final long H_FREE_HEAD = 24;
+	private static final long H_INDEX_CAPACITY = 28;
+	private static final long H_EDGE_TAIL = 32;
+	private static final long H_EDGE_GARBAGE = 40;
+	private static final long H_NAME_TAIL = 48;
+	private static final long H_NAME_GARBAGE = 56;
+	private static final long HEADER = 64;
+
+	// Offsets of fields within a node record
+	private static final int RECORD = 32;
+	private static final int R_SEGMENT = 0; // long, slot of segment in edges.bin, -1 if none
+	private static final int R_DEGREE = 8; // int
+	private static final int R_CAPACITY = 12; // int
+	private static final int R_NAME = 16; // long, offset of name in names.bin, -1 if id is free
+	private static final int R_HASH = 24; // int, hashcode of name
+	private static final int R_POSITION = 28; // int, index in vertices.bin, or next free id
+
+	private static final int SEGMENT_HEADER = 2; // owner id and capacity precede each segment
+	private static final int MIN_SEGMENT = 2; // room given to a node's first edge
+	private static final int MIN_INDEX = 1024; // smallest name index table
+	private static final long COMPACT_THRESHOLD = 1L << 20; // garbage worth compacting
+	private static final int CACHE_SIZE = 1 << 12; // recently used persons
+
+	private final File directory;
+	private final MappedRegion nodes;
+	private final MappedRegion vertices;
+	private final MappedRegion index;
+	private final MappedRegion edges;
+	private final MappedRegion names;
+
+	// Copies of header fields
+	private int bound; // one past highest id handed out
+	private int order; // order of graph (number of nodes)
+	private long size; // size of graph (number of edges)
+	private int freeHead; // first recycled id, -1 if none
+	private int indexCapacity; // slots in name index, a power of two
+	private long edgeTail; // end of used slots in edges.bin
+	private long edgeGarbage; // abandoned slots in edges.bin
+	private long nameTail; // end of used bytes in names.bin
+	private long nameGarbage; // abandoned bytes in names.bin
+
+	private Person[] cache; // persons recently handed out, indexed by id
+
+	/**
+	 * Opens graph store in given directory, creating an empty store if the
+	 * directory holds none.
+	 * 
+	 * @param directory of store
+	 * @throws IOException if store cannot be created, opened or is corrupt
+	 */
+	public MappedGraph(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create graph store in " + directory);
+		}
+		this.directory = directory;
+		boolean existing = new File(directory, "nodes.bin").length() >= HEADER;
+		nodes = new MappedRegion(new File(directory, "nodes.bin").toPath(), HEADER);
+		vertices = new MappedRegion(new File(directory, "vertices.bin").toPath(), 0);
+		index = new MappedRegion(new File(directory, "index.bin").toPath(), 4L * MIN_INDEX);
+		edges = new MappedRegion(new File(directory, "edges.bin").toPath(), 0);
+		names = new MappedRegion(new File(directory, "names.bin").toPath(), 0);
+		cache = new Person[CACHE_SIZE];
+		if (existing) {
+			if (nodes.getInt(H_MAGIC) != MAGIC || nodes.getInt(H_VERSION) != VERSION) {
+				close();
+				throw new IOException(directory + " does not hold a version " + VERSION + " graph store");
+			}
+			bound = nodes.getInt(H_BOUND);
+			order = nodes.getInt(H_ORDER);
+			size = nodes.getLong(H_SIZE);
+			freeHead = nodes.getInt(H_FREE_HEAD);
+			indexCapacity = nodes.getInt(H_INDEX_CAPACITY);
+			edgeTail = nodes.getLong(H_EDGE_TAIL);
+			edgeGarbage = nodes.getLong(H_EDGE_GARBAGE);
+			nameTail = nodes.getLong(H_NAME_TAIL);
+			nameGarbage = nodes.getLong(H_NAME_GARBAGE);
+		} else {
+			nodes.putInt(H_MAGIC, MAGIC);
+			nodes.putInt(H_VERSION, VERSION);
+			clear();
+		}
+	}
+
+	/**
+	 * Getter for store directory
+	 * 
+	 * @return directory holding the store's files
+	 */
+	public File getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * Adds node to graph
+	 * 
+	 * @param node to add
+	 */
+	public void addNode(Person node) {
+		// Prevents adding null Person
+		if (node == null || node.getName() == null) {
+			throw new IllegalArgumentException("Person is null. Please provide valid input.");
+		}
+		insertNode(node.getName());
+		saveHeader();
+	}
+
+	/**
+	 * Adds edge between people by adding each person to the other's segment.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 */
+	public void addEdge(Person node1, Person node2) {
+		// If either node is null, throw an exception
+		if (node1 == null || node1.getName() == null || node2 == null || node2.getName() == null) {
+			throw new IllegalArgumentException("One or both persons are null. Please provide valid input.");
+		}
+		int id1 = insertNode(node1.getName());
+		int id2 = insertNode(node2.getName());
+		// Checks that nodes are not equal and edge does not already exist
+		if (id1 != id2 && !hasEdge(id1, id2)) {
+			appendNeighbor(id1, id2);
+			appendNeighbor(id2, id1);
+			++this.size;
+		}
+		saveHeader();
+	}
+
+	/**
+	 * Removes edge between two people by removing each person from the other's
+	 * segment.
+	 * 
+	 * @param node1, first node
+	 * @param node2, second node
+	 */
+	public void removeEdge(Person node1, Person node2) {
+		int id1 = idOf(node1);
+		int id2 = idOf(node2);
+		// Checks that both people are present
+		if (id1 < 0 || id2 < 0) {
+			throw new IllegalArgumentException(
+					"One or both persons are not in the network. Please provide valid input.");
+		}
+		// If edge is present, remove it
+		if (deleteNeighbor(id1, id2)) {
+			deleteNeighbor(id2, id1);
+			--this.size;
+			saveHeader();
+		}
+	}
+
+	/**
+	 * Remove node from graph, along with all edges connecting to node.
+	 * 
+	 * @param node in question
+	 */
+	public void removeNode(Person node) {
+		int id = idOf(node);
+		if (id < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		long record = record(id);
+		// Remove node from segment of each of its neighbors
+		long segment = nodes.getLong(record + R_SEGMENT);
+		int degree = nodes.getInt(record + R_DEGREE);
+		for (int i = 0; i < degree; i++) {
+			deleteNeighbor(edges.getInt(4 * (segment + SEGMENT_HEADER + i)), id);
+		}
+		this.size -= degree;
+		abandonSegment(id);
+		// Swap last vertex into node's position so removal is constant time
+		int position = nodes.getInt(record + R_POSITION);
+		int last = vertices.getInt(4L * (order - 1));
+		vertices.putInt(4L * position, last);
+		nodes.putInt(record(last) + R_POSITION, position);
+		--this.order;
+		// Release name and recycle id
+		indexRemove(id);
+		long name = nodes.getLong(record + R_NAME);
+		names.putInt(name, -1);
+		nameGarbage += nameLength(names.getInt(name + 4));
+		nodes.putLong(record + R_NAME, -1);
+		nodes.putInt(record + R_POSITION, freeHead);
+		freeHead = id;
+		if (cache[id & (CACHE_SIZE - 1)] != null && cache[id & (CACHE_SIZE - 1)].getId() == id) {
+			cache[id & (CACHE_SIZE - 1)] = null;
+		}
+		// Reclaim abandoned space once it outweighs used space
+		if (edgeGarbage > COMPACT_THRESHOLD && edgeGarbage > edgeTail / 2) {
+			compactEdges();
+		}
+		if (nameGarbage > COMPACT_THRESHOLD && nameGarbage > nameTail / 2) {
+			compactNames();
+		}
+		saveHeader();
+	}
+
+	/**
+	 * Gets all neighbors of given person in graph
+	 * 
+	 * @param node in question
+	 * @return set of people adjacent to node
+	 */
+	public Set<Person> getNeighbors(Person node) {
+		int id = idOf(node);
+		if (id < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		HashSet<Person> neighbors = new HashSet<Person>(degree(id) * 4 / 3 + 1);
+		NeighborCursor cursor = newNeighborCursor();
+		cursor.reset(id);
+		for (int friend = cursor.next(); friend >= 0; friend = cursor.next()) {
+			neighbors.add(person(friend));
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Gets person with given name
+	 * 
+	 * @param name, name of person
+	 */
+	public Person getNode(String name) {
+		Person person = findNode(name);
+		if (person == null) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		return person;
+	}
+
+	/**
+	 * Gets all nodes in the graph.
+	 * 
+	 * @return Set of Persons in graph
+	 */
+	public Set<Person> getAllNodes() {
+		return new HashSet<Person>(getVertices());
+	}
+
+	/**
+	 * Getter for order of graph.
+	 * 
+	 * @return order of graph
+	 */
+	public int order() {
+		return this.order;
+	}
+
+	/**
+	 * Getter for size of graph.
+	 * 
+	 * @return size of graph.
+	 */
+	public int size() {
+		return (int) Math.min(Integer.MAX_VALUE, this.size);
+	}
+
+	/**
+	 * Determines if person with given name is present in graph.
+	 * 
+	 * @param name of person being searched for
+	 * @return true if person is present, false otherwise
+	 */
+	public boolean contains(String name) {
+		return findId(name) >= 0;
+	}
+
+	/**
+	 * Gets person with given name, or null if not present.
+	 * 
+	 * @param name of person
+	 * @return person in graph with given name, or null if not present
+	 */
+	public Person findNode(String name) {
+		int id = findId(name);
+		return id < 0 ? null : person(id);
+	}
+
+	/**
+	 * Gets live, read-only list of all nodes in graph. Persons are created as the
+	 * list is read.
+	 * 
+	 * @return list of nodes
+	 */
+	public List<Person> getVertices() {
+		return new AbstractList<Person>() {
+			@Override
+			public Person get(int position) {
+				if (position < 0 || position >= order) {
+					throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + order);
+				}
+				return person(vertices.getInt(4L * position));
+			}
+
+			@Override
+			public int size() {
+				return order;
+			}
+		};
+	}
+
+	/**
+	 * Removes all nodes and edges from the graph, keeping the store's files.
+	 */
+	public void clear() {
+		bound = 0;
+		order = 0;
+		size = 0;
+		freeHead = -1;
+		edgeTail = 0;
+		edgeGarbage = 0;
+		nameTail = 0;
+		nameGarbage = 0;
+		rebuildIndex(MIN_INDEX);
+		cache = new Person[CACHE_SIZE];
+		saveHeader();
+	}
+
+	/**
+	 * Gets id of person with given name.
+	 * 
+	 * @param name of person
+	 * @return id of person, or -1 if person is not in the graph
+	 */
+	public int idOf(String name) {
+		return findId(name);
+	}
+
+	/**
+	 * Gets person with given id.
+	 * 
+	 * @param id of person
+	 * @return person, or null if no person has the id
+	 */
+	public Person getNodeById(int id) {
+		if (id < 0 || id >= bound || nodes.getLong(record(id) + R_NAME) < 0) {
+			return null;
+		}
+		return person(id);
+	}
+
+	/**
+	 * Exclusive upper bound on the ids of nodes in the graph.
+	 * 
+	 * @return id bound
+	 */
+	public int idBound() {
+		return bound;
+	}
+
+	/**
+	 * Gets number of neighbors of node with given id.
+	 * 
+	 * @param id of node
+	 * @return degree of node
+	 */
+	public int degree(int id) {
+		return nodes.getInt(record(id) + R_DEGREE);
+	}
+
+	/**
+	 * Copies ids of all neighbors of node into buffer.
+	 * 
+	 * @param id     of node
+	 * @param buffer to copy into, must have room for degree(id) ids
+	 * @return number of ids copied
+	 */
+	public int getNeighborIds(int id, int[] buffer) {
+		long start = 4 * (nodes.getLong(record(id) + R_SEGMENT) + SEGMENT_HEADER);
+		int degree = degree(id);
+		for (int i = 0; i < degree; i++) {
+			buffer[i] = edges.getInt(start + 4L * i);
+		}
+		return degree;
+	}
+
+	/**
+	 * Determines if there is an edge between two nodes, scanning the shorter of
+	 * the two segments.
+	 * 
+	 * @param id1 id of first node
+	 * @param id2 id of second node
+	 * @return true if nodes are adjacent
+	 */
+	public boolean hasEdge(int id1, int id2) {
+		if (degree(id2) < degree(id1)) {
+			int swap = id1;
+			id1 = id2;
+			id2 = swap;
+		}
+		return findNeighbor(id1, id2) >= 0;
+	}
+
+	/**
+	 * Creates a cursor for scanning neighbor ids without allocating.
+	 * 
+	 * @return new cursor
+	 */
+	public NeighborCursor newNeighborCursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Flushes all changes to disk.
+	 */
+	public void force() {
+		saveHeader();
+		nodes.force();
+		vertices.force();
+		index.force();
+		edges.force();
+		names.force();
+	}
+
+	/**
+	 * Flushes all changes to disk and closes the store's files. The graph must
+	 * not be used afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		saveHeader();
+		nodes.close();
+		vertices.close();
+		index.close();
+		edges.close();
+		names.close();
+	}
+
+	/**
+	 * Byte offset of record of given id in nodes.bin
+	 */
+	private static long record(int id) {
+		return HEADER + (long) id * RECORD;
+	}
+
+	/**
+	 * Bytes taken in names.bin by a name of given encoded length.
+	 */
+	private static long nameLength(int bytes) {
+		return 8 + ((bytes + 3) & ~3L);
+	}
+
+	/**
+	 * Scrambles hashcode so that similar names spread over the index.
+	 */
+	private static int mix(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Writes header fields back to nodes.bin
+	 */
+	private void saveHeader() {
+		nodes.putInt(H_BOUND, bound);
+		nodes.putInt(H_ORDER, order);
+		nodes.putLong(H_SIZE, size);
+		nodes.putInt(H_FREE_HEAD, freeHead);
+		nodes.putInt(H_INDEX_CAPACITY, indexCapacity);
+		nodes.putLong(H_EDGE_TAIL, edgeTail);
+		nodes.putLong(H_EDGE_GARBAGE, edgeGarbage);
+		nodes.putLong(H_NAME_TAIL, nameTail);
+		nodes.putLong(H_NAME_GARBAGE, nameGarbage);
+	}
+
+	/**
+	 * Gets person with given id, reusing a recently created instance if possible.
+	 */
+	private Person person(int id) {
+		int slot = id & (CACHE_SIZE - 1);
+		Person person = cache[slot];
+		if (person == null || person.getId() != id) {
+			long name = nodes.getLong(record(id) + R_NAME);
+			byte[] bytes = new byte[names.getInt(name + 4)];
+			names.getBytes(name + 8, bytes, 0, bytes.length);
+			person = new Person(new String(bytes, StandardCharsets.UTF_8), id);
+			cache[slot] = person;
+		}
+		return person;
+	}
+
+	/**
+	 * Gets id of given person in this graph.
+	 * 
+	 * @return id of node, or -1 if node is null or not present
+	 */
+	private int idOf(Person node) {
+		if (node == null) {
+			return -1;
+		}
+		// Fast path: person was handed out by this graph and is still cached
+		int id = node.getId();
+		if (id >= 0 && id < bound && cache[id & (CACHE_SIZE - 1)] == node) {
+			return id;
+		}
+		return findId(node.getName());
+	}
+
+	/**
+	 * Looks name up in name index.
+	 * 
+	 * @return id of node with given name, or -1 if not present
+	 */
+	private int findId(String name) {
+		if (name == null) {
+			return -1;
+		}
+		int hash = name.hashCode();
+		int mask = indexCapacity - 1;
+		byte[] encoded = null; // encoded lazily, only once a hash matches
+		for (int i = mix(hash) & mask;; i = (i + 1) & mask) {
+			int slot = index.getInt(4L * i);
+			if (slot == 0) {
+				return -1;
+			}
+			int id = slot - 1;
+			if (nodes.getInt(record(id) + R_HASH) == hash) {
+				if (encoded == null) {
+					encoded = name.getBytes(StandardCharsets.UTF_8);
+				}
+				if (nameEquals(id, encoded)) {
+					return id;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares stored name of node with encoded name.
+	 */
+	private boolean nameEquals(int id, byte[] encoded) {
+		long name = nodes.getLong(record(id) + R_NAME);
+		if (names.getInt(name + 4) != encoded.length) {
+			return false;
+		}
+		for (int i = 0; i < encoded.length; i++) {
+			if (names.get(name + 8 + i) != encoded[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds node to graph if not present.
+	 * 
+	 * @param name of node
+	 * @return id of node
+	 */
+	private int insertNode(String name) {
+		int id = findId(name);
+		if (id >= 0) {
+			return id;
+		}
+		// Keep name index at most half full
+		if ((long) (order + 1) * 2 > indexCapacity) {
+			rebuildIndex(indexCapacity * 2);
+		}
+		// Prefer recycled ids so that id space stays dense
+		if (freeHead >= 0) {
+			id = freeHead;
+			freeHead = nodes.getInt(record(id) + R_POSITION);
+		} else {
+			id = bound++;
+			nodes.ensureCapacity(record(bound));
+		}
+		// Append name to names.bin
+		byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+		long offset = nameTail;
+		names.ensureCapacity(offset + nameLength(encoded.length));
+		names.putInt(offset, id);
+		names.putInt(offset + 4, encoded.length);
+		names.putBytes(offset + 8, encoded, 0, encoded.length);
+		nameTail += nameLength(encoded.length);
+		// Fill in record and append id to vertex list
+		long record = record(id);
+		nodes.putLong(record + R_SEGMENT, -1);
+		nodes.putInt(record + R_DEGREE, 0);
+		nodes.putInt(record + R_CAPACITY, 0);
+		nodes.putLong(record + R_NAME, offset);
+		nodes.putInt(record + R_HASH, name.hashCode());
+		nodes.putInt(record + R_POSITION, order);
+		vertices.ensureCapacity(4L * (order + 1));
+		vertices.putInt(4L * order, id);
+		++this.order;
+		indexInsert(id);
+		return id;
+	}
+
+	/**
+	 * Adds id to name index.
+	 */
+	private void indexInsert(int id) {
+		int mask = indexCapacity - 1;
+		int i = mix(nodes.getInt(record(id) + R_HASH)) & mask;
+		while (index.getInt(4L * i) != 0) {
+			i = (i + 1) & mask;
+		}
+		index.putInt(4L * i, id + 1);
+	}
+
+	/**
+	 * Removes id from name index, shifting later entries of its probe run back so
+	 * no tombstones are needed.
+	 */
+	private void indexRemove(int id) {
+		int mask = indexCapacity - 1;
+		int gap = mix(nodes.getInt(record(id) + R_HASH)) & mask;
+		while (index.getInt(4L * gap) != id + 1) {
+			gap = (gap + 1) & mask;
+		}
+		for (int j = (gap + 1) & mask; index.getInt(4L * j) != 0; j = (j + 1) & mask) {
+			int slot = index.getInt(4L * j);
+			int home = mix(nodes.getInt(record(slot - 1) + R_HASH)) & mask;
+			// Move entry into gap unless its home lies cyclically in (gap, j]
+			if (gap <= j ? (home <= gap || home > j) : (home <= gap && home > j)) {
+				index.putInt(4L * gap, slot);
+				gap = j;
+			}
+		}
+		index.putInt(4L * gap, 0);
+	}
+
+	/**
+	 * Rebuilds name index with given number of slots from the vertex list.
+	 */
+	private void rebuildIndex(int capacity) {
+		index.ensureCapacity(4L * capacity);
+		index.zero(0, 4L * capacity);
+		indexCapacity = capacity;
+		for (int position = 0; position < order; position++) {
+			indexInsert(vertices.getInt(4L * position));
+		}
+	}
+
+	/**
+	 * Finds index of neighbor within node's segment.
+	 * 
+	 * @return index of neighbor, or -1 if not adjacent
+	 */
+	private int findNeighbor(int id, int neighbor) {
+		long record = record(id);
+		long start = 4 * (nodes.getLong(record + R_SEGMENT) + SEGMENT_HEADER);
+		int degree = nodes.getInt(record + R_DEGREE);
+		for (int i = 0; i < degree; i++) {
+			if (edges.getInt(start + 4L * i) == neighbor) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds neighbor to end of node's segment, moving segment if it is full.
+	 */
+	private void appendNeighbor(int id, int neighbor) {
+		long record = record(id);
+		int degree = nodes.getInt(record + R_DEGREE);
+		int capacity = nodes.getInt(record + R_CAPACITY);
+		if (degree == capacity) {
+			// Compact first if most of the file is abandoned space
+			if (edgeGarbage > COMPACT_THRESHOLD && edgeGarbage > edgeTail / 2) {
+				compactEdges();
+			}
+			long from = nodes.getLong(record + R_SEGMENT);
+			capacity = Math.max(MIN_SEGMENT, capacity * 2);
+			long to = edgeTail;
+			edges.ensureCapacity(4 * (to + SEGMENT_HEADER + capacity));
+			edges.putInt(4 * to, id);
+			edges.putInt(4 * to + 4, capacity);
+			for (int i = 0; i < degree; i++) {
+				edges.putInt(4 * (to + SEGMENT_HEADER + i), edges.getInt(4 * (from + SEGMENT_HEADER + i)));
+			}
+			abandonSegment(id);
+			nodes.putLong(record + R_SEGMENT, to);
+			nodes.putInt(record + R_DEGREE, degree);
+			nodes.putInt(record + R_CAPACITY, capacity);
+			edgeTail += SEGMENT_HEADER + capacity;
+		}
+		long segment = nodes.getLong(record + R_SEGMENT);
+		edges.putInt(4 * (segment + SEGMENT_HEADER + degree), neighbor);
+		nodes.putInt(record + R_DEGREE, degree + 1);
+	}
+
+	/**
+	 * Removes neighbor from node's segment by moving last neighbor into its slot.
+	 * 
+	 * @return true if neighbor was present
+	 */
+	private boolean deleteNeighbor(int id, int neighbor) {
+		int i = findNeighbor(id, neighbor);
+		if (i < 0) {
+			return false;
+		}
+		long record = record(id);
+		long start = 4 * (nodes.getLong(record + R_SEGMENT) + SEGMENT_HEADER);
+		int degree = nodes.getInt(record + R_DEGREE) - 1;
+		edges.putInt(start + 4L * i, edges.getInt(start + 4L * degree));
+		nodes.putInt(record + R_DEGREE, degree);
+		return true;
+	}
+
+	/**
+	 * Marks node's segment as abandoned and leaves node without a segment.
+	 */
+	private void abandonSegment(int id) {
+		long record = record(id);
+		long segment = nodes.getLong(record + R_SEGMENT);
+		if (segment >= 0) {
+			edges.putInt(4 * segment, -1);
+			edgeGarbage += SEGMENT_HEADER + nodes.getInt(record + R_CAPACITY);
+		}
+		nodes.putLong(record + R_SEGMENT, -1);
+		nodes.putInt(record + R_DEGREE, 0);
+		nodes.putInt(record + R_CAPACITY, 0);
+	}
+
+	/**
+	 * Slides live segments to the front of edges.bin, dropping abandoned ones.
+	 * Segments are found by walking their headers, so no extra memory is needed.
+	 */
+	private void compactEdges() {
+		long read = 0;
+		long write = 0;
+		while (read < edgeTail) {
+			int owner = edges.getInt(4 * read);
+			int capacity = edges.getInt(4 * read + 4);
+			if (owner >= 0) {
+				long record = record(owner);
+				int degree = nodes.getInt(record + R_DEGREE);
+				int trimmed = Math.max(MIN_SEGMENT, degree);
+				edges.putInt(4 * write, owner);
+				edges.putInt(4 * write + 4, trimmed);
+				edges.moveInts(4 * (read + SEGMENT_HEADER), 4 * (write + SEGMENT_HEADER), degree);
+				nodes.putLong(record + R_SEGMENT, write);
+				nodes.putInt(record + R_CAPACITY, trimmed);
+				write += SEGMENT_HEADER + trimmed;
+			}
+			read += SEGMENT_HEADER + capacity;
+		}
+		edgeTail = write;
+		edgeGarbage = 0;
+	}
+
+	/**
+	 * Slides live names to the front of names.bin, dropping abandoned ones.
+	 */
+	private void compactNames() {
+		long read = 0;
+		long write = 0;
+		while (read < nameTail) {
+			int owner = names.getInt(read);
+			long length = nameLength(names.getInt(read + 4));
+			if (owner >= 0) {
+				names.moveInts(read, write, length / 4);
+				nodes.putLong(record(owner) + R_NAME, write);
+				write += length;
+			}
+			read += length;
+		}
+		nameTail = write;
+		nameGarbage = 0;
+	}
+
+	/**
+	 * Cursor which reads a node's segment of edges.bin.
+	 */
+	private class Cursor implements NeighborCursor {
+		private long next; // byte offset of next neighbor
+		private long end; // byte offset of end of segment
+
+		@Override
+		public void reset(int id) {
+			long record = record(id);
+			long segment = nodes.getLong(record + R_SEGMENT);
+			this.next = segment < 0 ? 0 : 4 * (segment + SEGMENT_HEADER);
+			this.end = this.next + 4L * nodes.getInt(record + R_DEGREE);
+		}
+
+		@Override
+		public int next() {
+			if (this.next < this.end) {
+				int friend = edges.getInt(this.next);
+				this.next += 4;
+				return friend;
+			}
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * File: MappedRegion.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the growable memory-mapped file used by
+ * MappedGraph.java
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file mapped into memory in chunks of 1 GB, so that files larger than the
+ * 2 GB limit of a single MappedByteBuffer can be addressed with long offsets.
+ * Pages are only read from disk when first touched. Ints and longs must be
+ * aligned to their size so that they never straddle two chunks.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class MappedRegion implements Closeable {
+
+	private static final int CHUNK_SHIFT = 30; // chunks of 1 GB
+	private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+	private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final long MIN_CAPACITY = 1L << 16;
+
+	private final FileChannel channel;
+	private MappedByteBuffer[] chunks;
+	private long capacity; // mapped length of file in bytes
+
+	/**
+	 * Opens or creates file and maps it.
+	 * 
+	 * @param file            to map
+	 * @param initialCapacity minimum length to map, file is extended if shorter
+	 * @throws IOException if file cannot be opened or mapped
+	 */
+	MappedRegion(Path file, long initialCapacity) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		chunks = new MappedByteBuffer[0];
+		map(Math.max(channel.size(), Math.max(MIN_CAPACITY, initialCapacity)));
+	}
+
+	/**
+	 * Getter for mapped length
+	 * 
+	 * @return capacity in bytes
+	 */
+	long capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Extends file, if needed, so that given number of bytes are mapped.
+	 * 
+	 * @param bytes needed
+	 */
+	void ensureCapacity(long bytes) {
+		if (bytes > capacity) {
+			try {
+				map(Math.max(bytes, Math.min(capacity * 2, capacity + CHUNK_SIZE)));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Reads int at given byte offset.
+	 */
+	int getInt(long position) {
+		return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * Writes int at given byte offset.
+	 */
+	void putInt(long position, int value) {
+		chunks[(int) (position >>> CHUNK_SHIFT)].putInt((int) (position & CHUNK_MASK), value);
+	}
+
+	/**
+	 * Reads long at given byte offset.
+	 */
+	long getLong(long position) {
+		return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * Writes long at given byte offset.
+	 */
+	void putLong(long position, long value) {
+		chunks[(int) (position >>> CHUNK_SHIFT)].putLong((int) (position & CHUNK_MASK), value);
+	}
+
+	/**
+	 * Reads byte at given offset.
+	 */
+	byte get(long position) {
+		return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * Writes byte at given offset.
+	 */
+	void put(long position, byte value) {
+		chunks[(int) (position >>> CHUNK_SHIFT)].put((int) (position & CHUNK_MASK), value);
+	}
+
+	/**
+	 * Copies bytes out of region.
+	 */
+	void getBytes(long position, byte[] dest, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			dest[offset + i] = get(position + i);
+		}
+	}
+
+	/**
+	 * Copies bytes into region.
+	 */
+	void putBytes(long position, byte[] source, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			put(position + i, source[offset + i]);
+		}
+	}
+
+	/**
+	 * Moves ints within region. Destination must not lie after source, so the
+	 * copy can run front to back.
+	 */
+	void moveInts(long from, long to, long count) {
+		for (long i = 0; i < count; i++) {
+			putInt(to + 4 * i, getInt(from + 4 * i));
+		}
+	}
+
+	/**
+	 * Sets given range of bytes to zero.
+	 */
+	void zero(long position, long length) {
+		long end = position + length;
+		// Clear a long at a time once aligned, bytes at either end
+		while (position < end && (position & 7) != 0) {
+			put(position++, (byte) 0);
+		}
+		for (; position + 8 <= end; position += 8) {
+			putLong(position, 0L);
+		}
+		while (position < end) {
+			put(position++, (byte) 0);
+		}
+	}
+
+	/**
+	 * Writes modified pages back to disk.
+	 */
+	void force() {
+		for (MappedByteBuffer chunk : chunks) {
+			chunk.force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		chunks = new MappedByteBuffer[0];
+		channel.close();
+	}
+
+	/**
+	 * Maps file up to given length, remapping last chunk if it was partial.
+	 */
+	private void map(long length) throws IOException {
+		int count = (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+		int keep = capacity % CHUNK_SIZE == 0 ? chunks.length : chunks.length - 1;
+		chunks = Arrays.copyOf(chunks, count);
+		for (int i = keep; i < count; i++) {
+			long start = (long) i << CHUNK_SHIFT;
+			chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(CHUNK_SIZE, length - start));
+		}
+		capacity = length;
+	}
+}
@@ -0,0 +1,597 @@
+/*
+ * File: MutationLog.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the write-ahead log used by SocialNetwork.java to make
+ * changes to a network durable as they are made.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of the changes made to a network, kept in a directory of
+ * numbered generations:
+ * 
+ * <pre>
+ * snapshot-N.bin   the network when generation N began, as by saveSnapshot()
+ * log-N.bin        every change made during generation N, in order
+ * </pre>
+ * 
+ * The network is recovered by loading the newest intact snapshot and replaying
+ * the logs of its generation and every later one. A checkpoint starts a new
+ * generation and writes its snapshot, after which the files of older
+ * generations are deleted, so recovery only replays the changes made since the
+ * last checkpoint.
+ * 
+ * A log starts with a header of magic "SNWL", version and generation, and then
+ * holds one record per change: its payload length, the CRC32C of its payload,
+ * and the payload, which is the action ('a', 'r', 's', or 'c' for clear), the
+ * number of users and each user as a length and UTF-8 bytes. All numbers are
+ * big endian. A crash may leave the last records torn, so replay stops at the
+ * first record which is cut short or fails its checksum, and the log is
+ * truncated there before being appended to.
+ * 
+ * Records are appended to a buffer under a short lock and numbered in order.
+ * A mutator appends its record while holding the locks of the network, then
+ * releases them and waits in await() until its record is durable, so a commit
+ * holds up no other change. The first waiter to find no commit running leads
+ * the next one: it writes and forces every record appended so far, while the
+ * records appended meanwhile go to a second buffer and their writers wait for
+ * the commit after, which one of them leads in turn. Concurrent changes thus
+ * share one force. A leader may also wait up to commitMillis for groupSize
+ * records to gather before forcing.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class MutationLog implements Closeable {
+
+	static final int MAGIC = 0x534E574C; // "SNWL"
+	static final int VERSION = 1;
+	static final byte ADD = 'a'; // actions logged
+	static final byte REMOVE = 'r';
+	static final byte SELECT = 's';
+	static final byte CLEAR = 'c';
+	private static final int HEADER = 16; // bytes of magic, version and generation
+	private static final int RECORD_HEADER = 8; // bytes of length and checksum before each payload
+	private static final int MAX_RECORD = 1 << 26; // longest payload read back
+	private static final int BUFFER_SIZE = 1 << 16; // initial size of each buffer
+	private static final int FLUSH_SIZE = 1 << 20; // buffered bytes at which awaitIfFull() commits
+
+	private final Path directory;
+	private final int groupSize;
+	private final long commitNanos; // longest a leader waits for its group to gather
+	private final long recovered; // records replayed when log was opened
+	private final ReentrantLock lock = new ReentrantLock(); // guards the fields below, other than channel and generation
+	private final Condition committed = lock.newCondition(); // signalled when a commit ends
+	private final Condition gathered = lock.newCondition(); // signalled when a group has gathered
+	private final CRC32C checksum = new CRC32C();
+	private FileChannel channel; // log of current generation, used only by the thread committing
+	private long generation; // current generation, likewise
+	private ByteBuffer active; // records not yet written
+	private ByteBuffer spare; // buffer to take over from active, null while it is being written
+	private long appended; // number of last record appended
+	private long durable; // number of last record forced to disk
+	private boolean committing; // true while a thread writes and forces records
+	private IOException failure; // failure of a commit, after which nothing more is logged
+
+	/**
+	 * Constructor used by open()
+	 */
+	private MutationLog(Path directory, long generation, FileChannel channel, int groupSize, long commitMillis,
+			long recovered) {
+		this.directory = directory;
+		this.generation = generation;
+		this.channel = channel;
+		this.groupSize = groupSize;
+		this.commitNanos = TimeUnit.MILLISECONDS.toNanos(commitMillis);
+		this.recovered = recovered;
+		this.active = ByteBuffer.allocate(BUFFER_SIZE);
+		this.spare = ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+	/**
+	 * Recovers a network from a log directory and opens the log for appending.
+	 * An empty or missing directory is started with a snapshot of the network
+	 * as it is; otherwise the network is replaced by the one recovered. Caller
+	 * must hold every lock of the network's mutators, with no log attached, so
+	 * that replayed changes are not logged again.
+	 * 
+	 * @param directory    of log
+	 * @param network      to recover into
+	 * @param groupSize    records a commit waits to gather
+	 * @param commitMillis longest a commit waits for its group, or 0 for none
+	 * @return open log
+	 * @throws IOException if directory cannot be read or written, or its files
+	 *                     are damaged other than at the end of the newest log
+	 */
+	static MutationLog open(Path directory, SocialNetwork network, int groupSize, long commitMillis)
+			throws IOException {
+		Files.createDirectories(directory);
+		NavigableMap<Long, Path> snapshots = new TreeMap<Long, Path>();
+		NavigableMap<Long, Path> logs = new TreeMap<Long, Path>();
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+			for (Path entry : entries) {
+				String name = entry.getFileName().toString();
+				if (name.startsWith("snapshot-") && name.endsWith(".bin.tmp")) {
+					Files.delete(entry); // left by a crash while writing a snapshot
+				} else if (generationOf(name, "snapshot-") >= 0) {
+					snapshots.put(generationOf(name, "snapshot-"), entry);
+				} else if (generationOf(name, "log-") >= 0) {
+					logs.put(generationOf(name, "log-"), entry);
+				}
+			}
+		}
+
+		// Start from newest snapshot which can be read
+		long start = -1;
+		IOException damaged = null;
+		if (snapshots.isEmpty() && logs.isEmpty()) {
+			BinarySnapshot.write(network.getGraph(), network.activeUser, snapshotFile(directory, 0));
+			syncDirectory(directory);
+			start = 0;
+		}
+		for (Map.Entry<Long, Path> snapshot : snapshots.descendingMap().entrySet()) {
+			try {
+				network.loadSnapshot(snapshot.getValue());
+				start = snapshot.getKey();
+				break;
+			} catch (IOException e) {
+				damaged = damaged != null ? damaged : e;
+			}
+		}
+		if (start < 0) {
+			throw new IOException("No intact snapshot in " + directory + ".", damaged);
+		}
+
+		// Replay logs of every generation since
+		NavigableMap<Long, Path> tail = logs.tailMap(start, true);
+		long expected = start;
+		for (long generation : tail.keySet()) {
+			if (generation != expected++) {
+				throw new IOException("Log of generation " + (expected - 1) + " is missing from " + directory + ".");
+			}
+		}
+		CommandLoader loader = new CommandLoader(network);
+		long newest = tail.isEmpty() ? start : tail.lastKey();
+		long end = 0; // length of intact part of newest log
+		for (Map.Entry<Long, Path> log : tail.entrySet()) {
+			Path file = log.getValue();
+			end = replay(file, log.getKey(), loader);
+			if (log.getKey() != newest && end < Files.size(file)) {
+				throw new IOException(file + " is damaged before its end.");
+			}
+		}
+		long recovered = loader.finish();
+
+		FileChannel channel;
+		if (end < HEADER) {
+			channel = create(directory, newest);
+		} else {
+			channel = FileChannel.open(logFile(directory, newest), StandardOpenOption.WRITE);
+			try {
+				channel.truncate(end);
+				channel.position(end);
+				channel.force(true);
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+		}
+		return new MutationLog(directory, newest, channel, groupSize, commitMillis, recovered);
+	}
+
+	/**
+	 * Getter for number of records replayed when log was opened
+	 * 
+	 * @return records replayed
+	 */
+	long recovered() {
+		return recovered;
+	}
+
+	/**
+	 * Appends record of a change, to be made durable by await().
+	 * 
+	 * @param action ADD, REMOVE, SELECT or CLEAR
+	 * @param user1  first user, or null if none
+	 * @param user2  second user, or null if none
+	 * @return number of record, counting from 1
+	 * @throws IOException if a commit has failed
+	 */
+	long append(byte action, String user1, String user2) throws IOException {
+		byte[] name1 = user1 == null ? null : user1.getBytes(StandardCharsets.UTF_8);
+		byte[] name2 = user2 == null ? null : user2.getBytes(StandardCharsets.UTF_8);
+		int length = 2 + (name1 == null ? 0 : 4 + name1.length) + (name2 == null ? 0 : 4 + name2.length);
+		lock.lock();
+		try {
+			if (failure != null) {
+				throw new IOException("Mutation log failed to commit.", failure);
+			}
+			if (active.remaining() < RECORD_HEADER + length) {
+				ByteBuffer grown = ByteBuffer
+						.allocate(Math.max(2 * active.capacity(), active.position() + RECORD_HEADER + length));
+				active.flip();
+				active = grown.put(active);
+			}
+			int start = active.position();
+			active.position(start + RECORD_HEADER);
+			active.put(action);
+			active.put((byte) (name1 == null ? 0 : name2 == null ? 1 : 2));
+			if (name1 != null) {
+				active.putInt(name1.length).put(name1);
+			}
+			if (name2 != null) {
+				active.putInt(name2.length).put(name2);
+			}
+			checksum.reset();
+			checksum.update(active.array(), start + RECORD_HEADER, length);
+			active.putInt(start, length);
+			active.putInt(start + 4, (int) checksum.getValue());
+			if (++appended - durable >= groupSize) {
+				gathered.signal();
+			}
+			return appended;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until record is durable, leading a commit if none is running.
+	 * Must not be called holding locks other writers need, as it waits for
+	 * the disk.
+	 * 
+	 * @param record number of record, as returned by append(); numbers beyond
+	 *               the last record appended, left by a log closed since, are
+	 *               taken to be durable already
+	 * @throws IOException if record cannot be written, now or before
+	 */
+	void await(long record) throws IOException {
+		boolean interrupted = false;
+		lock.lock();
+		try {
+			long target = Math.min(record, appended);
+			while (durable < target) {
+				if (failure != null) {
+					throw new IOException("Mutation log failed to commit.", failure);
+				}
+				if (committing) {
+					committed.awaitUninterruptibly();
+					continue;
+				}
+				committing = true;
+				try {
+					// Let a group gather, as the force costs the same for one record or many
+					long deadline = System.nanoTime() + commitNanos;
+					for (long left = commitNanos; left > 0 && appended - durable < groupSize;) {
+						try {
+							left = gathered.awaitNanos(left);
+						} catch (InterruptedException e) {
+							interrupted = true; // kept until after the force, which an interrupt aborts
+							left = deadline - System.nanoTime();
+						}
+					}
+					flush();
+				} finally {
+					committing = false;
+					committed.signalAll();
+				}
+			}
+		} finally {
+			lock.unlock();
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Waits as await() does, but only once unwritten records fill FLUSH_SIZE
+	 * bytes, for callers which await their last record at the end of a batch.
+	 * 
+	 * @param record number of record, as returned by append()
+	 * @throws IOException if record cannot be written, now or before
+	 */
+	void awaitIfFull(long record) throws IOException {
+		boolean full;
+		lock.lock();
+		try {
+			full = active.position() >= FLUSH_SIZE;
+		} finally {
+			lock.unlock();
+		}
+		if (full) {
+			await(record);
+		}
+	}
+
+	/**
+	 * Writes records appended so far and forces them to disk.
+	 * 
+	 * @throws IOException if records cannot be written, now or before
+	 */
+	void commit() throws IOException {
+		await(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Commits the current generation and starts the next one, whose snapshot
+	 * is then to be written to snapshotFile() and reported to checkpointed().
+	 * Caller must keep records from being appended meanwhile.
+	 * 
+	 * @return new generation
+	 * @throws IOException if log cannot be committed or next one created
+	 */
+	long roll() throws IOException {
+		lock.lock();
+		try {
+			lead();
+			try {
+				flush();
+				FileChannel next = create(directory, generation + 1);
+				channel.close();
+				channel = next;
+				return ++generation;
+			} finally {
+				committing = false;
+				committed.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Getter for snapshot file of generation
+	 * 
+	 * @param generation of snapshot
+	 * @return path of snapshot file
+	 */
+	Path snapshotFile(long generation) {
+		return snapshotFile(directory, generation);
+	}
+
+	/**
+	 * Deletes the files of generations before one whose snapshot has been
+	 * written, as recovery no longer needs them.
+	 * 
+	 * @param generation whose snapshot is complete
+	 * @throws IOException if files cannot be deleted
+	 */
+	void checkpointed(long generation) throws IOException {
+		syncDirectory(directory);
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+			for (Path entry : entries) {
+				String name = entry.getFileName().toString();
+				long older = Math.max(generationOf(name, "snapshot-"), generationOf(name, "log-"));
+				if (older >= 0 && older < generation) {
+					Files.deleteIfExists(entry); // unless a concurrent checkpoint did
+				}
+			}
+		}
+	}
+
+	/**
+	 * Commits and closes the log.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			lead();
+			try {
+				flush();
+			} finally {
+				channel.close();
+				committing = false;
+				committed.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits for any commit running to end, and starts one. Called holding
+	 * lock.
+	 */
+	private void lead() {
+		while (committing) {
+			committed.awaitUninterruptibly();
+		}
+		committing = true;
+	}
+
+	/**
+	 * Writes every record appended so far and forces it to disk. Called
+	 * holding lock, by the thread committing; lock is released meanwhile, so
+	 * records can be appended to the other buffer.
+	 * 
+	 * @throws IOException if records cannot be written, now or before
+	 */
+	private void flush() throws IOException {
+		if (failure != null) {
+			throw new IOException("Mutation log failed to commit.", failure);
+		}
+		if (appended == durable) {
+			return;
+		}
+		ByteBuffer full = active;
+		long last = appended;
+		active = spare;
+		spare = null;
+		IOException failed = null;
+		lock.unlock();
+		try {
+			full.flip();
+			while (full.hasRemaining()) {
+				channel.write(full);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			failed = e;
+		} finally {
+			full.clear();
+			lock.lock();
+			spare = full;
+		}
+		if (failed != null) {
+			failure = failed;
+			throw failed;
+		}
+		durable = last;
+	}
+
+	/**
+	 * Replays the intact records of a log.
+	 * 
+	 * @return length of intact part of log, 0 if even its header is torn
+	 */
+	private static long replay(Path file, long generation, CommandLoader loader) throws IOException {
+		long size = Files.size(file);
+		if (size < HEADER) {
+			return 0;
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != generation) {
+				throw new IOException(file + " is not a mutation log of a supported version.");
+			}
+			long position = HEADER;
+			byte[] payload = new byte[64];
+			CRC32C checksum = new CRC32C();
+			while (size - position >= RECORD_HEADER) {
+				int length = in.readInt();
+				int expected = in.readInt();
+				if (length < 2 || length > MAX_RECORD || length > size - position - RECORD_HEADER) {
+					break; // torn
+				}
+				if (length > payload.length) {
+					payload = new byte[Math.max(length, 2 * payload.length)];
+				}
+				in.readFully(payload, 0, length);
+				checksum.reset();
+				checksum.update(payload, 0, length);
+				if ((int) checksum.getValue() != expected) {
+					break; // torn
+				}
+				apply(ByteBuffer.wrap(payload, 0, length), loader, file);
+				position += RECORD_HEADER + length;
+			}
+			return position;
+		}
+	}
+
+	/**
+	 * Runs the change of one intact record.
+	 */
+	private static void apply(ByteBuffer record, CommandLoader loader, Path file) throws IOException {
+		byte action = record.get();
+		int count = record.get();
+		String[] users = new String[2];
+		for (int i = 0; i < count && i < 2; i++) {
+			int length = record.remaining() >= 4 ? record.getInt() : -1;
+			if (length < 0 || length > record.remaining()) {
+				throw new IOException(file + " holds a malformed record.");
+			}
+			users[i] = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+			record.position(record.position() + length);
+		}
+		boolean valid = (action == ADD || action == REMOVE) && (count == 1 || count == 2)
+				|| action == SELECT && count == 1 || action == CLEAR && count == 0;
+		if (!valid || record.hasRemaining()) {
+			throw new IOException(file + " holds a malformed record.");
+		}
+		loader.apply(action, users[0], users[1]);
+	}
+
+	/**
+	 * Creates log of generation, replacing any torn one, with its header forced
+	 * to disk.
+	 */
+	private static FileChannel create(Path directory, long generation) throws IOException {
+		FileChannel channel = FileChannel.open(logFile(directory, generation), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			channel.force(true);
+			syncDirectory(directory);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	/**
+	 * Forces the entries of a directory to disk, so files created or renamed in
+	 * it survive a crash. Skipped where directories cannot be opened.
+	 */
+	private static void syncDirectory(Path directory) {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// Directories cannot be opened as files on every platform
+		}
+	}
+
+	/**
+	 * Parses generation from name of file, as prefix, generation and ".bin".
+	 * 
+	 * @return generation, or -1 if name is not of that form
+	 */
+	private static long generationOf(String name, String prefix) {
+		if (!name.startsWith(prefix) || !name.endsWith(".bin")
+				|| name.length() == prefix.length() + 4 || name.length() > prefix.length() + 22) {
+			return -1;
+		}
+		long generation = 0;
+		for (int i = prefix.length(); i < name.length() - 4; i++) {
+			char c = name.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			generation = 10 * generation + (c - '0');
+		}
+		return generation;
+	}
+
+	private static Path snapshotFile(Path directory, long generation) {
+		return directory.resolve("snapshot-" + generation + ".bin");
+	}
+
+	private static Path logFile(Path directory, long generation) {
+		return directory.resolve("log-" + generation + ".bin");
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * File: MutationLogTest.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the tests of recovery from the write-ahead log kept by
+ * MutationLog.java.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of recovering a network from its log directory after a crash: a torn
+ * last record, a damaged newest snapshot and a directory with no intact
+ * snapshot at all.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class MutationLogTest {
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * A record cut short by a crash is dropped, along with nothing before it,
+	 * and the log is truncated there so later changes follow the last intact
+	 * record.
+	 */
+	@Test
+	void recoversUpToTornLastRecord() throws IOException {
+		SocialNetwork network = new SocialNetwork();
+		network.openLog(directory, 1, 0);
+		network.addFriends("a", "b");
+		String intact = TestNetworks.state(network);
+		Path log = directory.resolve("log-0.bin");
+		long end = Files.size(log);
+		network.addFriends("b", "c");
+		network.closeLog();
+		truncate(log, Files.size(log) - 3);
+
+		SocialNetwork recovered = new SocialNetwork();
+		recovered.openLog(directory, 1, 0);
+		assertEquals(intact, TestNetworks.state(recovered));
+		assertEquals(end, Files.size(log), "torn record not truncated");
+		recovered.addUser("d");
+		recovered.closeLog();
+
+		SocialNetwork reopened = new SocialNetwork();
+		reopened.openLog(directory, 1, 0);
+		assertEquals(TestNetworks.state(recovered), TestNetworks.state(reopened));
+		reopened.closeLog();
+	}
+
+	/**
+	 * A last record whose checksum fails is treated like a torn one.
+	 */
+	@Test
+	void dropsLastRecordFailingChecksum() throws IOException {
+		SocialNetwork network = new SocialNetwork();
+		network.openLog(directory, 1, 0);
+		network.addFriends("a", "b");
+		String intact = TestNetworks.state(network);
+		network.addFriends("b", "c");
+		network.closeLog();
+		Path log = directory.resolve("log-0.bin");
+		flip(log, Files.size(log) - 1);
+
+		SocialNetwork recovered = new SocialNetwork();
+		recovered.openLog(directory, 1, 0);
+		assertEquals(intact, TestNetworks.state(recovered));
+		recovered.closeLog();
+	}
+
+	/**
+	 * When a crash leaves the files of the generation before a checkpoint and
+	 * the newest snapshot is damaged, the older snapshot is loaded and the logs
+	 * of both generations are replayed.
+	 */
+	@Test
+	void fallsBackToPreviousSnapshotGeneration() throws IOException {
+		SocialNetwork network = new SocialNetwork();
+		network.openLog(directory, 1, 0);
+		network.addFriends("a", "b");
+		network.addUser("c");
+		byte[] snapshot = Files.readAllBytes(directory.resolve("snapshot-0.bin"));
+		byte[] log = Files.readAllBytes(directory.resolve("log-0.bin"));
+		network.checkpoint();
+		network.addFriends("c", "d");
+		network.removeFriends("a", "b");
+		network.closeLog();
+		assertFalse(Files.exists(directory.resolve("log-0.bin")), "checkpoint kept old generation");
+		// As if the crash came before the old generation was deleted
+		Files.write(directory.resolve("snapshot-0.bin"), snapshot);
+		Files.write(directory.resolve("log-0.bin"), log);
+		Path newest = directory.resolve("snapshot-1.bin");
+		flip(newest, Files.size(newest) / 2);
+
+		SocialNetwork recovered = new SocialNetwork();
+		long replayed = recovered.openLog(directory, 1, 0);
+		assertEquals(TestNetworks.state(network), TestNetworks.state(recovered));
+		assertTrue(replayed >= 4, "logs of both generations not replayed");
+		recovered.closeLog();
+	}
+
+	/**
+	 * A directory whose only snapshot is damaged is refused rather than
+	 * replayed onto an empty network.
+	 */
+	@Test
+	void rejectsDirectoryWithoutIntactSnapshot() throws IOException {
+		SocialNetwork network = new SocialNetwork();
+		network.addFriends("a", "b");
+		network.openLog(directory, 1, 0);
+		network.addFriends("b", "c");
+		network.closeLog();
+		Path snapshot = directory.resolve("snapshot-0.bin");
+		flip(snapshot, Files.size(snapshot) / 2);
+
+		SocialNetwork recovered = new SocialNetwork();
+		assertThrows(IOException.class, () -> recovered.openLog(directory, 1, 0));
+	}
+
+	/**
+	 * Cuts file to given length.
+	 */
+	private static void truncate(Path file, long length) throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, (int) length));
+	}
+
+	/**
+	 * Flips the lowest bit of byte at given position of file.
+	 */
+	private static void flip(Path file, long position) throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		bytes[(int) position] ^= 1;
+		Files.write(file, bytes);
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * File: NeighborCursor.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the interface for scanning the neighbor ids of
+ * nodes in an IndexedGraphADT without allocating.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+/**
+ * Reusable cursor over the neighbor ids of one node at a time. A traversal
+ * creates one cursor and resets it onto each node it visits, so scanning
+ * neighbors allocates nothing per visited node:
+ * 
+ * <pre>
+ * cursor.reset(id);
+ * for (int friend = cursor.next(); friend &gt;= 0; friend = cursor.next()) {
+ * 	...
+ * }
+ * </pre>
+ * 
+ * A cursor reads the graph's storage directly, so the graph must not be
+ * modified while a cursor is in use.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+public interface NeighborCursor {
+
+	/**
+	 * Positions cursor before first neighbor of given node.
+	 * 
+	 * @param id of node whose neighbors to scan
+	 */
+	public void reset(int id);
+
+	/**
+	 * Gets next neighbor id.
+	 * 
+	 * @return id of next neighbor, or -1 once all neighbors have been returned
+	 */
+	public int next();
+}
@@ -0,0 +1,284 @@
+/*
+ * File: NeighborSet.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the set of neighbor ids kept for each node by
+ * Graph.java
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Set of non-negative int ids which adapts its layout to its size. Small sets
+ * are a plain array scanned linearly, which beats hashing for the handful of
+ * friends most users have. Once a set outgrows SMALL_LIMIT it switches to an
+ * open addressing hash table with linear probing, so membership tests, inserts
+ * and removals stay O(1) for hub users with hundreds of thousands of friends.
+ * 
+ * In both layouts ids are stored in slots of one int array, with EMPTY marking
+ * unused slots of the hash table, so the set can be scanned without allocating.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class NeighborSet {
+
+	static final int EMPTY = -1; // marks unused slot in hash layout
+	private static final int SMALL_LIMIT = 32; // largest set kept as a plain array
+	private static final int[] NONE = new int[0];
+
+	private int[] slots; // ids (array layout) or hash table (hash layout)
+	private int count; // number of ids in set
+	private boolean hashed; // true once set uses hash layout
+
+	/*
+	 * Default no-argument constructor
+	 */
+	NeighborSet() {
+		slots = NONE;
+	}
+
+	/**
+	 * Getter for number of ids in set
+	 * 
+	 * @return size of set
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Determines if id is in set.
+	 * 
+	 * @param id in question
+	 * @return true if present
+	 */
+	boolean contains(int id) {
+		if (!hashed) {
+			for (int i = 0; i < count; i++) {
+				if (slots[i] == id) {
+					return true;
+				}
+			}
+			return false;
+		}
+		int mask = slots.length - 1;
+		for (int i = hash(id) & mask;; i = (i + 1) & mask) {
+			int slot = slots[i];
+			if (slot == id) {
+				return true;
+			} else if (slot == EMPTY) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Adds id to set if not present.
+	 * 
+	 * @param id to add
+	 * @return true if set changed
+	 */
+	boolean add(int id) {
+		if (!hashed) {
+			if (contains(id)) {
+				return false;
+			}
+			if (count < SMALL_LIMIT) {
+				if (count == slots.length) {
+					slots = Arrays.copyOf(slots, Math.max(2, Math.min(SMALL_LIMIT, count * 2)));
+				}
+				slots[count++] = id;
+				return true;
+			}
+			rehash(tableLength(count + 1));
+		} else if ((count + 1) * 4 > slots.length * 3) {
+			// Keep load factor at most 3/4
+			rehash(slots.length * 2);
+		}
+		if (insert(slots, id)) {
+			++count;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes id from set if present.
+	 * 
+	 * @param id to remove
+	 * @return true if set changed
+	 */
+	boolean remove(int id) {
+		if (!hashed) {
+			for (int i = 0; i < count; i++) {
+				if (slots[i] == id) {
+					slots[i] = slots[--count]; // move last id into its slot
+					return true;
+				}
+			}
+			return false;
+		}
+		int mask = slots.length - 1;
+		int i = hash(id) & mask;
+		while (slots[i] != id) {
+			if (slots[i] == EMPTY) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		// Shift later entries of the probe run back so no tombstones are needed
+		int gap = i;
+		for (int j = (gap + 1) & mask; slots[j] != EMPTY; j = (j + 1) & mask) {
+			int home = hash(slots[j]) & mask;
+			// Move entry into gap unless its home lies cyclically in (gap, j]
+			if (gap <= j ? (home <= gap || home > j) : (home <= gap && home > j)) {
+				slots[gap] = slots[j];
+				gap = j;
+			}
+		}
+		slots[gap] = EMPTY;
+		--count;
+		// Fall back to array layout once set is small again
+		if (count <= SMALL_LIMIT / 2) {
+			int[] small = new int[SMALL_LIMIT];
+			copyTo(small);
+			slots = small;
+			hashed = false;
+		}
+		return true;
+	}
+
+	/**
+	 * Makes room for given number of ids, so that adding up to that many does not
+	 * grow the set more than once.
+	 * 
+	 * @param ids number of ids set will hold
+	 */
+	void ensureCapacity(int ids) {
+		if (ids <= SMALL_LIMIT) {
+			if (!hashed && ids > slots.length) {
+				slots = Arrays.copyOf(slots, ids);
+			}
+		} else if (!hashed || ids * 4 > slots.length * 3) {
+			rehash(Math.max(slots.length, tableLength(ids)));
+		}
+	}
+
+	/**
+	 * Adds id known not to be in set, without looking for it first. Used to
+	 * fill sets in bulk, once ensureCapacity() has made room for every id to be
+	 * added.
+	 * 
+	 * @param id to add
+	 */
+	void addAbsent(int id) {
+		if (!hashed) {
+			slots[count++] = id;
+		} else {
+			insert(slots, id);
+			++count;
+		}
+	}
+
+	/**
+	 * Copies all ids in set into buffer.
+	 * 
+	 * @param buffer to copy into, must have room for size() ids
+	 * @return number of ids copied
+	 */
+	int copyTo(int[] buffer) {
+		if (!hashed) {
+			System.arraycopy(slots, 0, buffer, 0, count);
+			return count;
+		}
+		int copied = 0;
+		for (int slot : slots) {
+			if (slot != EMPTY) {
+				buffer[copied++] = slot;
+			}
+		}
+		return copied;
+	}
+
+	/**
+	 * Number of slots to scan when iterating over set with slotAt().
+	 * 
+	 * @return slot count
+	 */
+	int slotCount() {
+		return hashed ? slots.length : count;
+	}
+
+	/**
+	 * Gets id stored in slot.
+	 * 
+	 * @param slot index below slotCount()
+	 * @return id in slot, or EMPTY if slot is unused
+	 */
+	int slotAt(int slot) {
+		return slots[slot];
+	}
+
+	/**
+	 * Switches to hash layout with a table of given length.
+	 */
+	private void rehash(int length) {
+		int[] table = new int[length];
+		Arrays.fill(table, EMPTY);
+		if (hashed) {
+			for (int slot : slots) {
+				if (slot != EMPTY) {
+					insert(table, slot);
+				}
+			}
+		} else {
+			for (int i = 0; i < count; i++) {
+				insert(table, slots[i]);
+			}
+		}
+		slots = table;
+		hashed = true;
+	}
+
+	/**
+	 * Inserts id into hash table.
+	 * 
+	 * @return false if id was already present
+	 */
+	private static boolean insert(int[] table, int id) {
+		int mask = table.length - 1;
+		for (int i = hash(id) & mask;; i = (i + 1) & mask) {
+			if (table[i] == id) {
+				return false;
+			} else if (table[i] == EMPTY) {
+				table[i] = id;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Smallest power of two table which holds given number of ids at load 1/2.
+	 */
+	private static int tableLength(int ids) {
+		return Integer.highestOneBit(Math.max(2, ids) * 2 - 1) * 2;
+	}
+
+	/**
+	 * Scrambles id so that runs of consecutive ids spread over the table.
+	 */
+	private static int hash(int id) {
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * File: NeighborView.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the read-only view of a node's neighbors returned
+ * by IndexedGraphADT.neighbors()
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Unmodifiable, live view of the neighbors of one node. Unlike getNeighbors(),
+ * nothing is copied: iteration walks the graph's own storage through a
+ * NeighborCursor and membership is answered with hasEdge().
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class NeighborView extends AbstractCollection<Person> {
+
+	private final IndexedGraphADT graph;
+	private final Person node;
+
+	/**
+	 * Constructor with graph and node whose neighbors are viewed
+	 * 
+	 * @param graph containing node
+	 * @param node  interned instance of node
+	 */
+	NeighborView(IndexedGraphADT graph, Person node) {
+		this.graph = graph;
+		this.node = node;
+	}
+
+	@Override
+	public int size() {
+		return graph.degree(node.getId());
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Person)) {
+			return false;
+		}
+		Person friend = graph.findNode(((Person) o).getName());
+		return friend != null && graph.hasEdge(node.getId(), friend.getId());
+	}
+
+	@Override
+	public Iterator<Person> iterator() {
+		final NeighborCursor cursor = graph.newNeighborCursor();
+		cursor.reset(node.getId());
+		return new Iterator<Person>() {
+			private int next = cursor.next(); // id of next neighbor, -1 at end
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public Person next() {
+				if (next < 0) {
+					throw new NoSuchElementException();
+				}
+				Person friend = graph.getNodeById(next);
+				next = cursor.next();
+				return friend;
+			}
+		};
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * File: NeighborhoodSearch.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the depth bounded breadth first search used by
+ * SocialNetwork.java to list the users within a number of hops of a user.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Breadth first search from one node which stops at a given depth, or once a
+ * given number of nodes have been reached. Each node is handed to a
+ * NeighborhoodVisitor as soon as it is found, so nodes arrive in order of
+ * distance and no result collection is built.
+ * 
+ * As with PathSearch, the stamps and queue are int arrays indexed by id which
+ * are kept per thread and never cleared: each search stamps the nodes it
+ * reaches with a fresh epoch. A search therefore costs only the nodes it
+ * touches, however large the graph. A visitor may itself search the network;
+ * such a nested search gets a workspace of its own rather than disturbing the
+ * one in use. The workspaces are held through Workspaces, so those of idle
+ * threads can be reclaimed.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class NeighborhoodSearch {
+
+	private static final Workspaces<NeighborhoodSearch> WORKSPACES = new Workspaces<NeighborhoodSearch>(
+			NeighborhoodSearch::new);
+
+	private int[] stamps; // epoch of search which reached each id
+	private int[] queue; // ids reached, in order of distance
+	private int epoch;
+	private boolean busy; // true while a search is running on this workspace
+
+	/*
+	 * Default no-argument constructor
+	 */
+	private NeighborhoodSearch() {
+		stamps = new int[0];
+		queue = new int[0];
+	}
+
+	/**
+	 * Gets the search state of the current thread, sized for given id bound.
+	 * 
+	 * @param bound id bound of graph to search
+	 * @return search state, a fresh one if the thread's own is in use
+	 */
+	static NeighborhoodSearch workspace(int bound) {
+		NeighborhoodSearch search = WORKSPACES.get();
+		if (search.busy) {
+			search = new NeighborhoodSearch();
+		}
+		if (search.stamps.length < bound) {
+			int length = Math.max(bound, search.stamps.length + (search.stamps.length >> 1));
+			search.stamps = Arrays.copyOf(search.stamps, length);
+			search.queue = new int[length];
+		}
+		return search;
+	}
+
+	/**
+	 * Visits nodes within given distance of a node, nearest first, excluding
+	 * the node itself.
+	 * 
+	 * @param graph   to search, whose id bound the workspace was sized for
+	 * @param source  id of node to search from
+	 * @param depth   greatest distance to visit
+	 * @param limit   most nodes to visit
+	 * @param visitor to hand each node to, which may stop the search
+	 * @return number of nodes visited
+	 */
+	int search(IndexedGraphADT graph, int source, int depth, int limit, NeighborhoodVisitor visitor) {
+		if (depth == 0 || limit == 0) {
+			return 0;
+		}
+		busy = true;
+		try {
+			nextEpoch();
+			NeighborCursor friends = graph.newNeighborCursor();
+			stamps[source] = epoch;
+			queue[0] = source;
+			int head = 0;
+			int tail = 1;
+			int visited = 0;
+			// Expand a level at a time, so the distance is known without storing it
+			for (int distance = 1; distance <= depth && head < tail; distance++) {
+				int level = tail;
+				while (head < level) {
+					friends.reset(queue[head++]);
+					for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+						if (stamps[friend] == epoch) {
+							continue;
+						}
+						stamps[friend] = epoch;
+						queue[tail++] = friend;
+						++visited;
+						if (!visitor.visit(graph.getNodeById(friend), distance) || visited == limit) {
+							return visited;
+						}
+					}
+				}
+			}
+			return visited;
+		} finally {
+			busy = false;
+		}
+	}
+
+	/**
+	 * Moves to fresh stamp, clearing stamps once epochs run out.
+	 */
+	private void nextEpoch() {
+		if (epoch == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			epoch = 0;
+		}
+		++epoch;
+	}
+}
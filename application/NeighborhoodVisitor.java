@@ -0,0 +1,44 @@
+/*
+ * File: NeighborhoodVisitor.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the callback through which SocialNetwork.java streams
+ * the users within a number of hops of a user.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+/**
+ * Receives the users of a neighborhood one at a time, nearest first, as the
+ * search reaches them. Returning false stops the search, so a caller which
+ * finds what it needs early pays only for the users reached so far:
+ * 
+ * <pre>
+ * network.forEachWithin("alice", 2, 100, (person, distance) -&gt; {
+ * 	notify(person);
+ * 	return true;
+ * });
+ * </pre>
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+@FunctionalInterface
+public interface NeighborhoodVisitor {
+
+	/**
+	 * Visits a user of the neighborhood.
+	 * 
+	 * @param person   reached
+	 * @param distance in friendships from the user searched from, at least 1
+	 * @return true to continue the search, false to stop it
+	 */
+	public boolean visit(Person person, int distance);
+}
@@ -0,0 +1,57 @@
+/*
+ * File: NodeView.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the read-only view of all nodes returned by
+ * IndexedGraphADT.nodes()
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Unmodifiable, live view of the nodes of a graph. Unlike getAllNodes(),
+ * nothing is copied: iteration walks the graph's vertex list and membership is
+ * answered with a name lookup.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class NodeView extends AbstractSet<Person> {
+
+	private final IndexedGraphADT graph;
+
+	/**
+	 * Constructor with graph whose nodes are viewed
+	 * 
+	 * @param graph in question
+	 */
+	NodeView(IndexedGraphADT graph) {
+		this.graph = graph;
+	}
+
+	@Override
+	public int size() {
+		return graph.order();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o instanceof Person && graph.contains(((Person) o).getName());
+	}
+
+	@Override
+	public Iterator<Person> iterator() {
+		return Collections.unmodifiableList(graph.getVertices()).iterator();
+	}
+}
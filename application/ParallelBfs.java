@@ -0,0 +1,232 @@
+/*
+ * File: ParallelBfs.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the parallel single source breadth first search used by
+ * SocialNetwork.java for degrees of separation.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Direction optimizing breadth first search, run level by level on a
+ * ForkJoinPool. Each level is either expanded top-down, with every frontier
+ * node claiming its unvisited neighbors by compare and set, or bottom-up, with
+ * every unvisited node scanning its neighbors until it finds one in the
+ * frontier. Top-down is cheaper while the frontier is small. Once the edges
+ * leaving the frontier outnumber a fraction of those leaving unvisited nodes,
+ * most of those edges lead to nodes already visited, and bottom-up, which stops
+ * at the first frontier neighbor, does far less work. The search switches back
+ * once the frontier shrinks again.
+ * 
+ * Both kinds of step split their range of nodes into tasks of GRAIN nodes, and
+ * each task collects the nodes it reaches locally before appending them to the
+ * next frontier in one block. The graph must not change during a search; a
+ * snapshot can be searched instead.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class ParallelBfs {
+
+	private static final VarHandle DISTANCES = MethodHandles.arrayElementVarHandle(int[].class);
+	private static final int ALPHA = 14; // go bottom-up once frontier edges exceed unvisited edges / ALPHA
+	private static final int BETA = 24; // go top-down once frontier shrinks below nodes / BETA
+	private static final int GRAIN = 1024; // nodes handled by one task
+	private static final int UNSEEN = -1; // distance of nodes not reached yet
+	private static final int ABSENT = -2; // distance of ids not in use, during search
+
+	private final IndexedGraphADT graph;
+	private final int[] distances; // distance of each id from source, -1 if not reached
+	private int[] frontier; // nodes at distance level
+	private int frontierSize;
+	private int[] next; // nodes at distance level + 1, filled by tasks
+	private final AtomicInteger nextSize;
+	private final LongAdder nextDegrees; // sum of degrees of next frontier
+	private int level;
+
+	/**
+	 * Constructor for search of given graph.
+	 */
+	private ParallelBfs(IndexedGraphADT graph) {
+		this.graph = graph;
+		int bound = graph.idBound();
+		this.distances = new int[bound];
+		this.frontier = new int[bound];
+		this.next = new int[bound];
+		this.nextSize = new AtomicInteger();
+		this.nextDegrees = new LongAdder();
+	}
+
+	/**
+	 * Gets distance of every node from source.
+	 * 
+	 * @param graph  to search, which must not change during the search
+	 * @param source id of node to measure from
+	 * @param pool   to run on
+	 * @return array indexed by id of each node's distance from source, -1 for
+	 *         nodes not connected to source and for ids not in use
+	 */
+	static int[] distances(IndexedGraphADT graph, int source, ForkJoinPool pool) {
+		ParallelBfs search = new ParallelBfs(graph);
+		search.run(source, pool);
+		return search.distances;
+	}
+
+	/**
+	 * Runs search, one level per step.
+	 */
+	private void run(int source, ForkJoinPool pool) {
+		for (int id = 0; id < distances.length; id++) {
+			distances[id] = graph.getNodeById(id) == null ? ABSENT : UNSEEN;
+		}
+		distances[source] = 0;
+		frontier[0] = source;
+		frontierSize = 1;
+		long frontierDegrees = graph.degree(source);
+		long unvisitedDegrees = 2L * graph.size() - frontierDegrees;
+		int order = graph.order();
+		boolean bottomUp = false;
+		int previousSize = 0;
+		while (frontierSize > 0) {
+			if (!bottomUp) {
+				bottomUp = frontierDegrees > unvisitedDegrees / ALPHA;
+			} else {
+				bottomUp = frontierSize >= previousSize || frontierSize >= order / BETA;
+			}
+			nextSize.set(0);
+			nextDegrees.reset();
+			if (bottomUp) {
+				pool.invoke(new BottomUp(0, distances.length));
+			} else {
+				pool.invoke(new TopDown(0, frontierSize));
+			}
+			++level;
+			int[] done = frontier;
+			frontier = next;
+			next = done;
+			previousSize = frontierSize;
+			frontierSize = nextSize.get();
+			frontierDegrees = nextDegrees.sum();
+			unvisitedDegrees -= frontierDegrees;
+		}
+		for (int id = 0; id < distances.length; id++) {
+			if (distances[id] == ABSENT) {
+				distances[id] = UNSEEN;
+			}
+		}
+	}
+
+	/**
+	 * Appends nodes reached by a task to the next frontier.
+	 */
+	private void publish(int[] reached, int count, long degrees) {
+		if (count > 0) {
+			System.arraycopy(reached, 0, next, nextSize.getAndAdd(count), count);
+			nextDegrees.add(degrees);
+		}
+	}
+
+	/**
+	 * Top-down step over a range of frontier indices.
+	 */
+	private class TopDown extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+
+		TopDown(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TopDown(from, middle), new TopDown(middle, to));
+				return;
+			}
+			NeighborCursor friends = graph.newNeighborCursor();
+			int[] reached = new int[64];
+			int count = 0;
+			long degrees = 0;
+			for (int i = from; i < to; i++) {
+				friends.reset(frontier[i]);
+				for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+					// Claim friend, so exactly one task adds it to the next frontier
+					if (distances[friend] == UNSEEN && DISTANCES.compareAndSet(distances, friend, UNSEEN, level + 1)) {
+						if (count == reached.length) {
+							reached = Arrays.copyOf(reached, count * 2);
+						}
+						reached[count++] = friend;
+						degrees += graph.degree(friend);
+					}
+				}
+			}
+			publish(reached, count, degrees);
+		}
+	}
+
+	/**
+	 * Bottom-up step over a range of ids.
+	 */
+	private class BottomUp extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+
+		BottomUp(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BottomUp(from, middle), new BottomUp(middle, to));
+				return;
+			}
+			NeighborCursor friends = graph.newNeighborCursor();
+			int[] reached = new int[64];
+			int count = 0;
+			long degrees = 0;
+			for (int id = from; id < to; id++) {
+				if (distances[id] != UNSEEN) {
+					continue;
+				}
+				// Only this task writes id, and only to a value the frontier test
+				// ignores, so no atomics are needed
+				friends.reset(id);
+				for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+					if (distances[friend] == level) {
+						distances[id] = level + 1;
+						if (count == reached.length) {
+							reached = Arrays.copyOf(reached, count * 2);
+						}
+						reached[count++] = id;
+						degrees += graph.degree(id);
+						break;
+					}
+				}
+			}
+			publish(reached, count, degrees);
+		}
+	}
+}
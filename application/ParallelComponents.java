@@ -0,0 +1,228 @@
+/*
+ * File: ParallelComponents.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the parallel connected component labeling used by
+ * SocialNetwork.java for bulk analysis.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Connected component labeling in the style of Afforest, run on a
+ * ForkJoinPool. Every node starts as its own tree in a forest of parent
+ * pointers, and an edge is linked by hooking the root with the higher id under
+ * the other by compare and set, so concurrent links never lose a merge and
+ * every root is the lowest id of its tree.
+ * 
+ * Only the first SAMPLED edges of each node are linked at first, which on
+ * graphs with a giant component already joins most of it. The most common
+ * root among a random sample of nodes is then taken as the giant component,
+ * and the remaining edges are linked only for nodes outside it. An edge from
+ * inside the giant component to outside is still linked from its other end, so
+ * the result is exact while most edges of the graph are never read.
+ * 
+ * The graph must not change during labeling; a snapshot can be labeled
+ * instead.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class ParallelComponents {
+
+	private static final VarHandle PARENTS = MethodHandles.arrayElementVarHandle(int[].class);
+	private static final int SAMPLED = 2; // edges of each node linked before the giant component is found
+	private static final int SAMPLES = 1024; // nodes sampled to find the giant component
+	private static final int GRAIN = 1024; // nodes handled by one task
+
+	private final IndexedGraphADT graph;
+	private final int[] parents; // parent of each id in its tree, -1 for ids not in use
+
+	/**
+	 * Constructor for labeling of given graph.
+	 */
+	private ParallelComponents(IndexedGraphADT graph) {
+		this.graph = graph;
+		this.parents = new int[graph.idBound()];
+	}
+
+	/**
+	 * Labels every node with its connected component.
+	 * 
+	 * @param graph  to label, which must not change during labeling
+	 * @param source graph to release graph to once labels are closed, if it is
+	 *               a snapshot, or null
+	 * @param pool   to run on
+	 * @return component of each node
+	 */
+	static ComponentLabels label(IndexedGraphADT graph, IndexedGraphADT source, ForkJoinPool pool) {
+		ParallelComponents labeling = new ParallelComponents(graph);
+		labeling.run(pool);
+		// Roots are the lowest id of their component, so numbering roots in id
+		// order reaches each root before the rest of its component
+		int[] parents = labeling.parents;
+		int[] ids = parents; // numbered in place
+		int count = 0;
+		for (int id = 0; id < parents.length; id++) {
+			int parent = parents[id];
+			if (parent == id) {
+				ids[id] = count++;
+			} else if (parent >= 0) {
+				ids[id] = ids[parent];
+			}
+		}
+		int[] sizes = new int[count];
+		for (int id : ids) {
+			if (id >= 0) {
+				++sizes[id];
+			}
+		}
+		return new ComponentLabels(graph, source, ids, sizes);
+	}
+
+	/**
+	 * Runs labeling, in a pass over the sampled edges, a pass over the rest and
+	 * a compression after each.
+	 */
+	private void run(ForkJoinPool pool) {
+		pool.invoke(new Pass(0, parents.length, Pass.START));
+		pool.invoke(new Pass(0, parents.length, Pass.SAMPLE));
+		pool.invoke(new Pass(0, parents.length, Pass.COMPRESS));
+		int giant = giantRoot();
+		pool.invoke(new Pass(0, parents.length, giant));
+		pool.invoke(new Pass(0, parents.length, Pass.COMPRESS));
+	}
+
+	/**
+	 * Finds most common root among a random sample of nodes.
+	 * 
+	 * @return root of giant component, or -1 if graph is empty
+	 */
+	private int giantRoot() {
+		if (graph.order() == 0) {
+			return -1;
+		}
+		Random random = new Random(parents.length);
+		int[] roots = new int[SAMPLES];
+		int sampled = 0;
+		for (int tries = 0; sampled < SAMPLES && tries < 4 * SAMPLES; tries++) {
+			int id = random.nextInt(parents.length);
+			if (parents[id] >= 0) {
+				roots[sampled++] = parents[id];
+			}
+		}
+		// Sort and take longest run, as sample is small
+		Arrays.sort(roots, 0, sampled);
+		int giant = -1;
+		int longest = 0;
+		for (int i = 0, run = 0; i < sampled; i++) {
+			run = i > 0 && roots[i] == roots[i - 1] ? run + 1 : 1;
+			if (run > longest) {
+				longest = run;
+				giant = roots[i];
+			}
+		}
+		return giant;
+	}
+
+	/**
+	 * Joins trees of two nodes, hooking the higher root under the lower.
+	 */
+	private void link(int id1, int id2) {
+		int root1 = (int) PARENTS.getAcquire(parents, id1);
+		int root2 = (int) PARENTS.getAcquire(parents, id2);
+		while (root1 != root2) {
+			int high = Math.max(root1, root2);
+			int low = Math.min(root1, root2);
+			int parent = (int) PARENTS.getAcquire(parents, high);
+			if (parent == low) {
+				return; // another link got there first
+			}
+			if (parent == high && PARENTS.compareAndSet(parents, high, high, low)) {
+				return;
+			}
+			// high was hooked since it was read, so climb and retry
+			root1 = (int) PARENTS.getAcquire(parents, parent);
+			root2 = (int) PARENTS.getAcquire(parents, low);
+		}
+	}
+
+	/**
+	 * Pass over a range of ids, doing one step of the labeling.
+	 */
+	private class Pass extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		static final int START = -2; // make each node its own tree
+		static final int SAMPLE = -3; // link sampled edges
+		static final int COMPRESS = -4; // point each node at its root
+		// any other step, -1 included, links remaining edges outside that root
+		private final int from;
+		private final int to;
+		private final int step;
+
+		Pass(int from, int to, int step) {
+			this.from = from;
+			this.to = to;
+			this.step = step;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Pass(from, middle, step), new Pass(middle, to, step));
+				return;
+			}
+			if (step == START) {
+				for (int id = from; id < to; id++) {
+					parents[id] = graph.getNodeById(id) == null ? -1 : id;
+				}
+			} else if (step == COMPRESS) {
+				for (int id = from; id < to; id++) {
+					int parent = parents[id];
+					if (parent < 0) {
+						continue;
+					}
+					// Trees no longer change, so a plain walk up is safe
+					while (parents[parent] != parent) {
+						parent = parents[parent];
+					}
+					parents[id] = parent;
+				}
+			} else {
+				NeighborCursor friends = graph.newNeighborCursor();
+				for (int id = from; id < to; id++) {
+					if (parents[id] < 0 || (step != SAMPLE && parents[id] == step)) {
+						continue;
+					}
+					friends.reset(id);
+					int seen = 0;
+					for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+						if (step == SAMPLE) {
+							link(id, friend);
+							if (++seen == SAMPLED) {
+								break;
+							}
+						} else if (++seen > SAMPLED) {
+							link(id, friend);
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * File: ParallelLoader.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the parallel command file loader used by
+ * SocialNetwork.java to replay large command files.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads a command file by parsing it on a ForkJoinPool while the commands
+ * already parsed are run. The file is cut into chunks of about CHUNK_SIZE
+ * bytes, each ending at a line break, and every chunk is read and parsed by
+ * CommandLoader on a worker of its own: lines are split, names decoded and
+ * hashed, and malformed lines found, all away from the network. The calling
+ * thread then runs the commands of each chunk in file order through one
+ * CommandLoader, which gathers runs of commands of one kind, such as adds of
+ * friendships with no removal between them, and applies each run as a batch.
+ * The network therefore ends up exactly as if the file had been replayed one
+ * line at a time with runAction().
+ * 
+ * Only a window of chunks ahead of the one being run is parsed at a time, so
+ * memory use is bounded by the window rather than by the file.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class ParallelLoader {
+
+	static final int CHUNK_SIZE = 1 << 23; // bytes parsed by one task, before moving to a line break
+	private static final int SCAN = 1 << 12; // bytes read at a time while seeking a line break
+	private static final int BYTES_PER_COMMAND = 16; // guess used to size parsed chunks
+
+	/*
+	 * Private constructor, as all methods are static
+	 */
+	private ParallelLoader() {
+	}
+
+	/**
+	 * Runs every command of a file.
+	 * 
+	 * @param network to change
+	 * @param channel of file, which must not change during loading
+	 * @param pool    to parse on
+	 * @return number of commands run
+	 * @throws IOException    if file cannot be read
+	 * @throws ParseException at first malformed line, once every earlier command
+	 *                        has been run
+	 */
+	static long load(SocialNetwork network, FileChannel channel, ForkJoinPool pool)
+			throws IOException, ParseException {
+		long size = channel.size();
+		int window = 2 * pool.getParallelism();
+		ArrayDeque<Parse> parsing = new ArrayDeque<Parse>(window);
+		CommandLoader runner = new CommandLoader(network);
+		long start = 0; // start of next chunk to parse
+		long lines = 0; // lines of chunks already run
+		try {
+			while (start < size || !parsing.isEmpty()) {
+				while (start < size && parsing.size() < window) {
+					long end = lineEnd(channel, Math.min(size, start + CHUNK_SIZE), size);
+					if (end - start > Integer.MAX_VALUE - 8) {
+						throw new IOException("Line too long to load.");
+					}
+					Parse task = new Parse(channel, start, (int) (end - start));
+					pool.execute(task);
+					parsing.add(task);
+					start = end;
+				}
+				CommandLoader.Chunk chunk;
+				try {
+					chunk = parsing.poll().join();
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+				runner.apply(chunk, lines);
+				lines += chunk.lines();
+			}
+		} finally {
+			for (Parse task : parsing) {
+				task.cancel(false);
+			}
+		}
+		return runner.finish();
+	}
+
+	/**
+	 * Finds end of line containing given position.
+	 * 
+	 * @param channel  of file
+	 * @param position in file
+	 * @param size     of file
+	 * @return position just after first line break at or after position, a
+	 *         carriage return and line feed counting as one, or size if none
+	 */
+	static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN + 1);
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				break;
+			}
+			for (int i = 0; i < Math.min(read, SCAN); i++) {
+				byte b = buffer.get(i);
+				if (b == '\n') {
+					return position + i + 1;
+				} else if (b == '\r') {
+					// One byte past the scan is read so a line feed can be seen
+					return position + i + (i + 1 < read && buffer.get(i + 1) == '\n' ? 2 : 1);
+				}
+			}
+			position += Math.min(read, SCAN);
+		}
+		return size;
+	}
+
+	/**
+	 * Reads and parses one chunk of a file.
+	 * 
+	 * @param channel of file
+	 * @param start   of chunk, at the start of a line
+	 * @param length  of chunk, ending at a line break or the end of the file
+	 * @return commands of chunk
+	 * @throws IOException if file cannot be read
+	 */
+	static CommandLoader.Chunk parse(FileChannel channel, long start, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		// Positional reads, so chunks can be read at the same time
+		int read = 0;
+		while (buffer.hasRemaining() && read >= 0) {
+			read = channel.read(buffer, start + buffer.position());
+		}
+		CommandLoader.Chunk chunk = new CommandLoader.Chunk(length / BYTES_PER_COMMAND);
+		new CommandLoader(chunk).parse(bytes, buffer.position());
+		return chunk;
+	}
+
+	/**
+	 * Reading and parsing of one chunk of the file.
+	 */
+	private static class Parse extends RecursiveTask<CommandLoader.Chunk> {
+		private static final long serialVersionUID = 1L;
+		private final FileChannel channel;
+		private final long start;
+		private final int length;
+
+		Parse(FileChannel channel, long start, int length) {
+			this.channel = channel;
+			this.start = start;
+			this.length = length;
+		}
+
+		@Override
+		protected CommandLoader.Chunk compute() {
+			try {
+				return parse(channel, start, length);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * File: PathSearch.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the bidirectional breadth first search used by
+ * SocialNetwork.java to find shortest paths.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Bidirectional breadth first search between two nodes of an IndexedGraphADT.
+ * A search grows one frontier from each end, each time expanding a whole level
+ * of whichever frontier is smaller, and stops at the first edge joining the two
+ * searched regions. Since every node within the depth of each side has been
+ * found by then, that edge lies on a shortest path. On small world graphs the
+ * two sides meet after touching a tiny fraction of the nodes a one sided search
+ * would visit.
+ * 
+ * All state is kept in int arrays indexed by id, and a search never clears
+ * them: each search stamps the nodes it reaches with a fresh epoch, so stamps
+ * left by earlier searches read as unvisited. The arrays are kept per thread
+ * and reused, so a search costs only the nodes it touches. They are held
+ * through Workspaces, which lets an idle thread's arrays be reclaimed.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class PathSearch {
+
+	private static final Workspaces<PathSearch> WORKSPACES = new Workspaces<PathSearch>(PathSearch::new);
+
+	private int[] stamps; // epoch of side which reached each id
+	private int[] parents; // id each reached id was found from, -1 for the two ends
+	private int[] queue; // forward queue from the front, backward queue from the back
+	private int epoch; // stamp of forward side, backward side uses epoch + 1
+
+	private int forwardHead; // next forward entry to expand
+	private int forwardTail; // number of forward entries
+	private int backwardHead; // next backward entry to expand
+	private int backwardTail; // number of backward entries
+	private int meetForward; // ends of edge joining the two sides
+	private int meetBackward;
+
+	/*
+	 * Default no-argument constructor
+	 */
+	private PathSearch() {
+		stamps = new int[0];
+		parents = new int[0];
+		queue = new int[0];
+		epoch = -1;
+	}
+
+	/**
+	 * Gets the search state of the current thread, sized for given id bound.
+	 * 
+	 * @param bound id bound of graph to search
+	 * @return search state
+	 */
+	static PathSearch workspace(int bound) {
+		PathSearch search = WORKSPACES.get();
+		if (search.stamps.length < bound) {
+			int length = Math.max(bound, search.stamps.length + (search.stamps.length >> 1));
+			search.stamps = Arrays.copyOf(search.stamps, length);
+			search.parents = new int[length];
+			search.queue = new int[length];
+		}
+		return search;
+	}
+
+	/**
+	 * Finds shortest path between two nodes.
+	 * 
+	 * @param graph  to search, whose id bound the workspace was sized for
+	 * @param source id of first node
+	 * @param target id of last node
+	 * @return ids of nodes along path from source to target, or null if no path
+	 *         joins two different nodes
+	 */
+	int[] find(IndexedGraphADT graph, int source, int target) {
+		if (source < 0 || target < 0 || source == target) {
+			return null;
+		}
+		nextEpoch();
+		NeighborCursor friends = graph.newNeighborCursor();
+		forwardHead = 0;
+		forwardTail = 0;
+		backwardHead = 0;
+		backwardTail = 0;
+		stamps[source] = epoch;
+		parents[source] = -1;
+		queue[forwardTail++] = source;
+		stamps[target] = epoch + 1;
+		parents[target] = -1;
+		queue[queue.length - 1 - backwardTail++] = target;
+		// Expand smaller frontier a level at a time until the sides meet or one
+		// side runs out
+		while (forwardHead < forwardTail && backwardHead < backwardTail) {
+			boolean met = forwardTail - forwardHead <= backwardTail - backwardHead ? expandForward(friends)
+					: expandBackward(friends);
+			if (met) {
+				return path();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Expands current level of forward side.
+	 * 
+	 * @return true if an edge to the backward side was found
+	 */
+	private boolean expandForward(NeighborCursor friends) {
+		int level = forwardTail;
+		while (forwardHead < level) {
+			int current = queue[forwardHead++];
+			friends.reset(current);
+			for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+				int stamp = stamps[friend];
+				if (stamp == epoch + 1) {
+					meetForward = current;
+					meetBackward = friend;
+					return true;
+				} else if (stamp != epoch) {
+					stamps[friend] = epoch;
+					parents[friend] = current;
+					queue[forwardTail++] = friend;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Expands current level of backward side.
+	 * 
+	 * @return true if an edge to the forward side was found
+	 */
+	private boolean expandBackward(NeighborCursor friends) {
+		int last = queue.length - 1;
+		int level = backwardTail;
+		while (backwardHead < level) {
+			int current = queue[last - backwardHead++];
+			friends.reset(current);
+			for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+				int stamp = stamps[friend];
+				if (stamp == epoch) {
+					meetForward = friend;
+					meetBackward = current;
+					return true;
+				} else if (stamp != epoch + 1) {
+					stamps[friend] = epoch + 1;
+					parents[friend] = current;
+					queue[last - backwardTail++] = friend;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Builds path through meeting edge, from source to target.
+	 */
+	private int[] path() {
+		// Count each half first so path can be filled in place
+		int forwardLength = 0;
+		for (int id = meetForward; id >= 0; id = parents[id]) {
+			++forwardLength;
+		}
+		int length = forwardLength;
+		for (int id = meetBackward; id >= 0; id = parents[id]) {
+			++length;
+		}
+		int[] path = new int[length];
+		int index = forwardLength;
+		for (int id = meetForward; id >= 0; id = parents[id]) {
+			path[--index] = id;
+		}
+		index = forwardLength;
+		for (int id = meetBackward; id >= 0; id = parents[id]) {
+			path[index++] = id;
+		}
+		return path;
+	}
+
+	/**
+	 * Moves to fresh pair of stamps, clearing stamps once epochs run out.
+	 */
+	private void nextEpoch() {
+		if (epoch >= Integer.MAX_VALUE - 2) {
+			Arrays.fill(stamps, 0);
+			epoch = -1;
+		}
+		epoch += 2;
+	}
+}
@@ -18,17 +18,24 @@ package application;
 /**
  * Provides functionality of person.
  * 
+ * Persons handed out by a graph are interned: the graph's PersonTable keeps one
+ * canonical instance per name and gives it a dense integer id, so hot paths can
+ * compare ids instead of names. Persons built directly with a name only carry
+ * an id of -1 and are resolved by name.
+ * 
  * @author Matthew Karrmann
  *
  */
 public class Person {
-  private String name; // instance variable, name of person
+  private final String name; // instance variable, name of person
+  private final int hash; // cached hashcode of name
+  private final int id; // id given by PersonTable, -1 if not interned
 
   /**
    * Default no arg constructor
    */
   Person() {
-    this.name = null;
+    this(null, -1);
   }
 
   /**
@@ -37,7 +44,19 @@ public class Person {
    * @param name of person
    */
   Person(String name) {
+    this(name, -1);
+  }
+
+  /**
+   * Constructor used by PersonTable for interned instances
+   * 
+   * @param name of person
+   * @param id of person in its table
+   */
+  Person(String name, int id) {
     this.name = name;
+    this.hash = name == null ? 0 : name.hashCode();
+    this.id = id;
   }
 
   /**
@@ -49,16 +68,21 @@ public class Person {
     return this.name;
   }
 
+  /**
+   * Getter for id
+   * 
+   * @return id of person in the graph which interned it, or -1 if not interned
+   */
+  public int getId() {
+    return this.id;
+  }
+
   /**
    * Overrides hashcode to be same as hashcode of String. Allows for easy lookup in hashtable.
    */
   @Override
   public int hashCode() {
-    if (this.name == null) {
-      return 0;
-    } else {
-      return this.name.hashCode();
-    }
+    return this.hash;
   }
 
   /**
@@ -67,8 +91,11 @@ public class Person {
    */
   @Override
   public boolean equals(Object o) {
-    if (o instanceof Person) {
-      return this.name.equals(((Person) o).name);
+    if (this == o) {
+      return true; // canonical instances compare by identity
+    } else if (o instanceof Person) {
+      Person other = (Person) o;
+      return this.hash == other.hash && this.name.equals(other.name);
     } else {
       return false;
     }
@@ -0,0 +1,187 @@
+/*
+ * File: PersonTable.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the name to id dictionary used by the graph
+ * implementations to number their nodes.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Interning symbol table for the people in a graph. The table keeps one
+ * canonical Person per name and gives it a dense integer id, which the Person
+ * carries along with its cached hash. Lookups by name return the canonical
+ * instance without allocating. Ids of removed people are recycled so that ids
+ * stay within [0, bound()).
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class PersonTable {
+
+	private HashMap<String, Person> canonical; // name -> interned person
+	private Person[] people; // id -> person (null for free ids)
+	private int bound; // one past the highest id ever handed out
+	private int count; // number of people in table
+
+	private int[] freeIds; // stack of recycled ids
+	private int freeCount;
+
+	/*
+	 * Default no-argument constructor
+	 */
+	PersonTable() {
+		this(16);
+	}
+
+	/**
+	 * Constructor with expected number of people
+	 * 
+	 * @param expected number of people table will hold
+	 */
+	PersonTable(int expected) {
+		canonical = new HashMap<String, Person>(Math.max(16, expected * 4 / 3 + 1));
+		people = new Person[Math.max(16, expected)];
+		freeIds = new int[16];
+	}
+
+	/**
+	 * Gets canonical person with given name, adding it to table if not already
+	 * present.
+	 * 
+	 * @param name of person
+	 * @return interned person
+	 */
+	Person intern(String name) {
+		Person person = canonical.get(name);
+		if (person != null) {
+			return person;
+		}
+		int id;
+		// Prefer recycled ids so that id space stays dense
+		if (freeCount > 0) {
+			id = freeIds[--freeCount];
+		} else {
+			id = bound++;
+			if (id == people.length) {
+				people = Arrays.copyOf(people, people.length * 2);
+			}
+		}
+		person = new Person(name, id);
+		canonical.put(name, person);
+		people[id] = person;
+		++count;
+		return person;
+	}
+
+	/**
+	 * Gets canonical person with given name without adding it.
+	 * 
+	 * @param name of person
+	 * @return interned person, or null if not present
+	 */
+	Person lookup(String name) {
+		return canonical.get(name);
+	}
+
+	/**
+	 * Resolves a person, which may come from another graph or have been built by
+	 * name, to the canonical instance in this table.
+	 * 
+	 * @param person to resolve
+	 * @return interned person, or null if not present
+	 */
+	Person resolve(Person person) {
+		int id = person.getId();
+		// Fast path: person is already this table's instance
+		if (id >= 0 && id < bound && people[id] == person) {
+			return person;
+		}
+		return canonical.get(person.getName());
+	}
+
+	/**
+	 * Removes person with given name from table.
+	 * 
+	 * @param name of person
+	 * @return id which was freed, or -1 if name was not present
+	 */
+	int remove(String name) {
+		Person person = canonical.remove(name);
+		if (person == null) {
+			return -1;
+		}
+		int id = person.getId();
+		people[id] = null;
+		if (freeCount == freeIds.length) {
+			freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+		}
+		freeIds[freeCount++] = id;
+		--count;
+		return id;
+	}
+
+	/**
+	 * Gets id of person with given name.
+	 * 
+	 * @param name of person
+	 * @return id of person, or -1 if not present
+	 */
+	int idOf(String name) {
+		Person person = canonical.get(name);
+		return person == null ? -1 : person.getId();
+	}
+
+	/**
+	 * Gets person with given id.
+	 * 
+	 * @param id of person
+	 * @return person, or null if id is not in use
+	 */
+	Person get(int id) {
+		if (id < 0 || id >= bound) {
+			return null;
+		}
+		return people[id];
+	}
+
+	/**
+	 * Exclusive upper bound on ids in use.
+	 * 
+	 * @return id bound
+	 */
+	int bound() {
+		return bound;
+	}
+
+	/**
+	 * Getter for number of people in table.
+	 * 
+	 * @return number of people
+	 */
+	int count() {
+		return count;
+	}
+
+	/**
+	 * Removes all people from the table.
+	 */
+	void clear() {
+		canonical.clear();
+		Arrays.fill(people, 0, bound, null);
+		bound = 0;
+		count = 0;
+		freeCount = 0;
+	}
+}
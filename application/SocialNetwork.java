@@ -16,29 +16,64 @@
 
 package application;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author mkleinsasser, mkarrmann
- *
+ * 
  */
 public class SocialNetwork implements SocialNetworkADT {
 
-	private Graph graph;
-	Person activeUser = null;
+	private IndexedGraphADT graph;
+	private final ReentrantLock[] locks; // stripes of user names, held by mutators of the users
+	private final ComponentIndex components; // kept up to date by the mutators
+	private volatile DistanceOracle oracle; // landmark distances, if built, kept up to date likewise
+	private volatile MutationLog log; // log each change is written to before it is made, if open
+	private final ThreadLocal<Boolean> loading = new ThreadLocal<Boolean>(); // set while running a command file
+	private static final int STRIPES = 64; // locks of user names, for graphs safe for concurrent use
+	private static final long ALL = -1L; // mask of every stripe
+	volatile Person activeUser = null;
 
 	/**
-	 * Constructs the SocialNetwork object, initializing the 
+	 * Constructs the SocialNetwork object, initializing the graph as an empty
+	 * Graph
 	 */
 	public SocialNetwork() {
-		graph = new Graph();
+		this(new Graph());
+	}
+
+	/**
+	 * Constructs the SocialNetwork object on top of given graph implementation,
+	 * e.g. a CompactGraph for very large networks
+	 * 
+	 * @param graph graph to store network in
+	 */
+	public SocialNetwork(IndexedGraphADT graph) {
+		if (graph == null) {
+			throw new IllegalArgumentException("Graph is null. Please provide valid input.");
+		}
+		this.graph = graph;
+		this.components = new ComponentIndex(graph);
+		// Writers to graphs not safe for concurrent use take turns on one lock
+		this.locks = new ReentrantLock[graph.isConcurrent() ? STRIPES : 1];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new ReentrantLock();
+		}
 	}
 
 	/**
@@ -50,20 +85,29 @@ public class SocialNetwork implements SocialNetworkADT {
 		if (friend1 == null || friend2 == null) {
 			return false;
 		}
-		int origSize = graph.size();
-
-		Person p1 = new Person(friend1);
-		Person p2 = new Person(friend2);
 
+		long logged = 0;
+		long held = lock(stripes(friend1, friend2));
 		try {
-			graph.addEdge(p1, p2);
-			if (graph.size() > origSize) {
-				return true;
+			logged = log(MutationLog.ADD, friend1, friend2);
+			// Reuse interned users, only allocating for users new to the network
+			Person p1 = graph.findNode(friend1);
+			Person p2 = graph.findNode(friend2);
+
+			boolean added = graph.addEdgeIfAbsent(p1 != null ? p1 : new Person(friend1),
+					p2 != null ? p2 : new Person(friend2));
+			// Users new to the network were only interned by the graph
+			int id1 = p1 != null ? p1.getId() : graph.idOf(friend1);
+			int id2 = p2 != null ? p2.getId() : graph.idOf(friend2);
+			if (added) {
+				edgeAdded(id1, id2);
 			} else {
-				return false;
+				components.addNode(id1); // added by a self friendship
 			}
-		} catch (Exception e) {
-			return false;
+			return added;
+		} finally {
+			unlock(held);
+			awaitLog(logged);
 		}
 	}
 
@@ -77,20 +121,24 @@ public class SocialNetwork implements SocialNetworkADT {
 			return false;
 		}
 
-		int origSize = graph.size();
-
-		Person p1 = new Person(friend1);
-		Person p2 = new Person(friend2);
-
+		long logged = 0;
+		long held = lock(stripes(friend1, friend2));
 		try {
-			graph.removeEdge(p1, p2);
-			if (graph.size() < origSize) {
-				return true;
-			} else {
+			Person p1 = graph.findNode(friend1);
+			Person p2 = graph.findNode(friend2);
+			if (p1 == null || p2 == null) {
 				return false;
 			}
-		} catch (Exception e) {
+
+			logged = log(MutationLog.REMOVE, friend1, friend2);
+			if (graph.removeEdgeIfPresent(p1, p2)) {
+				edgeRemoved(p1.getId(), p2.getId());
+				return true;
+			}
 			return false;
+		} finally {
+			unlock(held);
+			awaitLog(logged);
 		}
 	}
 
@@ -102,12 +150,22 @@ public class SocialNetwork implements SocialNetworkADT {
 		if (user == null) {
 			return false;
 		}
-		if (graph.contains(user)) {
-			return false;
-		} else {
-			Person node = new Person(user);
-			graph.addNode(node);
-			return true;
+		long logged = 0;
+		long held = lock(stripes(user));
+		try {
+			if (graph.contains(user)) {
+				return false;
+			}
+			logged = log(MutationLog.ADD, user, null);
+			if (graph.addNodeIfAbsent(new Person(user))) {
+				components.addNode(graph.idOf(user));
+				return true;
+			} else {
+				return false;
+			}
+		} finally {
+			unlock(held);
+			awaitLog(logged);
 		}
 	}
 
@@ -119,11 +177,160 @@ public class SocialNetwork implements SocialNetworkADT {
 		if (user == null) {
 			return false;
 		}
-		if (graph.contains(user)) {
-			graph.removeNode(new Person(user));
+		long logged = 0;
+		long held = lock(stripes(user));
+		try {
+			Person node = graph.findNode(user);
+			if (node == null) {
+				return false;
+			}
+			logged = log(MutationLog.REMOVE, user, null);
+			// Read before retiring, while the stripe keeps friendships unchanged
+			int[] friends = oracle == null ? null : friendIds(node.getId());
+			if (!graph.retireNodeIfPresent(node)) {
+				return false;
+			}
+			// Id is only handed out again once the indexes have seen it go
+			try {
+				nodeRemoved(node.getId(), friends);
+			} finally {
+				graph.reclaim(node.getId());
+			}
 			return true;
-		} else {
-			return false;
+		} finally {
+			unlock(held);
+			awaitLog(logged);
+		}
+	}
+
+	/**
+	 * Adds users in order, skipping users already in the network. Cheaper than
+	 * calling addUser() for each, as no Person is allocated for existing users.
+	 * 
+	 * @param users names of users to add
+	 * @return set with bit i set if i-th user was added
+	 */
+	public BitSet addUsers(Collection<String> users) {
+		long logged = 0;
+		long held = lock(stripes(users));
+		try {
+			if (log != null) {
+				for (String user : users) {
+					if (user != null) {
+						logged = log(MutationLog.ADD, user, null);
+					}
+				}
+			}
+			BitSet added = graph.addNodes(users);
+			int i = 0;
+			for (String user : users) {
+				if (added.get(i++)) {
+					components.addNode(graph.idOf(user));
+				}
+			}
+			return added;
+		} finally {
+			unlock(held);
+			awaitLog(logged);
+		}
+	}
+
+	/**
+	 * Adds friendships between pairs of users, adding users not yet in the
+	 * network. Has the same effect as calling addFriends() on each pair in turn,
+	 * but the batch is sorted and deduplicated and merged into the graph in bulk.
+	 * 
+	 * @param pairs names, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if friendship of pair i was added
+	 */
+	public BitSet addFriendships(String[] pairs) {
+		long logged = 0;
+		long held = lock(stripes(pairs));
+		try {
+			logged = logPairs(MutationLog.ADD, pairs);
+			BitSet added = graph.addEdges(pairs);
+			for (int i = added.nextSetBit(0); i >= 0; i = added.nextSetBit(i + 1)) {
+				edgeAdded(graph.idOf(pairs[2 * i]), graph.idOf(pairs[2 * i + 1]));
+			}
+			// A user new to the network is in some added friendship, unless only
+			// named in a friendship with themselves
+			for (int i = 0; i + 1 < pairs.length; i += 2) {
+				if (pairs[i] != null && pairs[i].equals(pairs[i + 1])) {
+					components.addNode(graph.idOf(pairs[i]));
+				}
+			}
+			return added;
+		} finally {
+			unlock(held);
+			awaitLog(logged);
+		}
+	}
+
+	/**
+	 * Adds friendships between pairs of users given by id, as returned by
+	 * getGraph().idOf(). Pairs naming an id not in the network are skipped.
+	 * 
+	 * @param pairs ids, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if friendship of pair i was added
+	 */
+	public BitSet addFriendships(int[] pairs) {
+		long logged = 0;
+		long held = lock(ALL);
+		try {
+			logged = logPairs(MutationLog.ADD, pairs);
+			BitSet added = graph.addEdges(pairs);
+			for (int i = added.nextSetBit(0); i >= 0; i = added.nextSetBit(i + 1)) {
+				edgeAdded(pairs[2 * i], pairs[2 * i + 1]);
+			}
+			return added;
+		} finally {
+			unlock(held);
+			awaitLog(logged);
+		}
+	}
+
+	/**
+	 * Removes friendships between pairs of users. Has the same effect as calling
+	 * removeFriends() on each pair in turn.
+	 * 
+	 * @param pairs names, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if friendship of pair i was removed
+	 */
+	public BitSet removeFriendships(String[] pairs) {
+		long logged = 0;
+		long held = lock(stripes(pairs));
+		try {
+			logged = logPairs(MutationLog.REMOVE, pairs);
+			BitSet removed = graph.removeEdges(pairs);
+			for (int i = removed.nextSetBit(0); i >= 0; i = removed.nextSetBit(i + 1)) {
+				edgeRemoved(graph.idOf(pairs[2 * i]), graph.idOf(pairs[2 * i + 1]));
+			}
+			return removed;
+		} finally {
+			unlock(held);
+			awaitLog(logged);
+		}
+	}
+
+	/**
+	 * Removes friendships between pairs of users given by id.
+	 * 
+	 * @param pairs ids, pair i being pairs[2 * i] and pairs[2 * i + 1]
+	 * @return set with bit i set if friendship of pair i was removed
+	 */
+	public BitSet removeFriendships(int[] pairs) {
+		long logged = 0;
+		long held = lock(ALL);
+		try {
+			logged = logPairs(MutationLog.REMOVE, pairs);
+			BitSet removed = graph.removeEdges(pairs);
+			for (int i = removed.nextSetBit(0); i >= 0; i = removed.nextSetBit(i + 1)) {
+				edgeRemoved(pairs[2 * i], pairs[2 * i + 1]);
+			}
+			return removed;
+		} finally {
+			unlock(held);
+			awaitLog(logged);
 		}
 	}
 
@@ -136,13 +343,30 @@ public class SocialNetwork implements SocialNetworkADT {
 		if (user == null) {
 			return null;
 		}
-		Person node = null;
-		try {
-			node = graph.getNode(user);
-			return graph.getNeighbors(node);
-		} catch (Exception e) {
+		Person node = graph.findNode(user);
+		if (node == null) {
+			return null;
+		}
+		return graph.getNeighbors(node);
+	}
+
+	/**
+	 * Returns a read-only view of the friends of the specified user. Cheaper than
+	 * getFriends() for callers which only iterate, as no set is built.
+	 * 
+	 * @param user in question
+	 * @return unmodifiable live collection of user's friends, or null if user is
+	 *         not in the network
+	 */
+	public Collection<Person> friendsOf(String user) {
+		if (user == null) {
+			return null;
+		}
+		Person node = graph.findNode(user);
+		if (node == null) {
 			return null;
 		}
+		return graph.neighbors(node);
 	}
 
 	/**
@@ -154,36 +378,55 @@ public class SocialNetwork implements SocialNetworkADT {
 		if (user1 == null || user2 == null) {
 			return null;
 		}
-		if (graph.contains(user1) && graph.contains(user2)) {
-			try {
-				Set<Person> set1 = getFriends(user1);
-				Set<Person> set2 = getFriends(user2);
-				set1.retainAll(set2);
-				return set1;
-			} catch (Exception e) {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			int id1 = view.idOf(user1);
+			int id2 = view.idOf(user2);
+			if (id1 < 0 || id2 < 0) {
 				return null;
 			}
-		} else {
-			return null;
+			int[] mutual = Intersection.workspace().list(view, id1, id2);
+			Set<Person> friends = new HashSet<Person>(Math.max(16, mutual.length * 2));
+			for (int id : mutual) {
+				friends.add(view.getNodeById(id));
+			}
+			return friends;
+		} finally {
+			graph.release(view);
+		}
+	}
+
+	/**
+	 * Counts friends shared by two users, without building any set of them.
+	 * 
+	 * @param user1 first user
+	 * @param user2 second user
+	 * @return number of mutual friends
+	 */
+	public int countMutualFriends(String user1, String user2) {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return countMutualFriends(view, user1, user2);
+		} finally {
+			graph.release(view);
 		}
 	}
 
 	/**
-	 * Helper method for getShortestPath(). After performing BFS to find second
-	 * user, returns List of appropriate visited users
+	 * Counts friends shared by two users of given graph.
 	 * 
-	 * @param visited    HashMap mapping each visited user to its prior user
-	 * @param currPerson p2
-	 * @return List of shortest path
+	 * @param view  graph to search, which must not change during the count
+	 * @param user1 first user
+	 * @param user2 second user
+	 * @return number of mutual friends
 	 */
-	private List<Person> shortestPath(HashMap<Person, Person> visited, Person currPerson) {
-		ArrayList<Person> path = new ArrayList<Person>(); // ArrayList to become path
-		// Iterates back through visited users until null is reached
-		while (currPerson != null) {
-			path.add(0, currPerson); // Adds to beginning of list
-			currPerson = visited.get(currPerson); // Updates currPerson
+	public static int countMutualFriends(IndexedGraphADT view, String user1, String user2) {
+		int id1 = user1 == null ? -1 : view.idOf(user1);
+		int id2 = user2 == null ? -1 : view.idOf(user2);
+		if (id1 < 0 || id2 < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
 		}
-		return path;
+		return Intersection.workspace().count(view, id1, id2);
 	}
 
 	/**
@@ -195,215 +438,1232 @@ public class SocialNetwork implements SocialNetworkADT {
 	 */
 	@Override
 	public List<Person> getShortestPath(String p1, String p2) throws Exception {
-		// Maps each visited user to its prior user
-		HashMap<Person, Person> visited = new HashMap<Person, Person>();
-		// Queue to be used for BFS
-		Queue<Person> queue = new LinkedList<Person>();
-		visited.put(new Person(p1), null); // Adds first user to visited, with null prior user
-		queue.add(new Person(p1)); // Adds first user queue
-		Person currPerson; // User currently being considered
-		Set<Person> friendsList; // Friends list of currPerson
-		Person friend; // current friend of currPerson being considered
-		Iterator<Person> it;
-		// While queue is not empty
-		while (queue.peek() != null) {
-			currPerson = queue.poll();
-			friendsList = graph.getNeighbors(currPerson); // get friends of currPerson
-			it = friendsList.iterator();
-			// Iterate until end of friends list
-			while (it.hasNext()) {
-				friend = it.next();
-				// If friend has not been visited, mark them visited. If friend is p2, call
-				// helper to
-				// construct list and return it
-				if (!visited.containsKey(friend)) {
-					visited.put(friend, currPerson);
-					if (friend.equals(new Person(p2))) {
-						return shortestPath(visited, friend);
-					} else {
-						// Else add friend to queue and continue
-						queue.add(friend);
-					}
-				}
-			}
+		// Search a snapshot, so that concurrent changes are seen whole or not at
+		// all
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return getShortestPath(view, p1, p2);
+		} finally {
+			graph.release(view);
 		}
-		// Only reached if no path found. Throw exception.
-		throw new Exception("No path between people found.");
 	}
 
 	/**
-	 * Helper method for getConnectComponents(). Used to find single connected
-	 * component.
+	 * Get shortest path (in users) from one user to another in given graph
 	 * 
-	 * @param subgraph graph which connected component is to be added to
-	 * @param node     current node method if being called on
-	 * @param visited  set of nodes which have been visited
-	 * @return connected component (the part which had not been visited before being
-	 *         called)
+	 * @param view graph to search, e.g. a snapshot of the network
+	 * @param p1,  first user
+	 * @param p2,  second user
+	 * @return List of users describing shortest path from p1 to p2
 	 */
-	private Graph connectedComponentsHelper(Graph subgraph, Person node, HashSet<Person> visited) {
-		// Friends of node
-		ArrayList<Person> friends = new ArrayList<Person>(graph.getNeighbors(node));
-		subgraph.addNode(node); // add node to subgraph
-		visited.add(node); // mark node visited
-		// Iterate through each of node's friends:
-		for (Person friend : friends) {
-			// add edge between friends indicating friendship (adding friend to graph if
-			// they are not
-			// already present)
-			subgraph.addEdge(node, friend);
-			// If friend has not been visited, call helper method on them
-			if (!visited.contains(friend)) {
-				connectedComponentsHelper(subgraph, friend, visited);
-			}
+	public static List<Person> getShortestPath(IndexedGraphADT view, String p1, String p2) throws Exception {
+		int source = view.idOf(p1);
+		if (source < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		// Search from both ends at once, reusing this thread's search arrays
+		int[] ids = PathSearch.workspace(view.idBound()).find(view, source, view.idOf(p2));
+		if (ids == null) {
+			// Only reached if no path found. Throw exception.
+			throw new Exception("No path between people found.");
+		}
+		Person[] path = new Person[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			path[i] = view.getNodeById(ids[i]);
 		}
-		return subgraph;
+		return new ArrayList<Person>(Arrays.asList(path));
 	}
 
 	/**
-	 * Gets a set of subgraphs containing the connected components of the whole
-	 * graph
+	 * Gets degrees of separation between given user and every user, in one
+	 * parallel breadth first search over all cores.
 	 * 
-	 * @return set of connected subgraphs
+	 * @param user to measure from
+	 * @return array indexed by id, as returned by getGraph().idOf(), of each
+	 *         user's distance in friendships from user, or -1 for users not
+	 *         connected to user and ids not in use
 	 */
-	@Override
-	public Set<Graph> getConnectedComponents() {
-		// Nodes which have not been visited
-		HashSet<Person> remaining = (HashSet<Person>) graph.getAllNodes();
-		Iterator<Person> it = remaining.iterator(); // Iterator used to select remaining user
-		HashSet<Graph> connectedComponents = new HashSet<Graph>(); // Set to be returned
-		Graph subgraph; // subgraph to pass to helper
-		Graph component; // to refer to single connected component
-		HashSet<Person> visited; // to pass to helper
-		Person currentNode; // currentNode selected by iterator
-		// While there remain nodes
-		while (it.hasNext()) {
-			currentNode = it.next(); // selects new node
-			subgraph = new Graph(); // sets to empty graph
-			visited = new HashSet<Person>(); // sets to empty set
-			// Call helper method and save
-			component = connectedComponentsHelper(subgraph, currentNode, visited);
-			connectedComponents.add(component); // add component to set
-			remaining.removeAll(component.getAllNodes()); // remove added nodes from remaining
-			it = remaining.iterator(); // Redefine iterator on new remaining set
+	public int[] getDistances(String user) {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return getDistances(view, user);
+		} finally {
+			graph.release(view);
 		}
-		return connectedComponents;
 	}
 
-	@Override
-	public String loadFromFile(File f) throws ParseException {
-		StringBuilder contentBuilder = new StringBuilder();
+	/**
+	 * Gets degrees of separation between given user and every user of given
+	 * graph.
+	 * 
+	 * @param view graph to search, which must not change during the search
+	 * @param user to measure from
+	 * @return array indexed by id of each user's distance in friendships from
+	 *         user, or -1 for users not connected to user and ids not in use
+	 */
+	public static int[] getDistances(IndexedGraphADT view, String user) {
+		int source = user == null ? -1 : view.idOf(user);
+		if (source < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		return ParallelBfs.distances(view, source, ForkJoinPool.commonPool());
+	}
 
-		try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-			String sCurrentLine;
-			while ((sCurrentLine = br.readLine()) != null) {
-				contentBuilder.append(sCurrentLine).append("\n");
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
+	/**
+	 * Hands each user within given number of hops of user to a visitor, nearest
+	 * first, as the search reaches them. Nothing is collected, and the search
+	 * reuses this thread's arrays, so it costs only the users it reaches.
+	 * 
+	 * @param user    to search from, who is not visited
+	 * @param depth   most friendships between user and a visited user
+	 * @param limit   most users to visit
+	 * @param visitor to hand each user and their distance to, which may stop the
+	 *                search by returning false
+	 * @return number of users visited
+	 */
+	public int forEachWithin(String user, int depth, int limit, NeighborhoodVisitor visitor) {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return forEachWithin(view, user, depth, limit, visitor);
+		} finally {
+			graph.release(view);
+		}
+	}
+
+	/**
+	 * Hands each user within given number of hops of user of given graph to a
+	 * visitor, nearest first.
+	 * 
+	 * @param view    graph to search, which must not change during the search
+	 * @param user    to search from, who is not visited
+	 * @param depth   most friendships between user and a visited user
+	 * @param limit   most users to visit
+	 * @param visitor to hand each user and their distance to
+	 * @return number of users visited
+	 */
+	public static int forEachWithin(IndexedGraphADT view, String user, int depth, int limit,
+			NeighborhoodVisitor visitor) {
+		int source = user == null ? -1 : view.idOf(user);
+		if (source < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		if (depth < 0 || limit < 0 || visitor == null) {
+			throw new IllegalArgumentException("Depth or limit is negative, or visitor is null. Please provide valid input.");
 		}
+		return NeighborhoodSearch.workspace(view.idBound()).search(view, source, depth, limit, visitor);
+	}
 
-		String i = contentBuilder.toString();
-		Scanner iScanner = new Scanner(i);
+	/**
+	 * Gets the users within given number of hops of user, nearest first.
+	 * 
+	 * @param user  to search from, who is not included
+	 * @param depth most friendships between user and an included user
+	 * @param limit most users to return
+	 * @return users reached, in order of distance
+	 */
+	public List<Person> getNeighborhood(String user, int depth, int limit) {
+		List<Person> neighborhood = new ArrayList<Person>();
+		forEachWithin(user, depth, limit, (person, distance) -> neighborhood.add(person));
+		return neighborhood;
+	}
 
-		while (iScanner.hasNextLine()) {
-			runAction(iScanner.nextLine());
+	/**
+	 * Suggests people for user to befriend, ranked by the friends they share.
+	 * 
+	 * @param user     to suggest friends for
+	 * @param k        most suggestions to return
+	 * @param weighted true to weight each mutual friend by Adamic-Adar, 1 /
+	 *                 log(their number of friends), rather than counting them
+	 * @return up to k users who are not friends of user, best first
+	 */
+	public List<Person> recommendFriends(String user, int k, boolean weighted) {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return recommendFriends(view, user, k, weighted);
+		} finally {
+			graph.release(view);
 		}
-		iScanner.close();
-		return i;
 	}
 
-	public List<Person> runAction(String action) throws ParseException {
-		Scanner scnr = new Scanner(action);
-		action = action.trim();
-		
-		if (action == null) {
-			scnr.close();
-			throw new ParseException("Invalid Input", -1);
+	/**
+	 * Suggests people for user of given graph to befriend.
+	 * 
+	 * @param view     graph to search, which must not change during the search
+	 * @param user     to suggest friends for
+	 * @param k        most suggestions to return
+	 * @param weighted true for Adamic-Adar weighting
+	 * @return up to k users who are not friends of user, best first
+	 */
+	public static List<Person> recommendFriends(IndexedGraphADT view, String user, int k, boolean weighted) {
+		int id = user == null ? -1 : view.idOf(user);
+		if (id < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
 		}
-		
-		if (action.equals("")) {
-			scnr.close();
-			return null;
+		if (k < 0) {
+			throw new IllegalArgumentException("Number of suggestions is negative. Please provide valid input.");
 		}
+		int[] ids = FriendRecommender.workspace(view.idBound()).recommend(view, id, k, weighted);
+		List<Person> suggestions = new ArrayList<Person>(ids.length);
+		for (int suggestion : ids) {
+			suggestions.add(view.getNodeById(suggestion));
+		}
+		return suggestions;
+	}
 
-		String actionId = "";
-		String user1 = null;
-		String user2 = null;
-		
-		for (int i = 0; scnr.hasNext(); i++) {
-			if (i == 0) {
-				actionId = scnr.next();
-				if (!(actionId.equals("a") || actionId.equals("r") || actionId.equals("s"))) {
-					scnr.close();
-					throw new ParseException("", -1);
-				}
-			}
-			if (i == 1) {
-				user1 = scnr.next();
-			}
-			if (i == 2) {
-				if (actionId.equals("s")) {
-					scnr.close();
-					throw new ParseException("s action allows 1 user argument", -1);
-				}
-				user2 = scnr.next();
-			}
+	/**
+	 * Suggests people for every user to befriend, in one pass using every core
+	 * of the common ForkJoinPool.
+	 * 
+	 * @param k        most suggestions per user
+	 * @param weighted true for Adamic-Adar weighting
+	 * @return array indexed by id of each user's suggestions, as ids, best
+	 *         first, or null for ids not in use
+	 */
+	public int[][] recommendFriendsForAll(int k, boolean weighted) {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return recommendFriendsForAll(view, k, weighted, ForkJoinPool.commonPool());
+		} finally {
+			graph.release(view);
 		}
-		
-		if (user1 == null) {
-			scnr.close();
-			throw new ParseException("user1 == null", -1);
+	}
+
+	/**
+	 * Suggests people for every user of given graph to befriend.
+	 * 
+	 * @param view     graph to search, which must not change during the search
+	 * @param k        most suggestions per user
+	 * @param weighted true for Adamic-Adar weighting
+	 * @param pool     to run on
+	 * @return array indexed by id of each user's suggestions, as ids, best
+	 *         first, or null for ids not in use
+	 */
+	public static int[][] recommendFriendsForAll(IndexedGraphADT view, int k, boolean weighted, ForkJoinPool pool) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Number of suggestions is negative. Please provide valid input.");
 		}
+		return FriendRecommender.recommendAll(view, k, weighted, pool);
+	}
 
-		if (actionId.equals("a")) {
-			if (user2 == null) {
-				this.addUser(user1);
-				System.out.println("user added");
-			} else {
-				this.addFriends(user1, user2);
-				System.out.println("friendship added");
-			}
+	/**
+	 * Counts the triangles at every user, in parallel on the common
+	 * ForkJoinPool, giving local clustering coefficients and the global
+	 * transitivity of the network.
+	 * 
+	 * @return triangles at each user, by id
+	 */
+	public TriangleCounts countTriangles() {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return TriangleCounter.count(view, ForkJoinPool.commonPool());
+		} finally {
+			graph.release(view);
 		}
+	}
 
-		if (actionId.equals("r")) {
-			if (user2 == null) {
-				this.removeUser(user1);
-				System.out.println("user removed");
-			} else {
-				this.removeFriends(user1, user2);
-				System.out.println("friendship removed");
-			}
+	/**
+	 * Counts the triangles at every node of given graph.
+	 * 
+	 * @param view graph to count, which must not change during counting
+	 * @param pool to run on
+	 * @return triangles at each node, by id
+	 */
+	public static TriangleCounts countTriangles(IndexedGraphADT view, ForkJoinPool pool) {
+		if (view == null || pool == null) {
+			throw new IllegalArgumentException("Graph or pool is null. Please provide valid input.");
 		}
+		return TriangleCounter.count(view, pool);
+	}
 
-		if (actionId.equals("s")) {
-			this.activeUser = graph.getNode(user1);
-			System.out.println("active user set");
+	/**
+	 * Ranks every user by PageRank, in parallel on the common ForkJoinPool.
+	 * 
+	 * @param damping       chance of following a friendship rather than jumping
+	 *                      to a random user, usually 0.85
+	 * @param tolerance     total change in rank below which iteration stops
+	 * @param maxIterations most iterations to run
+	 * @return array indexed by id of each user's rank, summing to 1
+	 */
+	public double[] pageRank(double damping, double tolerance, int maxIterations) {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return pageRank(view, damping, tolerance, maxIterations, ForkJoinPool.commonPool());
+		} finally {
+			graph.release(view);
 		}
-		
-		System.out.println("Action handled");
-		scnr.close();
-		return this.graph.getVertices();
 	}
 
-	@Override
-	public void saveToFile(String s, String fileName) throws IOException {
-	    BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
-	    writer.write(s);
-	    writer.close();
+	/**
+	 * Ranks every node of given graph by PageRank.
+	 * 
+	 * @param view          graph to rank, which must not change during ranking
+	 * @param damping       chance of following a friendship rather than jumping
+	 * @param tolerance     total change in rank below which iteration stops
+	 * @param maxIterations most iterations to run
+	 * @param pool          to run on
+	 * @return array indexed by id of each node's rank, summing to 1
+	 */
+	public static double[] pageRank(IndexedGraphADT view, double damping, double tolerance, int maxIterations,
+			ForkJoinPool pool) {
+		if (!(damping >= 0 && damping <= 1) || !(tolerance >= 0) || maxIterations < 1) {
+			throw new IllegalArgumentException("PageRank parameters out of range. Please provide valid input.");
+		}
+		return Centrality.pageRank(view, damping, tolerance, maxIterations, pool);
 	}
 
 	/**
-	 * Getter for graph.
+	 * Estimates betweenness of every user from a random sample of sources, in
+	 * parallel on the common ForkJoinPool.
 	 * 
-	 * @return graph of network.
+	 * @param samples number of sources, exact if at least the number of users
+	 * @return array indexed by id of each user's betweenness, counting each
+	 *         unordered pair of other users once
 	 */
-	public Graph getGraph() {
-		return this.graph;
+	public double[] betweenness(int samples) {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return betweenness(view, samples, System.nanoTime(), ForkJoinPool.commonPool());
+		} finally {
+			graph.release(view);
+		}
 	}
-	
-	public void clear() {
-		this.graph = new Graph();
+
+	/**
+	 * Estimates betweenness of every node of given graph from a random sample of
+	 * sources.
+	 * 
+	 * @param view    graph to rank, which must not change during ranking
+	 * @param samples number of sources, exact if at least the order
+	 * @param seed    for choosing sources
+	 * @param pool    to run on
+	 * @return array indexed by id of each node's betweenness
+	 */
+	public static double[] betweenness(IndexedGraphADT view, int samples, long seed, ForkJoinPool pool) {
+		if (samples < 1) {
+			throw new IllegalArgumentException("Number of samples is not positive. Please provide valid input.");
+		}
+		return Centrality.betweenness(view, samples, seed, pool);
+	}
+
+	/**
+	 * Picks the ids with the k highest scores, e.g. of pageRank().
+	 * 
+	 * @param scores indexed by id
+	 * @param k      most ids to return
+	 * @return ids, highest score first, ties going to the lower id
+	 */
+	public static int[] topK(double[] scores, int k) {
+		if (scores == null || k < 0) {
+			throw new IllegalArgumentException("Scores are null or k is negative. Please provide valid input.");
+		}
+		return Centrality.topK(scores, k);
+	}
+
+	/**
+	 * Builds an index of distances from a few landmark users, from which
+	 * estimateDistance() bounds the distance between any two users without
+	 * searching. The index follows later changes to the network: added
+	 * friendships are applied at once, and landmarks whose distances a removal
+	 * may have lengthened are left out of estimates until
+	 * refreshDistanceOracle(). Replaces any index built before.
+	 * 
+	 * @param landmarks number of landmarks, at most the number of users
+	 * @param byDegree  true to pick the users with most friends, false to pick
+	 *                  users at random
+	 */
+	public void buildDistanceOracle(int landmarks, boolean byDegree) {
+		if (landmarks < 1) {
+			throw new IllegalArgumentException("Number of landmarks is not positive. Please provide valid input.");
+		}
+		long held = lock(ALL);
+		try {
+			oracle = new DistanceOracle(graph, landmarks, byDegree, System.nanoTime());
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Searches again from landmarks left out of estimates since removals,
+	 * replacing landmarks no longer in the network.
+	 */
+	public void refreshDistanceOracle() {
+		long held = lock(ALL);
+		try {
+			requireOracle().refresh();
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Bounds number of friendships between two users from the landmark index,
+	 * in time linear in the number of landmarks.
+	 * 
+	 * @param user1 first user
+	 * @param user2 second user
+	 * @return array of lower and upper bound, where a lower bound of
+	 *         Integer.MAX_VALUE means the users are not connected and an upper
+	 *         bound of Integer.MAX_VALUE means no landmark reaches both
+	 */
+	public int[] estimateDistance(String user1, String user2) {
+		DistanceOracle oracle = requireOracle();
+		int id1 = user1 == null ? -1 : graph.idOf(user1);
+		int id2 = user2 == null ? -1 : graph.idOf(user2);
+		if (id1 < 0 || id2 < 0) {
+			throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+		}
+		return new int[] { oracle.lowerBound(id1, id2), oracle.upperBound(id1, id2) };
+	}
+
+	/**
+	 * Gets number of friendships between two users.
+	 * 
+	 * @param user1 first user
+	 * @param user2 second user
+	 * @param exact true to search for a shortest path, false to take the upper
+	 *              bound from the landmark index, which is exact when the
+	 *              bounds meet, searching only if no landmark reaches both
+	 * @return distance, or -1 if the users are not connected
+	 */
+	public int getDistance(String user1, String user2, boolean exact) {
+		if (!exact) {
+			int[] bounds = estimateDistance(user1, user2);
+			if (bounds[0] == Integer.MAX_VALUE) {
+				return -1; // a landmark reaches one but not the other
+			}
+			if (bounds[1] != Integer.MAX_VALUE) {
+				return bounds[1];
+			}
+		}
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			int id1 = user1 == null ? -1 : view.idOf(user1);
+			int id2 = user2 == null ? -1 : view.idOf(user2);
+			if (id1 < 0 || id2 < 0) {
+				throw new IllegalArgumentException("Person is not in the network. Please provide valid input.");
+			}
+			if (id1 == id2) {
+				return 0;
+			}
+			int[] path = PathSearch.workspace(view.idBound()).find(view, id1, id2);
+			return path == null ? -1 : path.length - 1;
+		} finally {
+			graph.release(view);
+		}
+	}
+
+	/**
+	 * Gets the landmark index.
+	 */
+	private DistanceOracle requireOracle() {
+		DistanceOracle oracle = this.oracle;
+		if (oracle == null) {
+			throw new IllegalStateException("Distance oracle has not been built.");
+		}
+		return oracle;
+	}
+
+	/**
+	 * Gets number of connected components in the network, from the index of
+	 * components kept as users and friendships are added.
+	 * 
+	 * @return number of components
+	 */
+	public int getComponentCount() {
+		return componentIndex().count();
+	}
+
+	/**
+	 * Determines if two users are connected by some chain of friendships.
+	 * 
+	 * @param user1 first user
+	 * @param user2 second user
+	 * @return true if both users are in the network and connected
+	 */
+	public boolean inSameComponent(String user1, String user2) {
+		if (user1 == null || user2 == null) {
+			return false;
+		}
+		return componentIndex().connected(graph.idOf(user1), graph.idOf(user2));
+	}
+
+	/**
+	 * Lists the users of each connected component. Unlike
+	 * getConnectedComponents(), no subgraphs are built, so the listing takes time
+	 * linear in the number of users.
+	 * 
+	 * @return list of users of each component
+	 */
+	public List<List<Person>> getComponents() {
+		int[][] ids = componentIndex().components();
+		List<List<Person>> listing = new ArrayList<List<Person>>(ids.length);
+		for (int[] component : ids) {
+			List<Person> members = new ArrayList<Person>(component.length);
+			for (int id : component) {
+				Person person = graph.getNodeById(id);
+				if (person != null) {
+					members.add(person);
+				}
+			}
+			listing.add(members);
+		}
+		return listing;
+	}
+
+	/**
+	 * Labels every user with their connected component, using every core of the
+	 * common ForkJoinPool. Cheaper than getConnectedComponents(), as components
+	 * are numbered rather than copied, and subgraphs are only built on request.
+	 * The labels keep the snapshot they were taken from, if the graph takes
+	 * snapshots, so they should be closed once their subgraphs are built.
+	 * 
+	 * @return component of each user, by id
+	 */
+	public ComponentLabels labelComponents() {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return ParallelComponents.label(view, graph, ForkJoinPool.commonPool());
+		} catch (RuntimeException | Error e) {
+			graph.release(view);
+			throw e;
+		}
+	}
+
+	/**
+	 * Labels every node of given graph with its connected component, e.g. a
+	 * FrozenGraph in a batch job.
+	 * 
+	 * @param view graph to label, which must not change during labeling
+	 * @param pool to run on
+	 * @return component of each node, by id
+	 */
+	public static ComponentLabels labelComponents(IndexedGraphADT view, ForkJoinPool pool) {
+		if (view == null || pool == null) {
+			throw new IllegalArgumentException("Graph or pool is null. Please provide valid input.");
+		}
+		return ParallelComponents.label(view, null, pool);
+	}
+
+	/**
+	 * Gets a set of subgraphs containing the connected components of the whole
+	 * graph
+	 * 
+	 * @return set of connected subgraphs
+	 */
+	@Override
+	public Set<Graph> getConnectedComponents() {
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			return getConnectedComponents(view);
+		} finally {
+			graph.release(view);
+		}
+	}
+
+	/**
+	 * Gets a set of subgraphs containing the connected components of given graph
+	 * 
+	 * @param view graph to split, e.g. a snapshot of the network
+	 * @return set of connected subgraphs
+	 */
+	public static Set<Graph> getConnectedComponents(IndexedGraphADT view) {
+		HashSet<Graph> connectedComponents = new HashSet<Graph>(); // Set to be returned
+		int bound = view.idBound();
+		boolean[] visited = new boolean[bound];
+		int[] queue = new int[bound]; // BFS queue, reused for each component
+		NeighborCursor friends = view.newNeighborCursor();
+		for (int start = 0; start < bound; start++) {
+			// Skip free ids and users already placed in a component
+			if (visited[start] || view.getNodeById(start) == null) {
+				continue;
+			}
+			Graph component = new Graph();
+			component.addNode(view.getNodeById(start));
+			visited[start] = true;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = start;
+			// Breadth first search over the component, adding each edge once
+			while (head < tail) {
+				int current = queue[head++];
+				Person person = view.getNodeById(current);
+				friends.reset(current);
+				for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+					if (!visited[friend]) {
+						visited[friend] = true;
+						queue[tail++] = friend;
+					}
+					if (current < friend) {
+						component.addEdge(person, view.getNodeById(friend));
+					}
+				}
+			}
+			connectedComponents.add(component);
+		}
+		return connectedComponents;
+	}
+
+	/**
+	 * Runs every command of a command file, streaming it from disk through
+	 * loadCommands(). The text of the file is no longer returned, as it is
+	 * never held in memory; saveCommands() writes the network itself.
+	 * 
+	 * @param f file of commands
+	 * @return always the empty string
+	 * @throws ParseException       at first malformed line
+	 * @throws UncheckedIOException if file cannot be read
+	 * @deprecated use loadCommands(Path), which reports read errors as
+	 *             IOException and returns the number of commands run
+	 */
+	@Deprecated
+	@Override
+	public String loadFromFile(File f) throws ParseException {
+		if (f == null) {
+			throw new IllegalArgumentException("File is null. Please provide valid input.");
+		}
+		try {
+			loadCommands(f.toPath());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read " + f + ".", e);
+		}
+		return "";
+	}
+
+	/**
+	 * Runs every command of a command file, streaming it from disk, so the file
+	 * is never held in memory as a whole and files of any size can be loaded.
+	 * 
+	 * @param file of commands, one per line, in the format read by runAction()
+	 * @return number of commands run
+	 * @throws IOException    if file cannot be read
+	 * @throws ParseException at first malformed line, once every command before
+	 *                        it has been run
+	 */
+	public long loadCommands(Path file) throws IOException, ParseException {
+		loading.set(Boolean.TRUE);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new CommandLoader(this).load(channel);
+		} finally {
+			loaded();
+		}
+	}
+
+	/**
+	 * Runs every command of a command file, parsing chunks of it in parallel
+	 * while the commands already parsed are run in file order. Leaves the
+	 * network as loadCommands(Path) would, but is faster for large files.
+	 * 
+	 * @param file of commands, one per line, in the format read by runAction()
+	 * @param pool to parse on
+	 * @return number of commands run
+	 * @throws IOException    if file cannot be read
+	 * @throws ParseException at first malformed line, once every command before
+	 *                        it has been run
+	 */
+	public long loadCommands(Path file, ForkJoinPool pool) throws IOException, ParseException {
+		if (file == null || pool == null) {
+			throw new IllegalArgumentException("File or pool is null. Please provide valid input.");
+		}
+		loading.set(Boolean.TRUE);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return ParallelLoader.load(this, channel, pool);
+		} finally {
+			loaded();
+		}
+	}
+
+	/**
+	 * Rewrites a command file as the fewest commands building the same
+	 * network: a friendship command for each final friendship, an add for each
+	 * final user without friends, and the last active user if still in the
+	 * network. Churn such as users or friendships added and removed again is
+	 * dropped, so the result loads in time proportional to the final network
+	 * rather than to the history. Memory use is bounded, runs of sorted
+	 * entries being spilled next to output, so files larger than memory can be
+	 * compacted.
+	 * 
+	 * @param input  file of commands, one per line, in the format read by
+	 *               runAction()
+	 * @param output file to write, which may be input, replaced only once
+	 *               compaction is complete
+	 * @return number of commands written
+	 * @throws IOException    if a file cannot be read or written
+	 * @throws ParseException at first malformed line, nothing being written
+	 */
+	public static long compactCommands(Path input, Path output) throws IOException, ParseException {
+		return compactCommands(input, output, CommandCompactor.ENTRIES);
+	}
+
+	/**
+	 * Rewrites a command file as the fewest commands building the same
+	 * network, as compactCommands(Path, Path) does, holding at most given
+	 * number of users or friendships in memory per sort.
+	 * 
+	 * @param input   file of commands
+	 * @param output  file to write, which may be input
+	 * @param entries users or friendships each sort holds before spilling
+	 * @return number of commands written
+	 * @throws IOException    if a file cannot be read or written
+	 * @throws ParseException at first malformed line, nothing being written
+	 */
+	public static long compactCommands(Path input, Path output, int entries) throws IOException, ParseException {
+		if (input == null || output == null || entries < 1) {
+			throw new IllegalArgumentException(
+					"File is null, or entries is not positive. Please provide valid input.");
+		}
+		return CommandCompactor.compact(input, output, entries);
+	}
+
+	/**
+	 * Runs one command: "a user", "a user1 user2", "r user", "r user1 user2" or
+	 * "s user".
+	 * 
+	 * @param action command to run
+	 * @return users in the network after the command, or null for a blank
+	 *         command
+	 * @throws ParseException if command is malformed
+	 */
+	public List<Person> runAction(String action) throws ParseException {
+		if (action == null) {
+			throw new ParseException("Invalid Input", -1);
+		}
+
+		// Split into at most three tokens by hand
+		String[] tokens = new String[3];
+		int count = 0;
+		int i = 0;
+		int length = action.length();
+		while (true) {
+			while (i < length && Character.isWhitespace(action.charAt(i))) {
+				i++;
+			}
+			if (i == length) {
+				break;
+			}
+			if (count == 3) {
+				throw new ParseException("Too many arguments.", i);
+			}
+			int start = i;
+			while (i < length && !Character.isWhitespace(action.charAt(i))) {
+				i++;
+			}
+			tokens[count++] = action.substring(start, i);
+		}
+		if (count == 0) {
+			return null;
+		}
+
+		String actionId = tokens[0];
+		String user1 = tokens[1];
+		String user2 = tokens[2];
+		if (!(actionId.equals("a") || actionId.equals("r") || actionId.equals("s"))) {
+			throw new ParseException("Unknown action.", 0);
+		}
+		if (user1 == null) {
+			throw new ParseException("No user given.", -1);
+		}
+		if (actionId.equals("s") && user2 != null) {
+			throw new ParseException("s action allows 1 user argument.", -1);
+		}
+
+		if (actionId.equals("a")) {
+			if (user2 == null) {
+				this.addUser(user1);
+			} else {
+				this.addFriends(user1, user2);
+			}
+		} else if (actionId.equals("r")) {
+			if (user2 == null) {
+				this.removeUser(user1);
+			} else {
+				this.removeFriends(user1, user2);
+			}
+		} else {
+			this.selectUser(user1);
+		}
+		return this.graph.getVertices();
+	}
+
+	@Override
+	public void saveToFile(String s, String fileName) throws IOException {
+	    BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
+	    writer.write(s);
+	    writer.close();
+	}
+
+	/**
+	 * Writes the network as a command file of the fewest commands building
+	 * it, as compactCommands() would: a friendship command for each
+	 * friendship, an add for each user without friends, and the active user.
+	 * 
+	 * @param file to write, replaced only once it is complete
+	 * @throws IOException if file cannot be written
+	 */
+	public void saveCommands(Path file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("File is null. Please provide valid input.");
+		}
+		IndexedGraphADT view = graph.snapshot();
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			NeighborCursor friends = view.newNeighborCursor();
+			for (Person person : view.getVertices()) {
+				int id = person.getId();
+				if (view.degree(id) == 0) {
+					out.write("a " + person.getName() + "\n");
+				}
+				friends.reset(id);
+				for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+					if (id < friend) {
+						out.write("a " + person.getName() + " " + view.getNodeById(friend).getName() + "\n");
+					}
+				}
+			}
+			Person active = activeUser;
+			if (active != null && view.contains(active.getName())) {
+				out.write("s " + active.getName() + "\n");
+			}
+		} finally {
+			graph.release(view);
+		}
+		try {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Saves the users, friendships and active user of the network to a binary
+	 * snapshot file, which loadSnapshot() restores without replaying commands.
+	 * 
+	 * @param file to write, replaced only once the snapshot is complete
+	 * @throws IOException if file cannot be written
+	 */
+	public void saveSnapshot(Path file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("File is null. Please provide valid input.");
+		}
+		IndexedGraphADT view = graph.snapshot();
+		try {
+			BinarySnapshot.write(view, activeUser, file);
+		} finally {
+			graph.release(view);
+		}
+	}
+
+	/**
+	 * Replaces the network with the one saved in a binary snapshot file. The
+	 * whole file is read and checked first, so the network is left unchanged if
+	 * it cannot be read. With a log open, a checkpoint is then taken.
+	 * 
+	 * @param file written by saveSnapshot()
+	 * @throws IOException if file cannot be read, or is not an intact snapshot
+	 */
+	public void loadSnapshot(Path file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("File is null. Please provide valid input.");
+		}
+		BinarySnapshot snapshot = BinarySnapshot.read(file);
+		long held = lock(ALL);
+		try {
+			try {
+				graph.load(snapshot.names, snapshot.counts, snapshot.friends);
+			} catch (IllegalArgumentException e) {
+				// Names repeated in an otherwise intact file; graph is left as it was
+				throw new IOException("Snapshot is corrupt.", e);
+			}
+			// Indexes are marked stale rather than updated edge by edge
+			components.invalidate();
+			if (oracle != null) {
+				oracle.invalidate();
+			}
+			Person active = snapshot.active == null ? null : graph.findNode(snapshot.active);
+			this.activeUser = active != null || snapshot.active == null ? active : new Person(snapshot.active);
+			if (log != null) {
+				// The log holds changes, not whole networks, so start a generation from this one
+				checkpoint();
+			}
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Opens a write-ahead log of changes in a directory, recovering the network
+	 * from it first. Once open, every change made through the mutators,
+	 * runAction(), the loaders or clear() is appended to the log before it is
+	 * made, and each mutator returns only once its change is forced to disk,
+	 * so a change is never lost once made. A loader returns once every change
+	 * of its file is. The force is done after the mutator's locks are released
+	 * and is shared by every change logged meanwhile; a commit may wait up to
+	 * commitMillis for groupSize changes to gather, trading latency for fewer
+	 * forces.
+	 * 
+	 * The network is replaced by the newest snapshot in the directory, with
+	 * the changes logged since replayed in order; a log cut short by a crash
+	 * is replayed up to its last intact change. An empty or missing directory
+	 * instead starts a new log from the network as it is.
+	 * 
+	 * @param directory    to keep log in
+	 * @param groupSize    changes a commit waits to gather, 1 to commit at once
+	 * @param commitMillis longest time in milliseconds a commit waits for its
+	 *                     group, or 0 to commit at once
+	 * @return number of logged changes replayed
+	 * @throws IOException if log cannot be read or written, or is damaged
+	 *                     other than at its end
+	 */
+	public long openLog(Path directory, int groupSize, long commitMillis) throws IOException {
+		if (directory == null || groupSize < 1 || commitMillis < 0) {
+			throw new IllegalArgumentException(
+					"Directory is null, or group size or commit time is out of range. Please provide valid input.");
+		}
+		long held = lock(ALL);
+		try {
+			if (log != null) {
+				throw new IllegalStateException("Log is already open. Close it first with closeLog().");
+			}
+			MutationLog opened = MutationLog.open(directory, this, groupSize, commitMillis);
+			this.log = opened;
+			return opened.recovered();
+		} finally {
+			unlock(held);
+		}
+	}
+
+	/**
+	 * Writes a snapshot of the network to the log directory and deletes the
+	 * changes logged before it, so recovery only replays later changes.
+	 * Changes may go on while the snapshot is written if the graph supports
+	 * snapshot(); otherwise they wait for it.
+	 * 
+	 * @throws IOException if snapshot cannot be written
+	 */
+	public void checkpoint() throws IOException {
+		MutationLog log = requireLog();
+		IndexedGraphADT view;
+		Person active;
+		long generation;
+		long held = lock(ALL);
+		try {
+			generation = log.roll();
+			view = graph.snapshot();
+			active = activeUser;
+			if (view == graph) {
+				// Graph cannot be read while changed, so changes wait
+				BinarySnapshot.write(view, active, log.snapshotFile(generation));
+				view = null;
+			}
+		} finally {
+			unlock(held);
+		}
+		if (view != null) {
+			try {
+				BinarySnapshot.write(view, active, log.snapshotFile(generation));
+			} finally {
+				graph.release(view);
+			}
+		}
+		log.checkpointed(generation);
+	}
+
+	/**
+	 * Commits every change logged so far, without waiting for a group.
+	 * 
+	 * @throws IOException if log cannot be written
+	 */
+	public void syncLog() throws IOException {
+		requireLog().commit();
+	}
+
+	/**
+	 * Commits and closes the log, after which changes are no longer logged.
+	 * 
+	 * @throws IOException if log cannot be written
+	 */
+	public void closeLog() throws IOException {
+		MutationLog closed;
+		long held = lock(ALL);
+		try {
+			closed = requireLog();
+			this.log = null;
+		} finally {
+			unlock(held);
+		}
+		closed.close();
+	}
+
+	/**
+	 * Sets the active user, logging the change.
+	 * 
+	 * @param user name of user
+	 * @throws IllegalArgumentException if user is not in the network
+	 */
+	void selectUser(String user) {
+		long logged = 0;
+		long held = lock(stripes(user));
+		try {
+			Person person = graph.getNode(user);
+			logged = log(MutationLog.SELECT, user, null);
+			this.activeUser = person;
+		} finally {
+			unlock(held);
+			awaitLog(logged);
+		}
+	}
+
+	/**
+	 * Gets log, which must be open.
+	 */
+	private MutationLog requireLog() {
+		MutationLog log = this.log;
+		if (log == null) {
+			throw new IllegalStateException("No log is open. Open one first with openLog().");
+		}
+		return log;
+	}
+
+	/**
+	 * Appends change to the log, if open. Called with the stripes of the users
+	 * changed locked, before the change is made.
+	 * 
+	 * @return number of record to pass to awaitLog(), or 0 if no log is open
+	 */
+	private long log(byte action, String user1, String user2) {
+		MutationLog log = this.log;
+		if (log == null) {
+			return 0;
+		}
+		try {
+			return log.append(action, user1, user2);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Waits until a logged change is durable. Called once the stripes are
+	 * unlocked, so other changes go on during the commit and may share it.
+	 * Threads running a command file only wait once the log buffer fills, and
+	 * for the whole file at its end.
+	 * 
+	 * @param logged number of record, as returned by log(), or 0 for none
+	 */
+	private void awaitLog(long logged) {
+		MutationLog log = this.log;
+		if (logged == 0 || log == null) {
+			return; // a log closed since has committed every change
+		}
+		try {
+			if (loading.get() == null) {
+				log.await(logged);
+			} else {
+				log.awaitIfFull(logged);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Appends a change per pair of names to the log, if open, skipping pairs
+	 * the batch methods skip.
+	 * 
+	 * @return number of last record, or 0 if none was appended
+	 */
+	private long logPairs(byte action, String[] pairs) {
+		long logged = 0;
+		if (log != null && pairs != null && pairs.length % 2 == 0) {
+			for (int i = 0; i + 1 < pairs.length; i += 2) {
+				if (pairs[i] != null && pairs[i + 1] != null) {
+					logged = log(action, pairs[i], pairs[i + 1]);
+				}
+			}
+		}
+		return logged;
+	}
+
+	/**
+	 * Appends a change per pair of ids to the log, if open, by name, skipping
+	 * pairs naming an id not in the network.
+	 * 
+	 * @return number of last record, or 0 if none was appended
+	 */
+	private long logPairs(byte action, int[] pairs) {
+		long logged = 0;
+		if (log != null && pairs != null && pairs.length % 2 == 0) {
+			int bound = graph.idBound();
+			for (int i = 0; i + 1 < pairs.length; i += 2) {
+				Person p1 = pairs[i] < 0 || pairs[i] >= bound ? null : graph.getNodeById(pairs[i]);
+				Person p2 = pairs[i + 1] < 0 || pairs[i + 1] >= bound ? null : graph.getNodeById(pairs[i + 1]);
+				if (p1 != null && p2 != null) {
+					logged = log(action, p1.getName(), p2.getName());
+				}
+			}
+		}
+		return logged;
+	}
+
+	/**
+	 * Ends running a command file on this thread, waiting for the changes it
+	 * logged to be durable.
+	 */
+	private void loaded() {
+		loading.remove();
+		awaitLog(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Locks stripes in given mask, in order. Mutators lock the stripes of the
+	 * users they change, so that changes to any one user are logged, made and
+	 * reported to the indexes in the same order, while changes to other users
+	 * go on in parallel if the graph allows. Changes to every user lock ALL.
+	 * 
+	 * @return mask to pass to unlock()
+	 */
+	private long lock(long mask) {
+		for (int i = 0; i < locks.length; i++) {
+			if ((mask & 1L << i) != 0) {
+				locks[i].lock();
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Unlocks stripes taken by lock().
+	 */
+	private void unlock(long mask) {
+		for (int i = locks.length - 1; i >= 0; i--) {
+			if ((mask & 1L << i) != 0) {
+				locks[i].unlock();
+			}
+		}
+	}
+
+	/**
+	 * Gets mask of stripes of given users, skipping nulls.
+	 */
+	private long stripes(String... users) {
+		return users == null ? ALL : stripes(Arrays.asList(users));
+	}
+
+	/**
+	 * Gets mask of stripes of given users, skipping nulls.
+	 */
+	private long stripes(Collection<String> users) {
+		if (users == null) {
+			return ALL;
+		}
+		long mask = 0;
+		for (String user : users) {
+			if (user != null) {
+				int h = user.hashCode();
+				mask |= 1L << ((h ^ h >>> 16) & (locks.length - 1));
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Gets component index, first rebuilding it if the graph was changed
+	 * without the changes being reported. Changes are held off while it is
+	 * rebuilt, unless the graph is safe for concurrent use, in which case the
+	 * index is rebuilt from a snapshot while writers go on.
+	 */
+	private ComponentIndex componentIndex() {
+		if (components.isStale() && !graph.isConcurrent()) {
+			long held = lock(ALL);
+			try {
+				components.refresh();
+			} finally {
+				unlock(held);
+			}
+		}
+		return components;
+	}
+
+	/**
+	 * Reports added edge to the indexes kept of the graph.
+	 */
+	private void edgeAdded(int id1, int id2) {
+		components.addEdge(id1, id2);
+		DistanceOracle oracle = this.oracle;
+		if (oracle != null && id1 >= 0 && id2 >= 0) {
+			oracle.addEdge(id1, id2);
+		}
+	}
+
+	/**
+	 * Reports removed edge to the indexes kept of the graph.
+	 */
+	private void edgeRemoved(int id1, int id2) {
+		components.removeEdge(id1, id2);
+		DistanceOracle oracle = this.oracle;
+		if (oracle != null && id1 >= 0 && id2 >= 0) {
+			oracle.removeEdge(id1, id2);
+		}
+	}
+
+	/**
+	 * Reports removed node to the indexes kept of the graph.
+	 * 
+	 * @param friends ids of node's friends before its removal, or null if no
+	 *                distance oracle was built then
+	 */
+	private void nodeRemoved(int id, int[] friends) {
+		components.removeNode(id);
+		DistanceOracle oracle = this.oracle;
+		if (oracle != null) {
+			if (friends == null) {
+				oracle.invalidate(); // built since friends were read
+			} else {
+				oracle.removeNode(id, friends);
+			}
+		}
+	}
+
+	/**
+	 * Gets ids of node's friends.
+	 */
+	private int[] friendIds(int id) {
+		int[] friends = new int[graph.degree(id)];
+		int count = 0;
+		NeighborCursor cursor = graph.newNeighborCursor();
+		cursor.reset(id);
+		for (int friend = cursor.next(); friend >= 0; friend = cursor.next()) {
+			if (count == friends.length) {
+				friends = Arrays.copyOf(friends, count * 2 + 1);
+			}
+			friends[count++] = friend;
+		}
+		return count == friends.length ? friends : Arrays.copyOf(friends, count);
+	}
+
+	/**
+	 * Getter for graph.
+	 * 
+	 * @return graph of network.
+	 */
+	public IndexedGraphADT getGraph() {
+		return this.graph;
+	}
+	
+	public void clear() {
+		long logged = 0;
+		long held = lock(ALL);
+		try {
+			logged = log(MutationLog.CLEAR, null, null);
+			this.graph.clear();
+			this.components.clear();
+			if (oracle != null) {
+				oracle.invalidate();
+			}
+		} finally {
+			unlock(held);
+			awaitLog(logged);
+		}
 		this.activeUser = null;
 	}
 }
\ No newline at end of file
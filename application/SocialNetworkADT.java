@@ -94,8 +94,10 @@ public interface SocialNetworkADT {
 	/**
 	 * load set of instructions from a file
 	 * @param f
-	 * @return 
+	 * @return always the empty string
+	 * @deprecated use SocialNetwork.loadCommands(Path)
 	 */
+	@Deprecated
 	public String loadFromFile(File f) throws ParseException;
 	
 	/**
@@ -0,0 +1,48 @@
+/*
+ * File: TestNetworks.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the helpers shared by the tests of saving and restoring
+ * a SocialNetwork.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.util.TreeSet;
+
+/**
+ * Helpers for tests which compare networks rebuilt in different ways.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class TestNetworks {
+
+	/**
+	 * Gets users, friendships and active user of network as a string, equal for
+	 * two networks exactly when they hold the same users, friendships and active
+	 * user.
+	 * 
+	 * @param network in question
+	 * @return state of network
+	 */
+	static String state(SocialNetwork network) {
+		IndexedGraphADT graph = network.getGraph();
+		TreeSet<String> entries = new TreeSet<String>();
+		for (Person person : graph.getVertices()) {
+			entries.add(person.getName());
+			for (Person friend : graph.getNeighbors(person)) {
+				entries.add(person.getName() + "-" + friend.getName());
+			}
+		}
+		Person active = network.activeUser;
+		return entries + " active " + (active == null ? null : active.getName());
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * File: TriangleCounter.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the parallel triangle counting used by SocialNetwork.java
+ * for clustering coefficients.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Triangle counting over a degree ordered orientation of the graph, run on a
+ * ForkJoinPool. Nodes are ranked by degree, ties broken by id, and each edge
+ * is kept only at its lower ranked end, in one array of out-neighbors per node
+ * laid out like CompactGraph. A node then has at most O(sqrt(m)) out-neighbors,
+ * however many friends it has, and every triangle is found exactly once, from
+ * its lowest ranked corner u: its out-neighbors are marked, and for each
+ * out-neighbor v the out-neighbors of v are tested against the marks.
+ * 
+ * Marks are kept as u + 1 in an array indexed by id, and cleared after u, so
+ * no pass over the id range is needed between nodes. Tasks of a count share
+ * the mark arrays among themselves, one per worker at a time, and they are
+ * dropped with the count. Each triangle is credited to its three corners with
+ * an atomic add, as the other two may be credited by other tasks at the same
+ * time.
+ * 
+ * The graph must not change during counting; a snapshot can be counted
+ * instead.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+class TriangleCounter {
+
+	private static final VarHandle TRIANGLES = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final int GRAIN = 256; // nodes handled by one task
+
+	private final IndexedGraphADT graph;
+	private final int bound;
+	private final int[] offsets; // start of each node's out-neighbors in targets
+	private int[] targets; // out-neighbors of every node, filled once offsets are known
+	private final long[] triangles; // triangles at each id
+	private final ConcurrentLinkedQueue<int[]> spares; // cleared mark arrays not in use
+
+	/**
+	 * Constructor for count of given graph.
+	 */
+	private TriangleCounter(IndexedGraphADT graph) {
+		this.graph = graph;
+		this.bound = graph.idBound();
+		this.offsets = new int[bound + 1];
+		this.triangles = new long[bound];
+		this.spares = new ConcurrentLinkedQueue<int[]>();
+	}
+
+	/**
+	 * Counts triangles at every node.
+	 * 
+	 * @param graph to count, which must not change during counting
+	 * @param pool  to run on
+	 * @return triangles and degrees of every node
+	 */
+	static TriangleCounts count(IndexedGraphADT graph, ForkJoinPool pool) {
+		TriangleCounter counter = new TriangleCounter(graph);
+		// Size each node's out-neighbors, then lay them out and fill them in
+		pool.invoke(counter.new Pass(0, counter.bound, Pass.SIZE));
+		for (int id = 0; id < counter.bound; id++) {
+			counter.offsets[id + 1] += counter.offsets[id];
+		}
+		counter.targets = new int[counter.offsets[counter.bound]];
+		pool.invoke(counter.new Pass(0, counter.bound, Pass.FILL));
+		pool.invoke(counter.new Pass(0, counter.bound, Pass.COUNT));
+		int[] degrees = new int[counter.bound];
+		for (int id = 0; id < counter.bound; id++) {
+			degrees[id] = graph.getNodeById(id) == null ? -1 : graph.degree(id);
+		}
+		return new TriangleCounts(counter.triangles, degrees);
+	}
+
+	/**
+	 * Determines if edge is kept at node, as node ranks below friend.
+	 */
+	private boolean outward(int id, int degree, int friend) {
+		int friendDegree = graph.degree(friend);
+		return degree < friendDegree || (degree == friendDegree && id < friend);
+	}
+
+	/**
+	 * Counts triangles whose lowest ranked corner is node.
+	 */
+	private void countAt(int id, int[] marks) {
+		int start = offsets[id];
+		int end = offsets[id + 1];
+		for (int i = start; i < end; i++) {
+			marks[targets[i]] = id + 1;
+		}
+		long found = 0;
+		for (int i = start; i < end; i++) {
+			int friend = targets[i];
+			long shared = 0;
+			for (int j = offsets[friend]; j < offsets[friend + 1]; j++) {
+				int third = targets[j];
+				if (marks[third] == id + 1) {
+					TRIANGLES.getAndAdd(triangles, third, 1L);
+					++shared;
+				}
+			}
+			if (shared > 0) {
+				TRIANGLES.getAndAdd(triangles, friend, shared);
+				found += shared;
+			}
+		}
+		if (found > 0) {
+			TRIANGLES.getAndAdd(triangles, id, found);
+		}
+		for (int i = start; i < end; i++) {
+			marks[targets[i]] = 0;
+		}
+	}
+
+	/**
+	 * Pass over a range of ids, doing one step of the count.
+	 */
+	private class Pass extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		static final int SIZE = 0; // count out-neighbors of each node
+		static final int FILL = 1; // copy out-neighbors of each node
+		static final int COUNT = 2; // count triangles at each node
+		private final int from;
+		private final int to;
+		private final int step;
+
+		Pass(int from, int to, int step) {
+			this.from = from;
+			this.to = to;
+			this.step = step;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Pass(from, middle, step), new Pass(middle, to, step));
+				return;
+			}
+			if (step == COUNT) {
+				int[] marks = spares.poll();
+				if (marks == null) {
+					marks = new int[bound];
+				}
+				for (int id = from; id < to; id++) {
+					countAt(id, marks);
+				}
+				spares.add(marks);
+				return;
+			}
+			NeighborCursor friends = graph.newNeighborCursor();
+			for (int id = from; id < to; id++) {
+				if (graph.getNodeById(id) == null) {
+					continue;
+				}
+				int degree = graph.degree(id);
+				// Sizes are stored one place up, so the prefix sum leaves starts
+				int next = offsets[id];
+				friends.reset(id);
+				for (int friend = friends.next(); friend >= 0; friend = friends.next()) {
+					if (outward(id, degree, friend)) {
+						if (step == SIZE) {
+							++offsets[id + 1];
+						} else {
+							targets[next++] = friend;
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * File: TriangleCounts.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the result of counting triangles with
+ * SocialNetwork.countTriangles(), with the clustering coefficients derived
+ * from it.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+/**
+ * Triangles at every node of a graph, by id, and the clustering coefficients
+ * they give. The local clustering coefficient of a node is the share of pairs
+ * of its friends who are friends themselves, and the global transitivity is
+ * three times the number of triangles over the number of connected triples,
+ * pairs of edges sharing a node.
+ * 
+ * @author Matthew Karrmann
+ * 
+ */
+public class TriangleCounts {
+
+	private final long[] triangles; // triangles at each id
+	private final int[] degrees; // degree of each id when counted, -1 for ids not in use
+	private final long total; // triangles in graph
+	private final long triples; // connected triples in graph
+
+	/**
+	 * Constructor used by TriangleCounter
+	 */
+	TriangleCounts(long[] triangles, int[] degrees) {
+		this.triangles = triangles;
+		this.degrees = degrees;
+		long corners = 0;
+		long triples = 0;
+		for (int id = 0; id < degrees.length; id++) {
+			corners += triangles[id];
+			triples += pairs(id);
+		}
+		this.total = corners / 3;
+		this.triples = triples;
+	}
+
+	/**
+	 * Getter for number of triangles in graph
+	 * 
+	 * @return number of triangles
+	 */
+	public long total() {
+		return total;
+	}
+
+	/**
+	 * Gets number of triangles node is a corner of.
+	 * 
+	 * @param id of node, as given by idOf()
+	 * @return triangles at node, 0 if id was not in use
+	 */
+	public long triangles(int id) {
+		return id < 0 || id >= triangles.length ? 0 : triangles[id];
+	}
+
+	/**
+	 * Gets triangles at every node.
+	 * 
+	 * @return copy of array indexed by id of triangles at each node
+	 */
+	public long[] triangles() {
+		return triangles.clone();
+	}
+
+	/**
+	 * Gets local clustering coefficient of node.
+	 * 
+	 * @param id of node, as given by idOf()
+	 * @return share of pairs of node's friends who are friends, 0 if node has
+	 *         fewer than two friends or id was not in use
+	 */
+	public double clustering(int id) {
+		long pairs = id < 0 || id >= degrees.length ? 0 : pairs(id);
+		return pairs == 0 ? 0 : (double) triangles[id] / pairs;
+	}
+
+	/**
+	 * Gets local clustering coefficient of every node.
+	 * 
+	 * @return array indexed by id of each node's clustering coefficient
+	 */
+	public double[] clustering() {
+		double[] clustering = new double[degrees.length];
+		for (int id = 0; id < degrees.length; id++) {
+			clustering[id] = clustering(id);
+		}
+		return clustering;
+	}
+
+	/**
+	 * Gets mean local clustering coefficient over all nodes, counting nodes
+	 * with fewer than two friends as 0.
+	 * 
+	 * @return average clustering coefficient, 0 for an empty graph
+	 */
+	public double averageClustering() {
+		double sum = 0;
+		int nodes = 0;
+		for (int id = 0; id < degrees.length; id++) {
+			if (degrees[id] >= 0) {
+				sum += clustering(id);
+				++nodes;
+			}
+		}
+		return nodes == 0 ? 0 : sum / nodes;
+	}
+
+	/**
+	 * Gets global transitivity.
+	 * 
+	 * @return three times the triangles over the connected triples, 0 if there
+	 *         are no triples
+	 */
+	public double transitivity() {
+		return triples == 0 ? 0 : 3.0 * total / triples;
+	}
+
+	/**
+	 * Counts pairs of friends of node.
+	 */
+	private long pairs(int id) {
+		long degree = degrees[id];
+		return degree < 2 ? 0 : degree * (degree - 1) / 2;
+	}
+}
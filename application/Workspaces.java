@@ -0,0 +1,59 @@
+/*
+ * File: Workspaces.java
+ * Project: A-Team Social Media Project
+ * 
+ * This file provides the per thread reuse of the scratch arrays of searches
+ * such as PathSearch.java.
+ * 
+ * Contributors:
+ * Maxwell Kleinsasser
+ * Apeksha Maithal
+ * Isaac Zaman
+ * Matthew Karrmann
+ * 
+ */
+
+package application;
+
+import java.lang.ref.SoftReference;
+import java.util.function.Supplier;
+
+/**
+ * Workspace of each thread, kept between queries so that a query on a large
+ * graph does not allocate arrays sized to it. The workspace is held through a
+ * SoftReference, so that those of threads which have gone idle are reclaimed
+ * once memory runs short rather than held for the life of the thread; a
+ * thread whose workspace was reclaimed builds a new one on its next query.
+ * 
+ * @author Matthew Karrmann
+ * 
+ * @param <T> type of workspace
+ */
+final class Workspaces<T> {
+
+	private final ThreadLocal<SoftReference<T>> workspaces;
+	private final Supplier<T> factory; // builds a new, empty workspace
+
+	/**
+	 * Constructor for workspaces built by given factory.
+	 */
+	Workspaces(Supplier<T> factory) {
+		this.workspaces = new ThreadLocal<SoftReference<T>>();
+		this.factory = factory;
+	}
+
+	/**
+	 * Gets the workspace of the current thread.
+	 * 
+	 * @return workspace, a new one if the thread had none or it was reclaimed
+	 */
+	T get() {
+		SoftReference<T> reference = workspaces.get();
+		T workspace = reference == null ? null : reference.get();
+		if (workspace == null) {
+			workspace = factory.get();
+			workspaces.set(new SoftReference<T>(workspace));
+		}
+		return workspace;
+	}
+}